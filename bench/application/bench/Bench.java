@@ -0,0 +1,247 @@
+package application.bench;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A small JMH-style benchmark runner with no dependencies.
+ *
+ * Every benchmark is warmed up, then measured for a number of timed
+ * iterations. The average time per operation of each iteration is kept, and
+ * the results are written as JSON in the same shape JMH uses for
+ * -rf json, so runs can be compared with the usual JMH tooling.
+ *
+ * Options: --warmup N, --iterations N, --time MILLIS, --filter REGEX,
+ * --out FILE.
+ */
+public final class Bench {
+	/**
+	 * The code under measurement.
+	 */
+	public interface Op {
+		/**
+		 * Runs the operation the given number of times.
+		 *
+		 * @param ops
+		 * @return A value derived from the results, so the work is not eliminated.
+		 */
+		double run(int ops);
+	}
+
+	private static final long BATCH_NANOS = 1_000_000;
+
+	private int warmupIterations = 5;
+	private int measurementIterations = 5;
+	private long iterationNanos = 1_000_000_000L;
+	private Pattern filter;
+	private String out = "bench-results.json";
+
+	private final List<Result> results = new ArrayList<>();
+
+	/**
+	 * Results are folded in here so the JIT cannot discard the measured work.
+	 */
+	private volatile double sink;
+
+	public Bench(String[] args) {
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "--warmup":
+					warmupIterations = Integer.parseInt(args[++i]);
+					break;
+				case "--iterations":
+					measurementIterations = Integer.parseInt(args[++i]);
+					break;
+				case "--time":
+					iterationNanos = Long.parseLong(args[++i]) * 1_000_000L;
+					break;
+				case "--filter":
+					filter = Pattern.compile(args[++i]);
+					break;
+				case "--out":
+					out = args[++i];
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown option: " + args[i]);
+			}
+		}
+	}
+
+	public int getWarmupIterations() {
+		return warmupIterations;
+	}
+
+	public int getMeasurementIterations() {
+		return measurementIterations;
+	}
+
+	/**
+	 * Returns true if a benchmark with this name would be run.
+	 */
+	public boolean accepts(String name) {
+		return filter == null || filter.matcher(name).find();
+	}
+
+	public void run(String name, Op op) {
+		run(name, new LinkedHashMap<String, String>(), op);
+	}
+
+	/**
+	 * Warms up and measures one benchmark.
+	 *
+	 * @param name The benchmark name, e.g. House.getCost.
+	 * @param params The parameters of this run, e.g. catalogSize=1000.
+	 * @param op
+	 */
+	public void run(String name, Map<String, String> params, Op op) {
+		if (!accepts(name)) {
+			return;
+		}
+
+		int batch = calibrate(op);
+
+		for (int i = 0; i < warmupIterations; i++) {
+			iteration(op, batch);
+		}
+
+		double[] scores = new double[measurementIterations];
+		for (int i = 0; i < measurementIterations; i++) {
+			scores[i] = iteration(op, batch);
+		}
+
+		record(name, params, "ns/op", scores);
+	}
+
+	/**
+	 * Keeps the scores of a benchmark measured by the caller, one per
+	 * iteration, e.g. the mean latency of each run of a UI script.
+	 *
+	 * @param name
+	 * @param params
+	 * @param unit e.g. ns/op or B/op.
+	 * @param scores
+	 */
+	public void record(String name, Map<String, String> params, String unit, double[] scores) {
+		Result result = new Result(name, params, unit, scores);
+		results.add(result);
+		System.out.println(result);
+	}
+
+	/**
+	 * Finds a batch size that takes roughly BATCH_NANOS to run, so timer
+	 * overhead does not dominate very short operations.
+	 */
+	private int calibrate(Op op) {
+		int batch = 1;
+		while (true) {
+			long start = System.nanoTime();
+			sink += op.run(batch);
+			long elapsed = System.nanoTime() - start;
+			if (elapsed >= BATCH_NANOS || batch >= (1 << 30)) {
+				return batch;
+			}
+			batch *= 2;
+		}
+	}
+
+	/**
+	 * Runs batches for one iteration and returns the average nanoseconds per operation.
+	 */
+	private double iteration(Op op, int batch) {
+		long ops = 0;
+		long start = System.nanoTime();
+		long elapsed;
+		do {
+			sink += op.run(batch);
+			ops += batch;
+			elapsed = System.nanoTime() - start;
+		} while (elapsed < iterationNanos);
+		return (double) elapsed / ops;
+	}
+
+	/**
+	 * Writes every result collected so far to the output file.
+	 *
+	 * @throws IOException
+	 */
+	public void finish() throws IOException {
+		try (Writer writer = Files.newBufferedWriter(Paths.get(out), StandardCharsets.UTF_8);
+				PrintWriter json = new PrintWriter(writer)) {
+			json.println("[");
+			for (int i = 0; i < results.size(); i++) {
+				results.get(i).writeJson(json);
+				json.println(i < results.size() - 1 ? "," : "");
+			}
+			json.println("]");
+		}
+		System.out.println("Wrote " + results.size() + " results to " + out + " (sink " + (sink != 0) + ")");
+	}
+
+	public static Map<String, String> params(String... keysAndValues) {
+		Map<String, String> params = new LinkedHashMap<>();
+		for (int i = 0; i < keysAndValues.length; i += 2) {
+			params.put(keysAndValues[i], keysAndValues[i + 1]);
+		}
+		return params;
+	}
+
+	private static final class Result {
+		private final String name;
+		private final Map<String, String> params;
+		private final String unit;
+		private final double[] scores;
+		private final double mean;
+		private final double error;
+
+		Result(String name, Map<String, String> params, String unit, double[] scores) {
+			this.name = name;
+			this.params = params;
+			this.unit = unit;
+			this.scores = scores;
+
+			double sum = 0;
+			for (double score : scores) {
+				sum += score;
+			}
+			mean = sum / scores.length;
+
+			double squares = 0;
+			for (double score : scores) {
+				squares += (score - mean) * (score - mean);
+			}
+			// Half-width of a ~99.9% interval, close to what JMH reports.
+			error = scores.length > 1
+				? 3.29 * Math.sqrt(squares / (scores.length - 1)) / Math.sqrt(scores.length)
+				: Double.NaN;
+		}
+
+		void writeJson(PrintWriter json) {
+			json.print("  {\"benchmark\": \"" + name + "\", \"mode\": \"avgt\", \"params\": {");
+			int i = 0;
+			for (Map.Entry<String, String> param : params.entrySet()) {
+				json.print((i++ > 0 ? ", " : "") + "\"" + param.getKey() + "\": \"" + param.getValue() + "\"");
+			}
+			json.print("}, \"primaryMetric\": {\"score\": " + mean
+				+ ", \"scoreError\": " + (Double.isNaN(error) ? "\"NaN\"" : Double.toString(error))
+				+ ", \"scoreUnit\": \"" + unit + "\", \"rawData\": [[");
+			for (int j = 0; j < scores.length; j++) {
+				json.print((j > 0 ? ", " : "") + scores[j]);
+			}
+			json.print("]]}}");
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%-45s %-25s %12.3f +- %8.3f %s", name, params, mean, error, unit);
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package application.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import application.model.House;
+import application.model.TemplateCatalog;
+
+/**
+ * Builds house catalogs of a given size for the benchmarks.
+ */
+public final class Catalogs {
+	/**
+	 * The catalog sizes measured by default, from the shipped templates up to a large inventory.
+	 */
+	public static final int[] SIZES = {7, 1_000, 100_000, 1_000_000};
+
+	private Catalogs() {
+	}
+
+	/**
+	 * Returns the seven templates the application starts with.
+	 */
+	public static List<House> templates() {
+		return TemplateCatalog.createDefaultTemplates();
+	}
+
+	/**
+	 * Returns the templates followed by generated variations of them, size houses in total.
+	 *
+	 * @param size
+	 */
+	public static List<House> generate(int size) {
+		List<House> templates = templates();
+		List<House> houses = new ArrayList<>(Math.max(size, templates.size()));
+		houses.addAll(templates.subList(0, Math.min(size, templates.size())));
+
+		for (int i = houses.size(); i < size; i++) {
+			House plan = copy(templates.get(i % templates.size()));
+			plan.setBedrooms(1 + (i / 7) % 6);
+			plan.setBathrooms(1 + ((i / 42) % 7) * 0.5);
+			plan.setArea(1000 + (i % 5000));
+			houses.add(plan);
+		}
+		return houses;
+	}
+
+	public static House copy(House house) {
+		try {
+			return (House) house.clone();
+		} catch (CloneNotSupportedException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
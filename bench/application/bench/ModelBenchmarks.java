@@ -0,0 +1,458 @@
+package application.bench;
+
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import application.model.House;
+import application.model.HouseSpec;
+import application.model.PlanInventory;
+import application.model.PricingEngine;
+import application.model.PricingRules;
+import application.model.QuoteCache;
+import application.model.StyleRateTable;
+import application.model.TemplateCatalog;
+import application.util.CurrencyFormatter;
+import application.util.PrefixIndex;
+import application.util.Util;
+import application.view.NumericInput;
+import javafx.collections.FXCollections;
+
+/**
+ * Benchmarks for the model and the per-keystroke work of the controllers.
+ *
+ * Run with the application classes and bench on the classpath:
+ * java -cp bin:bench-bin application.bench.ModelBenchmarks --out results.json
+ *
+ * Besides the options understood by Bench, --catalog-sizes takes a comma
+ * separated list of catalog sizes to use instead of Catalogs.SIZES.
+ */
+public final class ModelBenchmarks {
+	private static final int VARIANTS = 1024;
+	private static final int MASK = VARIANTS - 1;
+
+	private ModelBenchmarks() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		int[] catalogSizes = Catalogs.SIZES;
+		String[] benchArgs = args;
+		for (int i = 0; i < args.length - 1; i++) {
+			if (args[i].equals("--catalog-sizes")) {
+				catalogSizes = parseSizes(args[i + 1]);
+				benchArgs = new String[args.length - 2];
+				System.arraycopy(args, 0, benchArgs, 0, i);
+				System.arraycopy(args, i + 2, benchArgs, i, args.length - i - 2);
+				break;
+			}
+		}
+
+		Bench bench = new Bench(benchArgs);
+		pricing(bench);
+		rules(bench);
+		cloning(bench);
+		textFieldFilter(bench);
+		for (int size : catalogSizes) {
+			catalog(bench, size);
+			inventory(bench, size);
+			comparison(bench, size);
+			styleFilter(bench, size);
+		}
+		bench.finish();
+	}
+
+	private static void pricing(Bench bench) {
+		House house = Catalogs.templates().get(0);
+		double[] bedrooms = new double[VARIANTS];
+		double[] bathrooms = new double[VARIANTS];
+		double[] area = new double[VARIANTS];
+		for (int i = 0; i < VARIANTS; i++) {
+			bedrooms[i] = 1 + i % 6;
+			bathrooms[i] = 1 + (i % 7) * 0.5;
+			area[i] = 1000 + (i * 37) % 5000;
+		}
+
+		// The way HouseCustomizeController priced a house before PricingEngine.
+		bench.run("House.getCost(Map)", ops -> {
+			double sum = 0;
+			for (int i = 0; i < ops; i++) {
+				int j = i & MASK;
+				Map<String, Double> customizations = new HashMap<>();
+				customizations.put("numOfBedrooms", bedrooms[j]);
+				customizations.put("numOfBathrooms", bathrooms[j]);
+				customizations.put("area", area[j]);
+				sum += house.getCost(customizations);
+			}
+			return sum;
+		});
+
+		bench.run("House.getCost(double)", ops -> {
+			double sum = 0;
+			for (int i = 0; i < ops; i++) {
+				int j = i & MASK;
+				sum += house.getCost(bedrooms[j], bathrooms[j], area[j]);
+			}
+			return sum;
+		});
+
+		// The way HouseCustomizeController formatted every quote before CurrencyFormatter.
+		bench.run("NumberFormat.getCurrencyInstance.format", ops -> {
+			double sum = 0;
+			for (int i = 0; i < ops; i++) {
+				sum += NumberFormat.getCurrencyInstance().format(house.getCost(bedrooms[i & MASK], 2, 2000)).length();
+			}
+			return sum;
+		});
+
+		StringBuilder text = new StringBuilder(32);
+		bench.run("CurrencyFormatter.appendTo", ops -> {
+			double sum = 0;
+			for (int i = 0; i < ops; i++) {
+				text.setLength(0);
+				sum += CurrencyFormatter.getInstance().appendTo(text, house.getCostCents(bedrooms[i & MASK], 2, 2000)).length();
+			}
+			return sum;
+		});
+
+		QuoteCache cache = new QuoteCache(4096);
+		bench.run("QuoteCache.quote", ops -> {
+			double sum = 0;
+			for (int i = 0; i < ops; i++) {
+				int j = i & MASK;
+				sum += cache.quoteCents(house, bedrooms[j], bathrooms[j], area[j]);
+			}
+			return sum;
+		});
+	}
+
+	// Compare against House.getCost(double), the hard-coded arithmetic.
+	private static void rules(Bench bench) {
+		HouseSpec template = Catalogs.templates().get(0).toSpec();
+		double[] bedrooms = new double[VARIANTS];
+		double[] bathrooms = new double[VARIANTS];
+		double[] area = new double[VARIANTS];
+		for (int i = 0; i < VARIANTS; i++) {
+			bedrooms[i] = 1 + i % 6;
+			bathrooms[i] = 1 + (i % 7) * 0.5;
+			area[i] = 1000 + (i * 37) % 5000;
+		}
+
+		bench.run("PricingRules.STANDARD.quoteCents", ops -> {
+			double sum = 0;
+			for (int i = 0; i < ops; i++) {
+				int j = i & MASK;
+				sum += PricingRules.STANDARD.quoteCents(template, bedrooms[j], bathrooms[j], area[j]);
+			}
+			return sum;
+		});
+
+		if (!bench.accepts("PricingEngine.quoteCents(regional rules)")) {
+			return;
+		}
+		PricingRules.install(PricingRules.compile(String.join("\n",
+			"area above 3000 multiply 1.5",
+			"area above 5000 add 12.50 each",
+			"bedrooms above template add 950 each",
+			"bathrooms above template add 600 each",
+			"add 1500",
+			"tax 6.25%")));
+		try {
+			bench.run("PricingEngine.quoteCents(regional rules)", ops -> {
+				double sum = 0;
+				for (int i = 0; i < ops; i++) {
+					int j = i & MASK;
+					sum += PricingEngine.quoteCents(template, bedrooms[j], bathrooms[j], area[j]);
+				}
+				return sum;
+			});
+		} finally {
+			PricingRules.install(PricingRules.STANDARD);
+		}
+	}
+
+	private static void cloning(Bench bench) {
+		List<House> templates = Catalogs.templates();
+		bench.run("House.clone", ops -> {
+			double sum = 0;
+			for (int i = 0; i < ops; i++) {
+				sum += Catalogs.copy(templates.get(i % templates.size())).getArea();
+			}
+			return sum;
+		});
+	}
+
+	private static void textFieldFilter(Bench bench) {
+		String[] inputs = {"2000", "20a0", "1.5", "3..", "", "12x5.5", "4500", "."};
+
+		bench.run("Util.countOccurrences", ops -> {
+			double sum = 0;
+			for (int i = 0; i < ops; i++) {
+				sum += Util.countOccurrences(inputs[i & 7], '.');
+			}
+			return sum;
+		});
+
+		// The validation HouseCustomizeController.handleTextFieldChange runs on every change.
+		bench.run("HouseCustomizeController.handleTextFieldChange.regex", ops -> {
+			double sum = 0;
+			for (int i = 0; i < ops; i++) {
+				String newValue = inputs[i & 7];
+				if (!newValue.matches("\\d*")) {
+					newValue = newValue.replaceAll("[^\\d.]", "");
+				}
+				sum += newValue.length();
+			}
+			return sum;
+		});
+
+		// The check and parse NumericInput's filter makes instead, on input it let through.
+		String[] accepted = {"2000", "200", "1.5", "3.", "", "125.5", "4500", "."};
+		bench.run("NumericInput.filter", ops -> {
+			double sum = 0;
+			for (int i = 0; i < ops; i++) {
+				String newValue = accepted[i & 7];
+				if (Util.countOccurrences(newValue, '.') < 2) {
+					double value = NumericInput.parse(newValue);
+					sum += value == value ? value : 0;
+				}
+			}
+			return sum;
+		});
+	}
+
+	// One keystroke in the style picker, typing a style name from its first character.
+	private static void styleFilter(Bench bench, int size) {
+		if (!bench.accepts("StylePicker.filter") && !bench.accepts("StylePicker.filter.linear")) {
+			return;
+		}
+		// Style catalogs stay far smaller than plan inventories.
+		if (size > 100_000) {
+			return;
+		}
+
+		List<House> templates = Catalogs.templates();
+		List<String> styles = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			styles.add(templates.get(i % templates.size()).getStyle() + " " + i);
+		}
+		String typed = styles.get(size - 1);
+		Map<String, String> params = Bench.params("catalogSize", Integer.toString(size));
+
+		PrefixIndex<String> index = new PrefixIndex<>(styles, style -> style);
+		bench.run("StylePicker.filter", params, new Bench.Op() {
+			private PrefixIndex.Node node;
+
+			@Override
+			public double run(int ops) {
+				double sum = 0;
+				for (int i = 0; i < ops; i++) {
+					int length = i % typed.length();
+					node = length == 0 ? index.getRoot() : node;
+					node = index.next(node, typed.charAt(length));
+					sum += index.matches(node).size();
+				}
+				return sum;
+			}
+		});
+
+		// Filtering the whole list again on every keystroke.
+		bench.run("StylePicker.filter.linear", params, ops -> {
+			double sum = 0;
+			for (int i = 0; i < ops; i++) {
+				int length = i % typed.length() + 1;
+				for (String style : styles) {
+					if (style.regionMatches(true, 0, typed, 0, length)) {
+						sum++;
+					}
+				}
+			}
+			return sum;
+		});
+	}
+
+	private static void catalog(Bench bench, int size) {
+		if (!bench.accepts("House.compareTo") && !bench.accepts("HouseCustomizeController.houseIsTemplate")
+				&& !bench.accepts("TemplateCatalog.contains")) {
+			return;
+		}
+
+		List<House> houses = Catalogs.generate(size);
+		Map<String, String> params = Bench.params("catalogSize", Integer.toString(size));
+
+		bench.run("House.compareTo", params, ops -> {
+			double sum = 0;
+			int n = houses.size();
+			for (int i = 0; i < ops; i++) {
+				sum += houses.get(i % n).compareTo(houses.get((i * 31 + 7) % n));
+			}
+			return sum;
+		});
+
+		House template = houses.get(houses.size() - 1 - (houses.size() - 1) % 7);
+		House custom = Catalogs.copy(houses.get(0));
+		custom.setArea(2001.5);
+
+		bench.run("HouseCustomizeController.houseIsTemplate", Bench.params(
+				"catalogSize", Integer.toString(size), "query", "template"),
+			ops -> {
+				double sum = 0;
+				for (int i = 0; i < ops; i++) {
+					sum += houseIsTemplate(template, houses) ? 1 : 0;
+				}
+				return sum;
+			});
+
+		bench.run("HouseCustomizeController.houseIsTemplate", Bench.params(
+				"catalogSize", Integer.toString(size), "query", "custom"),
+			ops -> {
+				double sum = 0;
+				for (int i = 0; i < ops; i++) {
+					sum += houseIsTemplate(custom, houses) ? 1 : 0;
+				}
+				return sum;
+			});
+
+		TemplateCatalog catalog = new TemplateCatalog(FXCollections.observableArrayList(houses));
+
+		bench.run("TemplateCatalog.contains", Bench.params(
+				"catalogSize", Integer.toString(size), "query", "template"),
+			ops -> {
+				double sum = 0;
+				for (int i = 0; i < ops; i++) {
+					sum += catalog.contains(template) ? 1 : 0;
+				}
+				return sum;
+			});
+
+		bench.run("TemplateCatalog.contains", Bench.params(
+				"catalogSize", Integer.toString(size), "query", "custom"),
+			ops -> {
+				double sum = 0;
+				for (int i = 0; i < ops; i++) {
+					sum += catalog.contains(custom) ? 1 : 0;
+				}
+				return sum;
+			});
+	}
+
+	private static void inventory(Bench bench, int size) {
+		if (!bench.accepts("PlanInventory.search") && !bench.accepts("PlanInventory.cheapest")) {
+			return;
+		}
+
+		PlanInventory inventory = PlanInventory.of(Catalogs.generate(size));
+		StyleRateTable rates = StyleRateTable.of(Catalogs.templates());
+		String[] styles = inventory.getStyles().toArray(new String[0]);
+
+		// The overview's search: one style, an area range and exact rooms.
+		bench.run("PlanInventory.search", Bench.params(
+				"catalogSize", Integer.toString(size), "query", "overview"),
+			ops -> {
+				double sum = 0;
+				for (int i = 0; i < ops; i++) {
+					double area = 1000 + (i * 37) % 4500;
+					sum += inventory.search(new PlanInventory.Query()
+						.style(styles[i % styles.length])
+						.area(area, area + 500)
+						.bedrooms(1 + i % 6, 1 + i % 6)
+						.bathrooms(2, 2)).size();
+				}
+				return sum;
+			});
+
+		bench.run("PlanInventory.search", Bench.params(
+				"catalogSize", Integer.toString(size), "query", "area"),
+			ops -> {
+				double sum = 0;
+				for (int i = 0; i < ops; i++) {
+					double area = 1000 + (i * 37) % 4500;
+					sum += inventory.search(new PlanInventory.Query().area(area, area + 100)).size();
+				}
+				return sum;
+			});
+
+		// The overview's Cheapest: any style, a wide area range and exact rooms.
+		bench.run("PlanInventory.cheapest", Bench.params(
+				"catalogSize", Integer.toString(size), "query", "overview"),
+			ops -> {
+				double sum = 0;
+				for (int i = 0; i < ops; i++) {
+					sum += inventory.cheapest(new PlanInventory.Query()
+						.area(1000, 6000)
+						.bedrooms(1 + i % 6, 1 + i % 6)
+						.bathrooms(2, 2), rates, 100).size();
+				}
+				return sum;
+			});
+
+		// Every plan ranked, the worst case for the heap.
+		bench.run("PlanInventory.cheapest", Bench.params(
+				"catalogSize", Integer.toString(size), "query", "all"),
+			ops -> {
+				double sum = 0;
+				for (int i = 0; i < ops; i++) {
+					sum += inventory.cheapest(new PlanInventory.Query(), rates, 100).size();
+				}
+				return sum;
+			});
+	}
+
+	private static void comparison(Bench bench, int size) {
+		if (!bench.accepts("StyleComparison.House.getCostCents")
+				&& !bench.accepts("StyleComparison.StyleRateTable.quoteCents")) {
+			return;
+		}
+
+		List<House> houses = Catalogs.generate(size);
+		StyleRateTable table = StyleRateTable.of(houses);
+		long[] costs = new long[size];
+
+		// Each op prices one set of customizations in every style.
+		bench.run("StyleComparison.House.getCostCents", Bench.params("catalogSize", Integer.toString(size)),
+			ops -> {
+				double sum = 0;
+				for (int i = 0; i < ops; i++) {
+					double bedrooms = 1 + i % 6;
+					double area = 1000 + (i * 37) % 5000;
+					for (int j = 0; j < houses.size(); j++) {
+						costs[j] = houses.get(j).getCostCents(bedrooms, 2, area);
+					}
+					sum += costs[i % size];
+				}
+				return sum;
+			});
+
+		bench.run("StyleComparison.StyleRateTable.quoteCents", Bench.params("catalogSize", Integer.toString(size)),
+			ops -> {
+				double sum = 0;
+				for (int i = 0; i < ops; i++) {
+					table.quoteCents(1 + i % 6, 2, 1000 + (i * 37) % 5000, costs);
+					sum += costs[i % size];
+				}
+				return sum;
+			});
+	}
+
+	/**
+	 * The linear scan HouseCustomizeController.houseIsTemplate made before TemplateCatalog.
+	 */
+	private static boolean houseIsTemplate(House house, List<House> houses) {
+		for (House template : houses) {
+			if (house.compareTo(template) == 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static int[] parseSizes(String sizes) {
+		String[] parts = sizes.split(",");
+		int[] result = new int[parts.length];
+		for (int i = 0; i < parts.length; i++) {
+			result[i] = Integer.parseInt(parts[i].trim());
+		}
+		return result;
+	}
+}
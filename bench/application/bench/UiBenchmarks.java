@@ -0,0 +1,707 @@
+package application.bench;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.javafx.perf.PerformanceTracker;
+
+import application.Main;
+import application.bench.UiScript.Step;
+import application.model.House;
+import application.util.LatencyHistogram;
+import application.view.StylePicker;
+import javafx.application.Application;
+import javafx.application.Platform;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
+import javafx.collections.ObservableList;
+import javafx.event.Event;
+import javafx.event.EventType;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.ChoiceBox;
+import javafx.scene.control.ComboBox;
+import javafx.scene.control.Labeled;
+import javafx.scene.control.ListView;
+import javafx.scene.control.SelectionModel;
+import javafx.scene.control.TextInputControl;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.input.PickResult;
+import javafx.stage.Stage;
+import javafx.stage.Window;
+
+/**
+ * Measures how quickly the overview and the customize dialog react to
+ * input, by replaying UI scripts (see UiScript) against the running
+ * application, with no display.
+ *
+ * Run with Monocle on the classpath, e.g. org.testfx:openjfx-monocle
+ * 8u76-b04 on Java 8:
+ * java -cp bin:bench-bin:openjfx-monocle.jar application.bench.UiBenchmarks --out ui-results.json
+ *
+ * Monocle's headless glass platform and the software renderer are used
+ * unless the glass.platform, monocle.platform or prism.order system
+ * properties are set, so the views are laid out and drawn as on a desktop.
+ * Receipts and orders go to a temporary folder.
+ *
+ * The events of each input are fired at the nodes on the FX thread. The
+ * harness measures the time from firing them to the frame drawn with their
+ * result, and the bytes every thread allocated meanwhile; each pulse is
+ * timed from its start on the FX thread until its frame is drawn. Every
+ * script is run --warmup times, then --iterations times measured, and the
+ * results are written as Bench results named UI.script. The run exits with 1
+ * when the 99th percentile input-to-render latency of any script passes
+ * --max-latency milliseconds.
+ *
+ * Besides the options understood by Bench: --script FILE (repeatable, by
+ * default every .txt file in bench/scripts), --max-latency MILLIS (100) and
+ * --display to use the desktop's glass platform instead of Monocle.
+ */
+public final class UiBenchmarks {
+	private static final Path SCRIPTS = Paths.get("bench", "scripts");
+	private static final long STEP_TIMEOUT_NANOS = 10_000_000_000L;
+	// How long an input waits for a frame before it is taken to have drawn nothing.
+	private static final long IDLE_NANOS = 50_000_000L;
+
+	private static final CompletableFuture<Main> STARTED = new CompletableFuture<>();
+
+	/**
+	 * Starts the application and hands it to the harness.
+	 */
+	public static final class Harness extends Application {
+		private Main main;
+
+		@Override
+		public void start(Stage primaryStage) {
+			try {
+				main = new Main();
+				main.start(primaryStage);
+				STARTED.complete(main);
+			} catch (RuntimeException | Error e) {
+				STARTED.completeExceptionally(e);
+				throw e;
+			}
+		}
+
+		@Override
+		public void stop() throws IOException {
+			if (main != null) {
+				main.stop();
+			}
+		}
+	}
+
+	/**
+	 * An input being measured. Guarded by lock once it is started.
+	 */
+	private static final class Pending {
+		private final String where;
+		private final boolean awaitsFrame;
+		// The scene whose frame ends the input.
+		private Scene scene;
+		private long start;
+		private long startAllocated;
+		// When the result was there to draw, or 0.
+		private long readyAt;
+		private long readyAllocated;
+		private long end;
+		private long endAllocated;
+		private RuntimeException failure;
+
+		Pending(String where, boolean awaitsFrame) {
+			this.where = where;
+			this.awaitsFrame = awaitsFrame;
+		}
+	}
+
+	/**
+	 * Reports the pulses and frames of one scene.
+	 */
+	private final class FrameProbe {
+		private final Scene scene;
+		// When the scene's latest pulse started, before CSS and layout.
+		private volatile long pulseStart;
+
+		FrameProbe(Scene scene) {
+			this.scene = scene;
+			PerformanceTracker tracker = PerformanceTracker.getSceneTracker(scene);
+			tracker.setOnPulse(() -> pulseStart = System.nanoTime());
+			tracker.setOnRenderedFrameTask(() -> frameRendered(this));
+		}
+	}
+
+	private final Main main;
+	private final com.sun.management.ThreadMXBean threads;
+	private final Object lock = new Object();
+	// Only used on the FX thread.
+	private final Map<Scene, FrameProbe> probes = new HashMap<>();
+
+	private Pending pending;
+	private boolean measuring;
+	private final LatencyHistogram pulseTimes = new LatencyHistogram();
+
+	private UiBenchmarks(Main main) {
+		this.main = main;
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (bean instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+			threads = (com.sun.management.ThreadMXBean) bean;
+			threads.setThreadAllocatedMemoryEnabled(true);
+		} else {
+			threads = null;
+		}
+	}
+
+	/**
+	 * Watches the overview, and opens and closes the customize dialog once
+	 * so that its window exists to watch. The dialog's stage and scene are
+	 * reused by every later open.
+	 */
+	private void start() throws Exception {
+		onFxThread(() -> probe(main.getPrimaryStage().getScene()));
+
+		House house = Catalogs.copy(main.getHouses().get(0));
+		Platform.runLater(() -> main.showHouseCustomizeDialog(house));
+		long deadline = System.nanoTime() + STEP_TIMEOUT_NANOS;
+		while (!onFxThread(() -> main.getCustomizeDialogStage() != null && main.getCustomizeDialogStage().isShowing())) {
+			if (System.nanoTime() > deadline) {
+				throw new IllegalStateException("The customize dialog did not open");
+			}
+			Thread.sleep(10);
+		}
+		onFxThread(() -> {
+			Scene scene = main.getCustomizeDialogStage().getScene();
+			probe(scene);
+			((Button) scene.lookup("#closeButton")).fire();
+			return null;
+		});
+	}
+
+	/**
+	 * Runs a script the warmup and measured number of times.
+	 *
+	 * @return false if its latency passed the limit.
+	 */
+	private boolean run(Bench bench, UiScript script, long maxLatencyNanos) throws Exception {
+		String name = "UI." + script.getName();
+		for (int i = 0; i < bench.getWarmupIterations(); i++) {
+			replay(script, null, null);
+		}
+
+		LatencyHistogram latencies = new LatencyHistogram();
+		LatencyHistogram allocations = new LatencyHistogram();
+		int iterations = bench.getMeasurementIterations();
+		double[] latencyScores = new double[iterations];
+		double[] allocationScores = new double[iterations];
+		double[] pulseScores = new double[iterations];
+		LatencyHistogram pulses = new LatencyHistogram();
+		for (int i = 0; i < iterations; i++) {
+			LatencyHistogram iterationLatencies = new LatencyHistogram();
+			LatencyHistogram iterationAllocations = new LatencyHistogram();
+			synchronized (lock) {
+				pulseTimes.reset();
+				measuring = true;
+			}
+			try {
+				replay(script, iterationLatencies, iterationAllocations);
+			} finally {
+				synchronized (lock) {
+					measuring = false;
+					pulses.merge(pulseTimes);
+					pulseScores[i] = pulseTimes.getMean();
+				}
+			}
+			latencies.merge(iterationLatencies);
+			allocations.merge(iterationAllocations);
+			latencyScores[i] = iterationLatencies.getMean();
+			allocationScores[i] = iterationAllocations.getMean();
+		}
+
+		Map<String, String> params = Bench.params("inputs", Long.toString(latencies.getCount() / iterations));
+		bench.record(name + ".inputToRender", params, "ns/op", latencyScores);
+		bench.record(name + ".pulse", params, "ns/op", pulseScores);
+		if (threads != null) {
+			bench.record(name + ".allocation", params, "B/op", allocationScores);
+		}
+		System.out.println("  input-to-render " + latencies.summary("ms", 1e6));
+		System.out.println("  pulse           " + pulses.summary("ms", 1e6));
+		if (threads != null) {
+			System.out.println("  allocation      " + allocations.summary("KB", 1024));
+		}
+
+		long p99 = latencies.getValueAtPercentile(99);
+		if (p99 > maxLatencyNanos) {
+			System.out.printf("FAILED %s: p99 input-to-render %.1f ms is over %.1f ms%n",
+				name, p99 / 1e6, maxLatencyNanos / 1e6);
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Replays every step of a script once, starting in the overview.
+	 *
+	 * @param latencies Receives the latency of each input, or null.
+	 * @param allocations Receives the bytes allocated by each input, or null.
+	 */
+	private void replay(UiScript script, LatencyHistogram latencies, LatencyHistogram allocations)
+			throws InterruptedException {
+		String window = UiScript.OVERVIEW;
+		for (Step step : script.getSteps()) {
+			if (step.getCommand() == UiScript.Command.WINDOW) {
+				window = step.getTarget();
+				continue;
+			}
+			String where = "UI script " + script.getName() + " line " + step.getLine();
+			if (step.getCommand() == UiScript.Command.TYPE) {
+				// Each character is an input of its own.
+				for (char c : step.getArgument().toCharArray()) {
+					input(where, step, window, String.valueOf(c), latencies, allocations);
+				}
+			} else {
+				input(where, step, window, step.getArgument(), latencies, allocations);
+			}
+		}
+	}
+
+	/**
+	 * Performs one input on the FX thread and waits until its result is drawn.
+	 */
+	private void input(String where, Step step, String window, String argument,
+			LatencyHistogram latencies, LatencyHistogram allocations) throws InterruptedException {
+		Pending input = new Pending(where, step.getAwaitNode() != null || step.getAwaitWindow() != null);
+		synchronized (lock) {
+			pending = input;
+		}
+		Platform.runLater(() -> perform(input, step, window, argument));
+
+		long deadline = System.nanoTime() + STEP_TIMEOUT_NANOS;
+		synchronized (lock) {
+			try {
+				while (input.end == 0 && input.failure == null) {
+					long now = System.nanoTime();
+					if (!input.awaitsFrame && input.readyAt != 0 && now - input.readyAt >= IDLE_NANOS) {
+						// The input changed nothing on screen; time it to its handlers.
+						input.end = input.readyAt;
+						input.endAllocated = input.readyAllocated;
+						break;
+					}
+					if (now >= deadline) {
+						throw new IllegalStateException(where + ": " + step + " was not drawn within "
+							+ STEP_TIMEOUT_NANOS / 1_000_000_000L + " s");
+					}
+					lock.wait(Math.max(1, Math.min(IDLE_NANOS, deadline - now) / 1_000_000));
+				}
+			} finally {
+				pending = null;
+			}
+			if (input.failure != null) {
+				throw input.failure;
+			}
+		}
+		if (latencies != null) {
+			latencies.record(input.end - input.start);
+		}
+		if (allocations != null && threads != null) {
+			allocations.record(input.endAllocated - input.startAllocated);
+		}
+	}
+
+	/**
+	 * Fires the events of one input. Runs on the FX thread, and may not
+	 * return until a dialog the input opens is closed.
+	 */
+	private void perform(Pending input, Step step, String window, String argument) {
+		boolean ready;
+		try {
+			Scene scene = sceneOf(window);
+			probe(scene);
+			Node target = null;
+			if (step.getTarget() != null) {
+				target = scene.lookup(step.getTarget());
+				if (target == null) {
+					throw new IllegalArgumentException("No " + step.getTarget() + " in the " + window + " window");
+				}
+			}
+
+			Scene awaited = scene;
+			if (step.getAwaitWindow() != null) {
+				awaited = stageOf(step.getAwaitWindow()).getScene();
+				probe(awaited);
+			}
+			if (step.getAwaitNode() != null) {
+				textOf(awaited.lookup(step.getAwaitNode()), step.getAwaitNode()).addListener(new ChangeListener<String>() {
+					@Override
+					public void changed(ObservableValue<? extends String> observable, String oldValue, String newValue) {
+						observable.removeListener(this);
+						ready(input);
+					}
+				});
+			}
+
+			synchronized (lock) {
+				input.scene = awaited;
+				input.startAllocated = allocatedBytes();
+				input.start = System.nanoTime();
+				if (step.getAwaitWindow() != null && step.getAwaitNode() == null) {
+					// The window's first frame is drawn while the input opens it.
+					input.readyAt = input.start;
+				}
+			}
+			ready = step.getAwaitNode() == null && step.getAwaitWindow() == null;
+			fire(step, scene, target, argument);
+		} catch (RuntimeException e) {
+			synchronized (lock) {
+				input.failure = new IllegalStateException(input.where + ": " + e.getMessage(), e);
+				lock.notifyAll();
+			}
+			return;
+		}
+		if (ready) {
+			ready(input);
+		}
+	}
+
+	/**
+	 * Notes that the result of an input is there to draw.
+	 */
+	private void ready(Pending input) {
+		synchronized (lock) {
+			if (input.readyAt == 0) {
+				input.readyAllocated = allocatedBytes();
+				input.readyAt = System.nanoTime();
+				lock.notifyAll();
+			}
+		}
+	}
+
+	/**
+	 * Called when a frame of a watched scene has been drawn, on the thread
+	 * that drew it.
+	 */
+	private void frameRendered(FrameProbe probe) {
+		long now = System.nanoTime();
+		long pulseStart = probe.pulseStart;
+		synchronized (lock) {
+			if (measuring && pulseStart != 0) {
+				pulseTimes.record(now - pulseStart);
+			}
+			Pending input = pending;
+			if (input != null && input.end == 0 && input.scene == probe.scene
+					&& input.readyAt != 0 && pulseStart >= input.readyAt) {
+				input.end = now;
+				input.endAllocated = allocatedBytes();
+				lock.notifyAll();
+			}
+		}
+	}
+
+	private void fire(Step step, Scene scene, Node target, String argument) {
+		switch (step.getCommand()) {
+			case SELECT:
+				select(target, step.getTarget(), argument);
+				break;
+			case CLICK:
+				click(scene, target, step.getTarget(), Integer.parseInt(argument));
+				break;
+			case TYPE: {
+				char c = argument.charAt(0);
+				Node focused = focusOwner(scene);
+				KeyCode code = keyCodeOf(c);
+				Event.fireEvent(focused, key(KeyEvent.KEY_PRESSED, KeyEvent.CHAR_UNDEFINED, code));
+				Event.fireEvent(focused, key(KeyEvent.KEY_TYPED, argument, KeyCode.UNDEFINED));
+				Event.fireEvent(focused, key(KeyEvent.KEY_RELEASED, KeyEvent.CHAR_UNDEFINED, code));
+				break;
+			}
+			case PRESS: {
+				Node focused = focusOwner(scene);
+				KeyCode code = KeyCode.valueOf(argument);
+				Event.fireEvent(focused, key(KeyEvent.KEY_PRESSED, KeyEvent.CHAR_UNDEFINED, code));
+				Event.fireEvent(focused, key(KeyEvent.KEY_RELEASED, KeyEvent.CHAR_UNDEFINED, code));
+				break;
+			}
+			default:
+				throw new AssertionError(step.getCommand());
+		}
+	}
+
+	/**
+	 * Selects the item shown as the given text, as picking it from the list would.
+	 */
+	private static void select(Node node, String selector, String text) {
+		if (node instanceof StylePicker) {
+			selectValue((StylePicker<?>) node, selector, text);
+			return;
+		}
+		ObservableList<?> items;
+		SelectionModel<?> selection;
+		if (node instanceof ChoiceBox) {
+			items = ((ChoiceBox<?>) node).getItems();
+			selection = ((ChoiceBox<?>) node).getSelectionModel();
+		} else if (node instanceof ComboBox) {
+			items = ((ComboBox<?>) node).getItems();
+			selection = ((ComboBox<?>) node).getSelectionModel();
+		} else if (node instanceof ListView) {
+			items = ((ListView<?>) node).getItems();
+			selection = ((ListView<?>) node).getSelectionModel();
+		} else {
+			throw new IllegalArgumentException(selector + " has no items to select");
+		}
+		if (items != null) {
+			for (int i = 0; i < items.size(); i++) {
+				if (String.valueOf(items.get(i)).equals(text)) {
+					selection.select(i);
+					return;
+				}
+			}
+		}
+		throw new IllegalArgumentException("No item \"" + text + "\" in " + selector);
+	}
+
+	private static <T> void selectValue(StylePicker<T> picker, String selector, String text) {
+		if (picker.getItems() != null) {
+			for (T item : picker.getItems()) {
+				if (String.valueOf(item).equals(text)) {
+					picker.setValue(item);
+					return;
+				}
+			}
+		}
+		throw new IllegalArgumentException("No item \"" + text + "\" in " + selector);
+	}
+
+	/**
+	 * Presses and releases the primary button over the middle of the node.
+	 */
+	private static void click(Scene scene, Node node, String selector, int count) {
+		if (node.isDisabled() || !node.isVisible()) {
+			throw new IllegalArgumentException(selector + " cannot be clicked");
+		}
+		Bounds bounds = node.localToScene(node.getBoundsInLocal());
+		double x = (bounds.getMinX() + bounds.getMaxX()) / 2;
+		double y = (bounds.getMinY() + bounds.getMaxY()) / 2;
+		Window window = scene.getWindow();
+		double screenX = window.getX() + scene.getX() + x;
+		double screenY = window.getY() + scene.getY() + y;
+		PickResult pick = new PickResult(node, x, y);
+		for (int clicks = 1; clicks <= count; clicks++) {
+			Event.fireEvent(node, mouse(MouseEvent.MOUSE_PRESSED, x, y, screenX, screenY, clicks, true, pick));
+			Event.fireEvent(node, mouse(MouseEvent.MOUSE_RELEASED, x, y, screenX, screenY, clicks, false, pick));
+			Event.fireEvent(node, mouse(MouseEvent.MOUSE_CLICKED, x, y, screenX, screenY, clicks, false, pick));
+		}
+	}
+
+	private static MouseEvent mouse(EventType<MouseEvent> type, double x, double y, double screenX, double screenY,
+			int clicks, boolean down, PickResult pick) {
+		return new MouseEvent(type, x, y, screenX, screenY, MouseButton.PRIMARY, clicks,
+			false, false, false, false, down, false, false, false, false, true, pick);
+	}
+
+	private static KeyEvent key(EventType<KeyEvent> type, String character, KeyCode code) {
+		return new KeyEvent(type, character, type == KeyEvent.KEY_TYPED ? character : "", code,
+			false, false, false, false);
+	}
+
+	private static KeyCode keyCodeOf(char c) {
+		if (c >= '0' && c <= '9') {
+			return KeyCode.valueOf("DIGIT" + c);
+		}
+		if (Character.isLetter(c) && c < 128) {
+			return KeyCode.valueOf(String.valueOf(Character.toUpperCase(c)));
+		}
+		switch (c) {
+			case '.':
+				return KeyCode.PERIOD;
+			case ' ':
+				return KeyCode.SPACE;
+			case '-':
+				return KeyCode.MINUS;
+			default:
+				return KeyCode.UNDEFINED;
+		}
+	}
+
+	private static Node focusOwner(Scene scene) {
+		Node focused = scene.getFocusOwner();
+		if (focused == null) {
+			throw new IllegalArgumentException("Nothing has the focus to type into");
+		}
+		return focused;
+	}
+
+	private static ObservableValue<String> textOf(Node node, String selector) {
+		if (node instanceof Labeled) {
+			return ((Labeled) node).textProperty();
+		}
+		if (node instanceof TextInputControl) {
+			return ((TextInputControl) node).textProperty();
+		}
+		throw new IllegalArgumentException(selector + " has no text to wait for");
+	}
+
+	private Stage stageOf(String window) {
+		Stage stage = window.equals(UiScript.CUSTOMIZE) ? main.getCustomizeDialogStage() : main.getPrimaryStage();
+		if (stage == null) {
+			throw new IllegalStateException("The " + window + " window was never opened");
+		}
+		return stage;
+	}
+
+	private Scene sceneOf(String window) {
+		Stage stage = stageOf(window);
+		if (!stage.isShowing()) {
+			throw new IllegalArgumentException("The " + window + " window is not open");
+		}
+		return stage.getScene();
+	}
+
+	private void probe(Scene scene) {
+		if (!probes.containsKey(scene)) {
+			probes.put(scene, new FrameProbe(scene));
+		}
+	}
+
+	/**
+	 * Returns the bytes allocated so far by the live threads, or 0 if the
+	 * JVM does not count them.
+	 */
+	private long allocatedBytes() {
+		if (threads == null) {
+			return 0;
+		}
+		long total = 0;
+		for (long bytes : threads.getThreadAllocatedBytes(threads.getAllThreadIds())) {
+			if (bytes > 0) {
+				total += bytes;
+			}
+		}
+		return total;
+	}
+
+	private static <T> T onFxThread(Callable<T> task) throws Exception {
+		FutureTask<T> future = new FutureTask<>(task);
+		Platform.runLater(future);
+		return future.get(STEP_TIMEOUT_NANOS, TimeUnit.NANOSECONDS);
+	}
+
+	private static void onFxThread(Runnable task) throws Exception {
+		onFxThread(() -> {
+			task.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Selects Monocle's headless platform and the software renderer, unless
+	 * the properties are already set.
+	 */
+	private static void useMonocle() {
+		setDefault("glass.platform", "Monocle");
+		setDefault("monocle.platform", "Headless");
+		setDefault("prism.order", "sw");
+		setDefault("java.awt.headless", "true");
+		if (System.getProperty("glass.platform").equals("Monocle")) {
+			try {
+				Class.forName("com.sun.glass.ui.monocle.MonoclePlatformFactory");
+			} catch (ClassNotFoundException e) {
+				System.err.println("Monocle is not on the classpath. Add openjfx-monocle, or use --display.");
+				System.exit(2);
+			}
+		}
+	}
+
+	private static void setDefault(String key, String value) {
+		if (System.getProperty(key) == null) {
+			System.setProperty(key, value);
+		}
+	}
+
+	private static List<Path> defaultScripts() throws IOException {
+		List<Path> scripts = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(SCRIPTS, "*.txt")) {
+			for (Path script : stream) {
+				scripts.add(script);
+			}
+		}
+		scripts.sort(null);
+		return scripts;
+	}
+
+	public static void main(String[] args) throws Exception {
+		List<Path> scriptFiles = new ArrayList<>();
+		double maxLatencyMillis = 100;
+		boolean display = false;
+		List<String> benchArgs = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			switch (args[i]) {
+				case "--script":
+					scriptFiles.add(Paths.get(args[++i]));
+					break;
+				case "--max-latency":
+					maxLatencyMillis = Double.parseDouble(args[++i]);
+					break;
+				case "--display":
+					display = true;
+					break;
+				default:
+					benchArgs.add(args[i]);
+			}
+		}
+		Bench bench = new Bench(benchArgs.toArray(new String[0]));
+		if (scriptFiles.isEmpty()) {
+			scriptFiles = defaultScripts();
+		}
+		List<UiScript> scripts = new ArrayList<>();
+		for (Path file : scriptFiles) {
+			UiScript script = UiScript.load(file);
+			if (bench.accepts("UI." + script.getName())) {
+				scripts.add(script);
+			}
+		}
+
+		if (!display) {
+			useMonocle();
+		}
+		// Keep the receipts and orders of the run out of the user's own.
+		Path data = Files.createTempDirectory("midwest-ui-bench");
+		setDefault("midwest.receipts", data.resolve("receipts.journal").toString());
+		setDefault("midwest.orders", data.resolve("orders").toString());
+
+		Thread launcher = new Thread(() -> Application.launch(Harness.class), "JavaFX launcher");
+		launcher.setDaemon(true);
+		launcher.start();
+		Main main = STARTED.get(30, TimeUnit.SECONDS);
+
+		boolean passed = true;
+		try {
+			UiBenchmarks harness = new UiBenchmarks(main);
+			harness.start();
+			for (UiScript script : scripts) {
+				System.out.println("UI." + script.getName());
+				passed &= harness.run(bench, script, (long) (maxLatencyMillis * 1e6));
+			}
+		} finally {
+			Platform.exit();
+			launcher.join(10_000);
+		}
+		bench.finish();
+		System.exit(passed ? 0 : 1);
+	}
+}
@@ -0,0 +1,250 @@
+package application.bench;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javafx.scene.input.KeyCode;
+
+/**
+ * A recorded script of what a user does in the views, replayed by
+ * UiBenchmarks.
+ *
+ * One step per line; blank lines and lines starting with # are skipped:
+ *
+ * <pre>
+ * window overview|customize        look up nodes in that window from now on
+ * select #id TEXT                  select the item shown as TEXT in a StylePicker, ChoiceBox, ComboBox or ListView
+ * click #id [COUNT]                press and release the mouse over the node, e.g. 2 for a double-click
+ * type TEXT                        type each character into the focused node, one step per character
+ * press KEY                        press and release a key, e.g. ENTER or BACK_SPACE, in the focused node
+ * </pre>
+ *
+ * Every step but window is an input whose latency is measured, by default
+ * until the first frame drawn after its handlers return. An input that
+ * starts work in the background names what shows the result instead:
+ * "-> #id" waits for the text of that node to change and then for the frame
+ * showing it, "-> window customize" for the first frame of that window, and
+ * "-> window customize #id" for the frame of that window showing the node's
+ * new text.
+ */
+public final class UiScript {
+	public enum Command {
+		WINDOW, SELECT, CLICK, TYPE, PRESS
+	}
+
+	/**
+	 * One line of a script.
+	 */
+	public static final class Step {
+		private final int line;
+		private final Command command;
+		private final String target;
+		private final String argument;
+		private final String awaitNode;
+		private final String awaitWindow;
+
+		Step(int line, Command command, String target, String argument, String awaitNode, String awaitWindow) {
+			this.line = line;
+			this.command = command;
+			this.target = target;
+			this.argument = argument;
+			this.awaitNode = awaitNode;
+			this.awaitWindow = awaitWindow;
+		}
+
+		public int getLine() {
+			return line;
+		}
+
+		public Command getCommand() {
+			return command;
+		}
+
+		/**
+		 * Returns the node selector, e.g. #searchButton, or the window name, or null.
+		 */
+		public String getTarget() {
+			return target;
+		}
+
+		/**
+		 * Returns the text to select or type, the key to press or the click count, or null.
+		 */
+		public String getArgument() {
+			return argument;
+		}
+
+		/**
+		 * Returns the selector of the node whose text change ends this input,
+		 * in the awaited window if there is one, or null.
+		 */
+		public String getAwaitNode() {
+			return awaitNode;
+		}
+
+		/**
+		 * Returns the window whose frame ends this input, or null.
+		 */
+		public String getAwaitWindow() {
+			return awaitWindow;
+		}
+
+		@Override
+		public String toString() {
+			return line + ": " + command.name().toLowerCase()
+				+ (target != null ? " " + target : "")
+				+ (argument != null ? " " + argument : "");
+		}
+	}
+
+	public static final String OVERVIEW = "overview";
+	public static final String CUSTOMIZE = "customize";
+
+	private final String name;
+	private final List<Step> steps;
+
+	private UiScript(String name, List<Step> steps) {
+		this.name = name;
+		this.steps = Collections.unmodifiableList(steps);
+	}
+
+	/**
+	 * Reads a script. It is named after the file, without the extension.
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public static UiScript load(Path path) throws IOException {
+		String name = path.getFileName().toString();
+		int dot = name.lastIndexOf('.');
+		return parse(dot > 0 ? name.substring(0, dot) : name,
+			new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * @param name
+	 * @param text
+	 * @throws IllegalArgumentException If a line is not a step.
+	 */
+	public static UiScript parse(String name, String text) {
+		List<Step> steps = new ArrayList<>();
+		String[] lines = text.split("\r?\n");
+		for (int i = 0; i < lines.length; i++) {
+			String line = lines[i].trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			try {
+				steps.add(parseStep(i + 1, line));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("UI script " + name + " line " + (i + 1) + ": " + e.getMessage());
+			}
+		}
+		if (steps.isEmpty()) {
+			throw new IllegalArgumentException("UI script " + name + " has no steps");
+		}
+		return new UiScript(name, steps);
+	}
+
+	private static Step parseStep(int line, String text) {
+		String awaitNode = null;
+		String awaitWindow = null;
+		int arrow = text.lastIndexOf("->");
+		if (arrow >= 0) {
+			String await = text.substring(arrow + 2).trim();
+			text = text.substring(0, arrow).trim();
+			String[] words = await.split("\\s+");
+			if (words.length == 1 && words[0].startsWith("#")) {
+				awaitNode = selector(words[0]);
+			} else if ((words.length == 2 || words.length == 3) && words[0].equals("window")) {
+				awaitWindow = window(words[1]);
+				awaitNode = words.length == 3 ? selector(words[2]) : null;
+			} else {
+				throw new IllegalArgumentException("Cannot wait for \"" + await + "\"");
+			}
+		}
+
+		String[] words = text.split("\\s+", 2);
+		String rest = words.length > 1 ? words[1].trim() : "";
+		Command command;
+		try {
+			command = Command.valueOf(words[0].toUpperCase());
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("Unknown step \"" + words[0] + "\"");
+		}
+
+		switch (command) {
+			case WINDOW:
+				if (awaitNode != null || awaitWindow != null) {
+					throw new IllegalArgumentException("window is not an input");
+				}
+				return new Step(line, command, window(rest), null, null, null);
+			case SELECT: {
+				String[] parts = rest.split("\\s+", 2);
+				if (parts.length < 2) {
+					throw new IllegalArgumentException("select needs a node and the text of an item");
+				}
+				return new Step(line, command, selector(parts[0]), parts[1], awaitNode, awaitWindow);
+			}
+			case CLICK: {
+				String[] parts = rest.split("\\s+");
+				String count = "1";
+				if (parts.length > 2 || parts[0].isEmpty()) {
+					throw new IllegalArgumentException("click needs a node and an optional click count");
+				}
+				if (parts.length == 2) {
+					count = parts[1];
+					try {
+						if (Integer.parseInt(count) < 1) {
+							throw new NumberFormatException();
+						}
+					} catch (NumberFormatException e) {
+						throw new IllegalArgumentException("Not a click count: " + count);
+					}
+				}
+				return new Step(line, command, selector(parts[0]), count, awaitNode, awaitWindow);
+			}
+			case TYPE:
+				if (rest.isEmpty()) {
+					throw new IllegalArgumentException("type needs the text to type");
+				}
+				return new Step(line, command, null, rest, awaitNode, awaitWindow);
+			case PRESS:
+				try {
+					KeyCode.valueOf(rest.toUpperCase());
+				} catch (IllegalArgumentException e) {
+					throw new IllegalArgumentException("Unknown key \"" + rest + "\"");
+				}
+				return new Step(line, command, null, rest.toUpperCase(), awaitNode, awaitWindow);
+			default:
+				throw new AssertionError(command);
+		}
+	}
+
+	private static String selector(String text) {
+		if (!text.startsWith("#") || text.length() < 2) {
+			throw new IllegalArgumentException("Not a node id: " + text);
+		}
+		return text;
+	}
+
+	private static String window(String text) {
+		if (!text.equals(OVERVIEW) && !text.equals(CUSTOMIZE)) {
+			throw new IllegalArgumentException("Unknown window \"" + text + "\", use overview or customize");
+		}
+		return text;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public List<Step> getSteps() {
+		return steps;
+	}
+}
@@ -0,0 +1,37 @@
+package application.metrics;
+
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+
+/**
+ * Sends metrics to the Flight Recorder. Built only by a JDK with jdk.jfr,
+ * and loaded by Metrics by name once jdk.jfr is known to exist.
+ */
+final class JfrSupport implements FlightRecorderBridge {
+	JfrSupport() {
+	}
+
+	@Override
+	public void listen() {
+		FlightRecorder.addListener(new FlightRecorderListener() {
+			@Override
+			public void recordingStateChanged(Recording recording) {
+				Metrics.setRecording(EventType.getEventType(MetricEvent.class).isEnabled());
+			}
+		});
+		Metrics.setRecording(EventType.getEventType(MetricEvent.class).isEnabled());
+	}
+
+	@Override
+	public void commit(Metric metric, long elapsedNanos, String detail) {
+		MetricEvent event = new MetricEvent();
+		if (event.shouldCommit()) {
+			event.metric = metric.getLabel();
+			event.detail = detail;
+			event.elapsed = elapsedNanos;
+			event.commit();
+		}
+	}
+}
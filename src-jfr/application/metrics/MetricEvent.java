@@ -0,0 +1,31 @@
+package application.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * A Flight Recorder event for one measurement. The time was taken by the
+ * caller, so it is carried in the elapsed field rather than the event's
+ * own duration.
+ */
+@Name("midwest.Metric")
+@Label("Midwest Metric")
+@Category("Midwest Home Design")
+@Description("A measurement taken by the Midwest Home Design application")
+@StackTrace(false)
+class MetricEvent extends Event {
+	@Label("Metric")
+	String metric;
+
+	@Label("Detail")
+	String detail;
+
+	@Label("Elapsed")
+	@Timespan(Timespan.NANOSECONDS)
+	long elapsed;
+}
@@ -0,0 +1,356 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import application.model.CatalogLoader;
+import application.model.House;
+import application.model.HouseSpec;
+import application.model.PricingEngine;
+import application.model.QuoteCache;
+import application.model.QuoteRequest;
+import application.store.OrderStore;
+import application.util.LatencyHistogram;
+import application.util.QuoteFormat;
+
+/**
+ * Prices a file of quote requests without starting the user interface.
+ *
+ * Usage: java application.BatchQuote [--format csv|jsonl] [--threads N]
+ * [--chunk ROWS] [--cache QUOTES] [--orders DIR] [input|-] [output|-]
+ *
+ * Rows are read in chunks that are priced in parallel, while at most a few
+ * chunks per thread are held in memory. Results are written in input order.
+ * Throughput and per-row latency percentiles are reported on stderr. With
+ * --orders, every row priced is also placed as an order in the order store
+ * in DIR, which is how the back office imports orders. Orders are placed as
+ * results are written, so their ids follow the input rows.
+ */
+public class BatchQuote {
+    private final Map<String, HouseSpec> templates = new HashMap<>();
+    private final QuoteFormat format;
+    private final int threads;
+    private final int chunkSize;
+    private final int cacheSize;
+
+    private final List<LatencyHistogram> histograms = Collections.synchronizedList(new ArrayList<>());
+    private final ThreadLocal<LatencyHistogram> histogram = ThreadLocal.withInitial(() -> {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histograms.add(histogram);
+        return histogram;
+    });
+    private final ThreadLocal<QuoteRequest> request = ThreadLocal.withInitial(QuoteRequest::new);
+    private final List<QuoteCache> caches = Collections.synchronizedList(new ArrayList<>());
+    private final ThreadLocal<QuoteCache> cache = ThreadLocal.withInitial(this::newCache);
+    private OrderStore orders;
+
+    /**
+     * One slice of the input, priced by a single worker.
+     */
+    private static final class Chunk {
+        private final long firstRow;
+        private final List<String> lines;
+        private final StringBuilder out = new StringBuilder();
+        private final List<PendingOrder> orders = new ArrayList<>();
+        private int errors;
+
+        Chunk(long firstRow, List<String> lines) {
+            this.firstRow = firstRow;
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * A priced row waiting to be placed in the order store.
+     */
+    private static final class PendingOrder {
+        private final String style;
+        private final double bedrooms;
+        private final double bathrooms;
+        private final double area;
+        private final long cost;
+
+        PendingOrder(String style, double bedrooms, double bathrooms, double area, long cost) {
+            this.style = style;
+            this.bedrooms = bedrooms;
+            this.bathrooms = bathrooms;
+            this.area = area;
+            this.cost = cost;
+        }
+    }
+
+    public BatchQuote(List<House> templates, QuoteFormat format, int threads, int chunkSize) {
+        this(templates, format, threads, chunkSize, 0);
+    }
+
+    /**
+     * @param cacheSize The quotes each worker caches, or 0 to price every row.
+     */
+    public BatchQuote(List<House> templates, QuoteFormat format, int threads, int chunkSize, int cacheSize) {
+        for (House template : templates) {
+            this.templates.put(template.getStyle(), template.toSpec());
+        }
+        this.format = format;
+        this.threads = threads;
+        this.chunkSize = chunkSize;
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Places every row priced from now on as an order in the store.
+     *
+     * @param orders The store, or null to only price rows.
+     */
+    public void setOrderStore(OrderStore orders) {
+        this.orders = orders;
+    }
+
+    /**
+     * Prices every row of the input and writes the results to the output.
+     *
+     * @param in
+     * @param out
+     * @return A summary of the run.
+     * @throws IOException
+     */
+    public String run(BufferedReader in, Writer out) throws IOException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "batch-quote");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int maxInFlight = threads * 4;
+        Deque<Future<Chunk>> inFlight = new ArrayDeque<>();
+        long rows = 0;
+        long errors = 0;
+        long start = System.nanoTime();
+
+        try {
+            if (format.getHeader() != null) {
+                out.write(format.getHeader());
+                out.write('\n');
+            }
+
+            List<String> lines = new ArrayList<>(chunkSize);
+            long firstRow = 1;
+            String line;
+            boolean first = true;
+            while ((line = in.readLine()) != null) {
+                if (first) {
+                    first = false;
+                    if (format.isHeader(line)) {
+                        continue;
+                    }
+                }
+                if (line.isEmpty()) {
+                    continue;
+                }
+
+                lines.add(line);
+                rows++;
+                if (lines.size() == chunkSize) {
+                    Chunk chunk = new Chunk(firstRow, lines);
+                    inFlight.add(workers.submit(() -> price(chunk)));
+                    firstRow = rows + 1;
+                    lines = new ArrayList<>(chunkSize);
+
+                    // Wait for the oldest chunk once enough are queued, so memory stays bounded.
+                    if (inFlight.size() >= maxInFlight) {
+                        errors += write(inFlight.poll(), out);
+                    }
+                }
+            }
+            if (!lines.isEmpty()) {
+                Chunk chunk = new Chunk(firstRow, lines);
+                inFlight.add(workers.submit(() -> price(chunk)));
+            }
+            while (!inFlight.isEmpty()) {
+                errors += write(inFlight.poll(), out);
+            }
+            out.flush();
+        } finally {
+            workers.shutdownNow();
+        }
+
+        return summarize(rows, errors, System.nanoTime() - start);
+    }
+
+    private QuoteCache newCache() {
+        QuoteCache cache = new QuoteCache(cacheSize);
+        caches.add(cache);
+        return cache;
+    }
+
+    private Chunk price(Chunk chunk) {
+        LatencyHistogram latencies = histogram.get();
+        QuoteRequest request = this.request.get();
+        QuoteCache cache = cacheSize > 0 ? this.cache.get() : null;
+        long row = chunk.firstRow;
+
+        for (String line : chunk.lines) {
+            long start = System.nanoTime();
+            try {
+                format.parse(line, request);
+                HouseSpec template = findTemplate(request.getStyle());
+                if (template == null) {
+                    throw new IllegalArgumentException("unknown style " + request.getStyle());
+                }
+                long cost = cache != null
+                    ? cache.quoteCents(template, request) : PricingEngine.quoteCents(template, request);
+                format.appendQuote(chunk.out, line, cost);
+                if (orders != null) {
+                    chunk.orders.add(new PendingOrder(template.getStyle(),
+                        request.getBedrooms(), request.getBathrooms(), request.getArea(), cost));
+                }
+            } catch (IllegalArgumentException e) {
+                format.appendError(chunk.out, row, line, e.getMessage());
+                chunk.errors++;
+            }
+            latencies.record(System.nanoTime() - start);
+            row++;
+        }
+        return chunk;
+    }
+
+    private HouseSpec findTemplate(String style) {
+        HouseSpec template = templates.get(style);
+        if (template == null) {
+            for (HouseSpec candidate : templates.values()) {
+                if (candidate.getStyle().equalsIgnoreCase(style)) {
+                    return candidate;
+                }
+            }
+        }
+        return template;
+    }
+
+    private int write(Future<Chunk> future, Writer out) throws IOException {
+        Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while pricing", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Pricing failed", e.getCause());
+        }
+        out.append(chunk.out);
+        if (orders != null) {
+            for (PendingOrder order : chunk.orders) {
+                orders.place(System.currentTimeMillis(), order.style,
+                    order.bedrooms, order.bathrooms, order.area, order.cost);
+            }
+        }
+        return chunk.errors;
+    }
+
+    private String summarize(long rows, long errors, long elapsedNanos) {
+        LatencyHistogram latencies = new LatencyHistogram();
+        synchronized (histograms) {
+            for (LatencyHistogram histogram : histograms) {
+                latencies.merge(histogram);
+            }
+        }
+        long hits = 0;
+        long lookups = 0;
+        synchronized (caches) {
+            for (QuoteCache cache : caches) {
+                hits += cache.getHits();
+                lookups += cache.getHits() + cache.getMisses() + cache.getStale();
+            }
+        }
+        double seconds = elapsedNanos / 1e9;
+        String summary = String.format("Priced %d rows (%d errors) in %.3f s on %d threads: %.0f rows/s%n"
+                + "Per-row latency: %s",
+            rows, errors, seconds, threads, rows / Math.max(seconds, 1e-9),
+            latencies.summary("us", 1000));
+        if (cacheSize > 0) {
+            summary += String.format("%nQuote cache hit rate: %.1f%%", lookups == 0 ? 0 : 100.0 * hits / lookups);
+        }
+        return summary;
+    }
+
+    public static void main(String[] args) throws IOException {
+        String input = "-";
+        String output = "-";
+        QuoteFormat format = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int chunkSize = 4096;
+        int cacheSize = 0;
+        String ordersDirectory = null;
+
+        List<String> files = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--format":
+                    format = QuoteFormat.valueOf(args[++i].toUpperCase());
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--chunk":
+                    chunkSize = Integer.parseInt(args[++i]);
+                    break;
+                case "--cache":
+                    cacheSize = Integer.parseInt(args[++i]);
+                    break;
+                case "--orders":
+                    ordersDirectory = args[++i];
+                    break;
+                default:
+                    files.add(args[i]);
+            }
+        }
+        if (files.size() > 0) {
+            input = files.get(0);
+        }
+        if (files.size() > 1) {
+            output = files.get(1);
+        }
+        if (threads < 1 || chunkSize < 1 || cacheSize < 0) {
+            System.err.println("Usage: java application.BatchQuote [--format csv|jsonl] [--threads N]"
+                + " [--chunk ROWS] [--cache QUOTES] [--orders DIR] [input|-] [output|-]");
+            System.exit(2);
+        }
+        if (format == null) {
+            format = QuoteFormat.forFileName(input);
+        }
+
+        BatchQuote batch = new BatchQuote(CatalogLoader.loadTemplates(), format, threads, chunkSize, cacheSize);
+        OrderStore orders = ordersDirectory == null ? null : OrderStore.open(Paths.get(ordersDirectory));
+        batch.setOrderStore(orders);
+        try (BufferedReader in = input.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8), 1 << 20)
+                : Files.newBufferedReader(Paths.get(input), StandardCharsets.UTF_8);
+             Writer out = output.equals("-")
+                ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 20)
+                : Files.newBufferedWriter(Paths.get(output), StandardCharsets.UTF_8)) {
+            System.err.println(batch.run(in, out));
+        } finally {
+            if (orders != null) {
+                long start = System.nanoTime();
+                orders.close();
+                System.err.printf("Order store %s holds %d orders (closed in %.0f ms)%n",
+                    orders.getDirectory(), orders.size(), (System.nanoTime() - start) / 1e6);
+            }
+        }
+    }
+}
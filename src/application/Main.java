@@ -1,20 +1,45 @@
 // G Roques EO1
 package application;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import application.Main;
-import application.model.Country;
-import application.model.European;
+import application.metrics.Metric;
+import application.metrics.Metrics;
+import application.model.CatalogHouse;
+import application.model.CatalogLoader;
+import application.model.CatalogWatcher;
 import application.model.House;
-import application.model.Modern;
-import application.model.Mountain;
-import application.model.Southwest;
-import application.model.Traditional;
-import application.model.Victorian;
+import application.model.HouseSpec;
+import application.model.Order;
+import application.model.PlanInventory;
+import application.model.Receipt;
+import application.model.StyleRateTable;
+import application.model.TemplateCatalog;
+import application.store.OrderStore;
+import application.store.ReceiptJournal;
+import application.util.AssetPack;
+import application.util.LatencyHistogram;
 import application.view.HouseCustomizeController;
 import application.view.HouseOverviewController;
+import application.view.ImageCache;
+import application.view.PriceSweepController;
+import application.view.StyleComparisonController;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXMLLoader;
@@ -23,6 +48,7 @@ import javafx.scene.layout.AnchorPane;
 import javafx.scene.layout.BorderPane;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import javafx.stage.Window;
 
 public class Main extends Application {
 	
@@ -33,19 +59,86 @@ public class Main extends Application {
      * The data as an observable list of Houses.
      */
     private ObservableList<House> houses = FXCollections.observableArrayList();
+    
+    /**
+     * Index over the houses for finding templates by their details.
+     */
+    private TemplateCatalog templateCatalog = new TemplateCatalog(houses);
+    
+    /**
+     * The size the customize dialog shows house images at, which the
+     * images in the asset pack are scaled to by build.xml.
+     */
+    private static final double HOUSE_IMAGE_WIDTH = 260;
+    private static final double HOUSE_IMAGE_HEIGHT = 165;
+    
+    /**
+     * Decoded house images, shared by every customize dialog.
+     */
+    private ImageCache imageCache = new ImageCache(16, 32 * 1024 * 1024, AssetPack.openDefault(),
+        HOUSE_IMAGE_WIDTH, HOUSE_IMAGE_HEIGHT);
+    
+    /**
+     * Durable record of every printed receipt, or null if it could not be opened.
+     */
+    private ReceiptJournal receiptJournal;
+    
+    /**
+     * Orders placed from the customize dialog, or null if the store could not be opened.
+     */
+    private OrderStore orderStore;
+    
+    /**
+     * Reloads the catalog when its file changes, or null when the bundled catalog is used.
+     */
+    private CatalogWatcher catalogWatcher;
+    
+    /**
+     * The plans searched from the overview. Until a plan file has loaded, and
+     * when there is none, these are the templates.
+     */
+    private PlanInventory planInventory;
+    private Path planFile;
+    
+    /**
+     * The rates of every style for the comparison view, built when first
+     * needed after the catalog changes.
+     */
+    private StyleRateTable styleRateTable;
+    
+    /**
+     * Serves quotes over HTTP when the midwest.server.port property is set, otherwise null.
+     */
+    private QuoteServer quoteServer;
+    
+    /**
+     * The customize dialog, built once and reused for every search.
+     */
+    private CompletableFuture<FXMLLoader> customizeDialogLoader;
+    private Stage customizeDialogStage;
+    private HouseCustomizeController customizeController;
+    private long dialogOpenStart;
+    private final LatencyHistogram dialogOpenTimes = new LatencyHistogram();
+    
+    /**
+     * The style comparison dialog, built the first time it is opened.
+     */
+    private Stage comparisonDialogStage;
+    private StyleComparisonController comparisonController;
+    
+    /**
+     * The price sweep window, built the first time it is opened.
+     */
+    private Stage sweepDialogStage;
+    private PriceSweepController sweepController;
 
 
     /**
      * Constructor
      */
     public Main() {
-    	houses.add(new Traditional());
-    	houses.add(new Modern());
-    	houses.add(new European());
-    	houses.add(new Southwest());
-    	houses.add(new Mountain());
-    	houses.add(new Victorian());
-    	houses.add(new Country());
+    	houses.addAll(CatalogLoader.loadTemplates());
+    	planInventory = PlanInventory.of(houses);
     }
     
     /**
@@ -56,14 +149,105 @@ public class Main extends Application {
         return houses;
     }
     
+    /**
+     * Returns the index used to check whether a house is one of the templates.
+     * @return
+     */
+    public TemplateCatalog getTemplateCatalog() {
+        return templateCatalog;
+    }
+    
+    /**
+     * Returns the plans to search.
+     * @return
+     */
+    public PlanInventory getPlanInventory() {
+        return planInventory;
+    }
+    
+    /**
+     * Returns whether the plans to search were loaded from a plan file,
+     * rather than being the templates.
+     * @return
+     */
+    public boolean hasPlanFile() {
+        return planFile != null;
+    }
+    
+    /**
+     * Returns the rates of every style in the catalog.
+     * @return
+     */
+    public StyleRateTable getStyleRateTable() {
+        if (styleRateTable == null) {
+            styleRateTable = StyleRateTable.of(houses);
+        }
+        return styleRateTable;
+    }
+    
+    /**
+     * Returns the cache of house images.
+     * @return
+     */
+    public ImageCache getImageCache() {
+        return imageCache;
+    }
+    
+    /**
+     * Queues a receipt to be written to the receipt journal. Never blocks.
+     * @param receipt
+     */
+    public void saveReceipt(Receipt receipt) {
+        if (receiptJournal == null || !receiptJournal.append(receipt)) {
+            System.err.println("Receipt could not be saved: " + receipt);
+        }
+    }
+    
+    /**
+     * Places an order in the order store. The order is written in the
+     * background, so this only waits if the store has fallen far behind.
+     * 
+     * @return The order, or null if it could not be placed.
+     */
+    public Order placeOrder(String style, double numOfBedrooms, double numOfBathrooms, double area,
+            long costCents) {
+        if (orderStore == null) {
+            System.err.println("No order store to place the order in.");
+            return null;
+        }
+        try {
+            return orderStore.place(System.currentTimeMillis(), style, numOfBedrooms, numOfBathrooms,
+                area, costCents);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+    
+    /**
+     * Returns the order store, or null if it could not be opened.
+     * @return
+     */
+    public OrderStore getOrderStore() {
+        return orderStore;
+    }
+    
     @Override
     public void start(Stage primaryStage) {
         this.primaryStage = primaryStage;
         this.primaryStage.setTitle("Midwest Home Design Company");
 
+        Metrics.register();
         initRootLayout();
+        prefetchImages();
+        openReceiptJournal();
+        openOrderStore();
+        watchCatalog();
+        loadPlanInventory();
+        startQuoteServer();
 
         showHouseOverview();
+        preloadHouseCustomizeDialog();
     }
     
     /**
@@ -72,9 +256,11 @@ public class Main extends Application {
     public void initRootLayout() {
         try {
             // Load root layout from fxml file.
+            long start = Metrics.start();
             FXMLLoader loader = new FXMLLoader();
             loader.setLocation(Main.class.getResource("view/RootLayout.fxml"));
             rootLayout = (BorderPane) loader.load();
+            Metric.FXML_LOAD.record(start, "RootLayout.fxml");
 
             // Show the scene containing the root layout.
             Scene scene = new Scene(rootLayout);
@@ -85,15 +271,189 @@ public class Main extends Application {
         }
     }
     
+    /**
+     * Opens the receipt journal, by default in the .midwest-home-design folder
+     * of the user's home. The midwest.receipts system property overrides the path.
+     */
+    private void openReceiptJournal() {
+        Path path = Paths.get(System.getProperty("midwest.receipts",
+            Paths.get(System.getProperty("user.home"), ".midwest-home-design", "receipts.journal").toString()));
+        try {
+            receiptJournal = ReceiptJournal.open(path);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Opens the order store in the directory named by the midwest.orders
+     * system property, or the orders folder in .midwest-home-design.
+     */
+    private void openOrderStore() {
+        Path directory = Paths.get(System.getProperty("midwest.orders",
+            Paths.get(System.getProperty("user.home"), ".midwest-home-design", "orders").toString()));
+        try {
+            orderStore = OrderStore.open(directory);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    @Override
+    public void stop() throws IOException {
+        // Each is closed even if an earlier one fails, the order store first
+        // so its queued orders reach the disk before the JVM exits.
+        IOException failure = null;
+        for (Closeable closeable : new Closeable[] { orderStore, receiptJournal, catalogWatcher, quoteServer }) {
+            if (closeable == null) {
+                continue;
+            }
+            try {
+                closeable.close();
+            } catch (IOException | RuntimeException e) {
+                if (failure == null) {
+                    failure = e instanceof IOException ? (IOException) e : new IOException(e);
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+    
+    /**
+     * Loads the plan inventory in the background from the file named by the
+     * midwest.plans system property, or plans.csv in the .midwest-home-design
+     * folder of the user's home if it exists.
+     */
+    private void loadPlanInventory() {
+        String property = System.getProperty("midwest.plans");
+        Path path = property != null ? Paths.get(property)
+            : Paths.get(System.getProperty("user.home"), ".midwest-home-design", "plans.csv");
+        if (property == null && !Files.isRegularFile(path)) {
+            return;
+        }
+        CompletableFuture.supplyAsync(() -> {
+            try {
+                return PlanInventory.load(path);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }).whenComplete((inventory, error) -> {
+            if (error != null) {
+                System.err.println("Plans were not loaded from " + path + ": " + error.getCause());
+            } else {
+                Platform.runLater(() -> {
+                    planFile = path;
+                    planInventory = inventory;
+                });
+            }
+        });
+    }
+    
+    /**
+     * Starts serving quotes over HTTP on the port named by the
+     * midwest.server.port system property, if it is set. The server is given
+     * copies of the templates, never the houses themselves.
+     */
+    private void startQuoteServer() {
+        Integer port = Integer.getInteger("midwest.server.port");
+        if (port == null) {
+            return;
+        }
+        List<HouseSpec> specs = new ArrayList<>();
+        for (House house : houses) {
+            specs.add(house.toSpec());
+        }
+        try {
+            quoteServer = new QuoteServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), specs);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Starts reloading the catalog whenever its file is edited.
+     */
+    private void watchCatalog() {
+        Path catalog = CatalogLoader.getCatalogPath();
+        if (catalog == null) {
+            return;
+        }
+        try {
+            catalogWatcher = new CatalogWatcher(catalog,
+                specs -> Platform.runLater(() -> applyCatalog(specs)));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Brings the houses in line with a reloaded catalog. Styles that are
+     * still offered keep their House object, so selections in open views stay put.
+     * 
+     * @param specs
+     */
+    private void applyCatalog(List<HouseSpec> specs) {
+        Map<String, House> current = new HashMap<>();
+        for (House house : houses) {
+            current.put(house.getStyle(), house);
+        }
+        
+        List<House> added = new ArrayList<>();
+        Map<String, HouseSpec> offered = new HashMap<>();
+        for (HouseSpec spec : specs) {
+            offered.put(spec.getStyle(), spec);
+            House house = current.get(spec.getStyle());
+            if (house == null) {
+                added.add(new CatalogHouse(spec));
+            } else {
+                house.setBedrooms(spec.getBedrooms());
+                house.setBathrooms(spec.getBathrooms());
+                house.setArea(spec.getArea());
+                house.setTemplateBasicRate(spec.getTemplateBasicRate());
+            }
+        }
+        
+        houses.removeIf(house -> !offered.containsKey(house.getStyle()));
+        houses.addAll(added);
+        // Houses changed in place do not notify the list.
+        templateCatalog.reindex();
+        if (quoteServer != null) {
+            quoteServer.setTemplates(specs);
+        }
+        if (planFile == null) {
+            planInventory = PlanInventory.of(houses);
+        }
+        styleRateTable = null;
+    }
+    
+    /**
+     * Starts decoding the image of every house style and the custom house in
+     * the background, so the first customize dialog does not wait for them.
+     */
+    private void prefetchImages() {
+        List<String> styles = new ArrayList<>();
+        for (House house : houses) {
+            styles.add(house.getStyle());
+        }
+        styles.add("Custom");
+        imageCache.prefetch(styles);
+    }
+    
     /**
      * Shows the house overview inside the root layout.
      */
     public void showHouseOverview() {
         try {
             // Load person overview.
+            long start = Metrics.start();
             FXMLLoader loader = new FXMLLoader();
             loader.setLocation(Main.class.getResource("view/HouseOverview.fxml"));
             AnchorPane houseOverview = (AnchorPane) loader.load();
+            Metric.FXML_LOAD.record(start, "HouseOverview.fxml");
 
             // Set person overview into the center of root layout.
             rootLayout.setCenter(houseOverview);
@@ -108,6 +468,59 @@ public class Main extends Application {
         }
     }
     
+    /**
+     * Starts loading the customize dialog's FXML on a background thread, so
+     * the first Search click does not have to parse it.
+     */
+    private void preloadHouseCustomizeDialog() {
+        customizeDialogLoader = CompletableFuture.supplyAsync(() -> {
+            try {
+                return loadHouseCustomizeDialog();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+    
+    private FXMLLoader loadHouseCustomizeDialog() throws IOException {
+        long start = Metrics.start();
+        FXMLLoader loader = new FXMLLoader();
+        loader.setLocation(Main.class.getResource("view/HouseCustomizeDialog.fxml"));
+        loader.load();
+        Metric.FXML_LOAD.record(start, "HouseCustomizeDialog.fxml");
+        return loader;
+    }
+    
+    /**
+     * Creates the customize dialog's stage the first time it is needed. The
+     * stage, scene and controller are then reused by every later open.
+     * 
+     * @throws IOException
+     */
+    private void createHouseCustomizeDialog() throws IOException {
+        FXMLLoader loader;
+        try {
+            loader = customizeDialogLoader != null ? customizeDialogLoader.join() : loadHouseCustomizeDialog();
+        } catch (CompletionException e) {
+            // Loading in the background failed; try once more here to report the cause.
+            e.printStackTrace();
+            loader = loadHouseCustomizeDialog();
+        }
+        
+        // Create the dialog Stage.
+        customizeDialogStage = new Stage();
+        customizeDialogStage.setTitle("Customize House");
+        customizeDialogStage.initModality(Modality.WINDOW_MODAL);
+        customizeDialogStage.initOwner(primaryStage);
+        customizeDialogStage.setScene(new Scene((AnchorPane) loader.getRoot()));
+        customizeDialogStage.setOnShown(event -> recordDialogOpened());
+        
+        customizeController = loader.getController();
+        customizeController.setMainApp(this);
+        customizeController.setDialogStage(customizeDialogStage);
+        customizeController.setChangeListeners();
+    }
+    
     /**
      * Opens a dialog to edit details for the specified house. If the user
      * clicks OK, the changes are saved into the provided house object and true
@@ -117,36 +530,134 @@ public class Main extends Application {
      * @return true if the user clicked OK, false otherwise.
      */
     public boolean showHouseCustomizeDialog(House house) {
+        dialogOpenStart = System.nanoTime();
         try {
-            // Load the fxml file and create a new stage for the popup dialog.
-            FXMLLoader loader = new FXMLLoader();
-            loader.setLocation(Main.class.getResource("view/HouseCustomizeDialog.fxml"));
-            AnchorPane page = (AnchorPane) loader.load();
-
-            // Create the dialog Stage.
-            Stage dialogStage = new Stage();
-            dialogStage.setTitle("Customize House");
-            dialogStage.initModality(Modality.WINDOW_MODAL);
-            dialogStage.initOwner(primaryStage);
-            Scene scene = new Scene(page);
-            dialogStage.setScene(scene);
-
-            // Set the house into the controller.
-            HouseCustomizeController controller = loader.getController();
-            controller.setMainApp(this);
-            controller.setDialogStage(dialogStage);
-            controller.setHouse(house);
-            controller.setChangeListeners();
+            if (customizeDialogStage == null) {
+                createHouseCustomizeDialog();
+            }
+            
+            // Reset the reused controller for the house.
+            customizeController.setHouse(house);
 
             // Show the dialog and wait until the user closes it
-            dialogStage.showAndWait();
+            customizeDialogStage.showAndWait();
 
-            return controller.isOkClicked();
+            return customizeController.isOkClicked();
         } catch (IOException e) {
             e.printStackTrace();
             return false;
         }
     }
+    
+    /**
+     * Opens a dialog comparing the price of the customizations in every style.
+     * 
+     * @param numOfBedrooms
+     * @param numOfBathrooms
+     * @param area
+     * @param currentStyle The style to select at first.
+     * @return The style the user chose, or null if they closed the dialog.
+     */
+    public String showStyleComparisonDialog(double numOfBedrooms, double numOfBathrooms, double area,
+            String currentStyle) {
+        try {
+            if (comparisonDialogStage == null) {
+                long start = Metrics.start();
+                FXMLLoader loader = new FXMLLoader();
+                loader.setLocation(Main.class.getResource("view/StyleComparisonDialog.fxml"));
+                AnchorPane page = (AnchorPane) loader.load();
+                Metric.FXML_LOAD.record(start, "StyleComparisonDialog.fxml");
+                
+                comparisonDialogStage = new Stage();
+                comparisonDialogStage.setTitle("Compare Styles");
+                comparisonDialogStage.initModality(Modality.WINDOW_MODAL);
+                comparisonDialogStage.initOwner(customizeDialogStage != null ? customizeDialogStage : primaryStage);
+                comparisonDialogStage.setScene(new Scene(page));
+                
+                comparisonController = loader.getController();
+                comparisonController.setDialogStage(comparisonDialogStage);
+            }
+            
+            comparisonController.setCustomizations(getStyleRateTable(),
+                    numOfBedrooms, numOfBathrooms, area, currentStyle);
+            comparisonDialogStage.showAndWait();
+            
+            return comparisonController.getChosenStyle();
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+    
+    /**
+     * Opens the price sweep of a template next to the customize dialog,
+     * without blocking it, or brings it to the front with the new template.
+     * 
+     * @param template
+     * @param numOfBedrooms
+     * @param numOfBathrooms
+     * @param area
+     */
+    public void showPriceSweepDialog(House template, double numOfBedrooms, double numOfBathrooms, double area) {
+        try {
+            if (sweepDialogStage == null) {
+                long start = Metrics.start();
+                FXMLLoader loader = new FXMLLoader();
+                loader.setLocation(Main.class.getResource("view/PriceSweepDialog.fxml"));
+                AnchorPane page = (AnchorPane) loader.load();
+                Metric.FXML_LOAD.record(start, "PriceSweepDialog.fxml");
+                
+                sweepDialogStage = new Stage();
+                sweepDialogStage.setTitle("Price Sweep");
+                sweepDialogStage.initOwner(customizeDialogStage != null ? customizeDialogStage : primaryStage);
+                sweepDialogStage.setScene(new Scene(page));
+                
+                sweepController = loader.getController();
+                sweepController.setDialogStage(sweepDialogStage);
+            }
+            
+            sweepController.setHouse(template.toSpec(), numOfBedrooms, numOfBathrooms, area);
+            if (!sweepDialogStage.isShowing()) {
+                Window owner = sweepDialogStage.getOwner();
+                sweepDialogStage.setX(owner.getX() + owner.getWidth());
+                sweepDialogStage.setY(owner.getY());
+                sweepDialogStage.show();
+            }
+            sweepDialogStage.toFront();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+    
+    /**
+     * Records how long the dialog took from the Search click until it was
+     * shown. Set the midwest.timing system property to print each open.
+     */
+    private void recordDialogOpened() {
+        long elapsed = System.nanoTime() - dialogOpenStart;
+        dialogOpenTimes.record(elapsed);
+        if (Boolean.getBoolean("midwest.timing")) {
+            System.err.printf("Customize dialog opened in %.1f ms (%s)%n",
+                elapsed / 1e6, dialogOpenTimes.summary("ms", 1e6));
+        }
+    }
+    
+    /**
+     * Returns how long each customize dialog open took, in nanoseconds.
+     * @return
+     */
+    public LatencyHistogram getDialogOpenTimes() {
+        return dialogOpenTimes;
+    }
+    
+    /**
+     * Returns the customize dialog's stage, or null before it is first opened.
+     * @return
+     */
+    public Stage getCustomizeDialogStage() {
+        return customizeDialogStage;
+    }
+
     /**
      * Returns the main stage.
      * @return
@@ -0,0 +1,199 @@
+package application;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import application.model.CatalogLoader;
+import application.model.HouseSpec;
+import application.util.LatencyHistogram;
+
+/**
+ * Drives a QuoteServer with concurrent clients and reports its throughput.
+ *
+ * Usage: java application.QuoteLoadTest [--url http://host:port] [--clients N]
+ * [--seconds S] [--batch ROWS]
+ *
+ * Without --url a server is started in this JVM on a free port. Each client
+ * sends requests back to back over a kept-alive connection: single GET quotes,
+ * or POSTs of ROWS random CSV rows when --batch is given. Quotes per second
+ * and per-request latency percentiles are printed when the run ends.
+ */
+public class QuoteLoadTest {
+    private final String url;
+    private final List<HouseSpec> templates;
+    private final int batch;
+    private final AtomicLong quotes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public QuoteLoadTest(String url, List<HouseSpec> templates, int batch) {
+        this.url = url;
+        this.templates = templates;
+        this.batch = batch;
+    }
+
+    /**
+     * Runs the clients for the given time.
+     *
+     * @param clients
+     * @param millis
+     * @return A summary of the run.
+     * @throws InterruptedException
+     */
+    public String run(int clients, long millis) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        List<LatencyHistogram> histograms = new ArrayList<>();
+        long start = System.nanoTime();
+        long deadline = start + millis * 1_000_000;
+        for (int i = 0; i < clients; i++) {
+            LatencyHistogram histogram = new LatencyHistogram();
+            long seed = i;
+            Thread thread = new Thread(() -> drive(new Random(seed), histogram, deadline), "quote-load-" + i);
+            histograms.add(histogram);
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        LatencyHistogram latencies = new LatencyHistogram();
+        for (LatencyHistogram histogram : histograms) {
+            latencies.merge(histogram);
+        }
+        double seconds = elapsed / 1e9;
+        return String.format("%d quotes in %d requests (%d failed) over %.1f s from %d clients: "
+                + "%.0f quotes/s, %.0f requests/s%nPer-request latency: %s",
+            quotes.get(), latencies.getCount(), failures.get(), seconds, clients,
+            quotes.get() / seconds, latencies.getCount() / seconds,
+            latencies.summary("us", 1000));
+    }
+
+    private void drive(Random random, LatencyHistogram latencies, long deadline) {
+        byte[] buffer = new byte[8192];
+        StringBuilder body = new StringBuilder();
+        while (System.nanoTime() < deadline) {
+            long start = System.nanoTime();
+            try {
+                HttpURLConnection connection;
+                if (batch > 0) {
+                    body.setLength(0);
+                    for (int i = 0; i < batch; i++) {
+                        appendRow(body, random);
+                    }
+                    connection = (HttpURLConnection) new URL(url + "/quote/batch").openConnection();
+                    connection.setRequestMethod("POST");
+                    connection.setDoOutput(true);
+                    connection.setRequestProperty("Content-Type", "text/csv");
+                    try (OutputStream out = connection.getOutputStream()) {
+                        out.write(body.toString().getBytes(StandardCharsets.UTF_8));
+                    }
+                } else {
+                    HouseSpec template = templates.get(random.nextInt(templates.size()));
+                    connection = (HttpURLConnection) new URL(url + "/quote?style="
+                        + template.getStyle().replace(" ", "%20")
+                        + "&bedrooms=" + (1 + random.nextInt(6))
+                        + "&bathrooms=" + (1 + random.nextInt(4))
+                        + "&area=" + (1000 + random.nextInt(4000))).openConnection();
+                }
+
+                int status = connection.getResponseCode();
+                // Read the whole body so the connection is kept alive for the next request.
+                try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+                    if (in != null) {
+                        while (in.read(buffer) >= 0) {
+                        }
+                    }
+                }
+                if (status == 200) {
+                    quotes.addAndGet(batch > 0 ? batch : 1);
+                } else {
+                    failures.incrementAndGet();
+                }
+            } catch (IOException e) {
+                failures.incrementAndGet();
+            }
+            latencies.record(System.nanoTime() - start);
+        }
+    }
+
+    private void appendRow(StringBuilder body, Random random) {
+        HouseSpec template = templates.get(random.nextInt(templates.size()));
+        body.append(template.getStyle()).append(',')
+            .append(1 + random.nextInt(6)).append(',')
+            .append(1 + random.nextInt(4)).append(',')
+            .append(1000 + random.nextInt(4000)).append('\n');
+    }
+
+    /**
+     * Fetches one quote, to check the server answers before loading it.
+     */
+    static String fetch(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try (InputStream in = connection.getResponseCode() < 400
+                ? connection.getInputStream() : connection.getErrorStream()) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int n;
+            while ((n = in.read(buffer)) >= 0) {
+                out.write(buffer, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8).trim();
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String url = null;
+        int clients = Runtime.getRuntime().availableProcessors() * 2;
+        long seconds = 10;
+        int batch = 0;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--url":
+                    url = args[++i];
+                    break;
+                case "--clients":
+                    clients = Integer.parseInt(args[++i]);
+                    break;
+                case "--seconds":
+                    seconds = Long.parseLong(args[++i]);
+                    break;
+                case "--batch":
+                    batch = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        // Let every client keep its connection open.
+        System.setProperty("http.maxConnections", String.valueOf(clients));
+        List<HouseSpec> templates = CatalogLoader.load();
+        QuoteServer server = null;
+        if (url == null) {
+            server = new QuoteServer(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), templates);
+            url = "http://127.0.0.1:" + server.getPort();
+        }
+        try {
+            HouseSpec sample = templates.get(0);
+            System.err.println(fetch(url + "/quote?style=" + sample.getStyle().replace(" ", "%20")
+                + "&bedrooms=3&bathrooms=2&area=2000"));
+            System.err.println(new QuoteLoadTest(url, templates, batch).run(clients, seconds * 1000));
+        } finally {
+            if (server != null) {
+                server.close();
+            }
+        }
+    }
+}
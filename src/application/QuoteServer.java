@@ -0,0 +1,328 @@
+package application;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import application.model.CatalogLoader;
+import application.model.HouseSpec;
+import application.model.PricingEngine;
+import application.model.QuoteRequest;
+import application.util.CurrencyFormatter;
+import application.util.QuoteFormat;
+import application.util.Util;
+
+/**
+ * Serves quotes over HTTP, using the same rates and rules as the app.
+ *
+ * Usage: java application.QuoteServer [--port 8080] [--bind ADDRESS]
+ *
+ * GET /quote?style=Modern&amp;bedrooms=3&amp;bathrooms=2&amp;area=2400 answers a
+ * JSON object with the cost. POST /quote/batch takes rows in the formats
+ * BatchQuote reads (CSV, or JSONL with ?format=jsonl or an ndjson content
+ * type) and answers them priced, in order.
+ *
+ * The server only holds immutable template specs, which are swapped as a
+ * whole when the catalog changes, so it never touches the JavaFX model.
+ * Each exchange runs on its own virtual thread when the JVM has them, and
+ * on a cached pool of platform threads otherwise.
+ */
+public class QuoteServer implements Closeable {
+    public static final int DEFAULT_PORT = 8080;
+
+    /**
+     * Batch requests larger than this are refused rather than buffered.
+     */
+    private static final int MAX_BATCH_ROWS = 100_000;
+
+    static {
+        // Otherwise the headers and the body leave in separate packets, and
+        // every response waits out the client's delayed acknowledgement.
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private volatile Map<String, HouseSpec> templates;
+
+    /**
+     * Starts serving.
+     *
+     * @param address The address to listen on; port 0 picks a free port.
+     * @param templates The template specs to price against.
+     * @throws IOException
+     */
+    public QuoteServer(InetSocketAddress address, List<HouseSpec> templates) throws IOException {
+        setTemplates(templates);
+        executor = newExecutor();
+        server = HttpServer.create(address, 1024);
+        server.createContext("/quote", this::handleQuote);
+        server.createContext("/quote/batch", this::handleBatch);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Replaces the templates quotes are priced against. Requests already
+     * running finish with the templates they started with.
+     *
+     * @param templates
+     */
+    public void setTemplates(List<HouseSpec> templates) {
+        Map<String, HouseSpec> map = new HashMap<>();
+        for (HouseSpec template : templates) {
+            map.put(template.getStyle().toLowerCase(Locale.ROOT), template);
+        }
+        this.templates = Collections.unmodifiableMap(map);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns a virtual thread per task executor when running on a JVM that
+     * has one. It is looked up reflectively so the app still builds for Java 8.
+     */
+    static ExecutorService newExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "quote-server");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private void handleQuote(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestURI().getPath().equals("/quote")) {
+                respond(exchange, 404, error("not found"));
+                return;
+            }
+            if (!exchange.getRequestMethod().equals("GET")) {
+                respond(exchange, 405, error("use GET"));
+                return;
+            }
+
+            Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+            QuoteRequest request = new QuoteRequest();
+            try {
+                request.set(query.get("style"),
+                    parameter(query, "bedrooms"), parameter(query, "bathrooms"), parameter(query, "area"));
+                long cost = price(request, templates);
+
+                StringBuilder body = new StringBuilder(128);
+                body.append("{\"style\": ");
+                Util.appendJsonString(body, request.getStyle()).append(", \"bedrooms\": ");
+                appendNumber(body, request.getBedrooms()).append(", \"bathrooms\": ");
+                appendNumber(body, request.getBathrooms()).append(", \"area\": ");
+                appendNumber(body, request.getArea()).append(", \"cost\": ");
+                CurrencyFormatter.PLAIN.appendTo(body, cost);
+                body.append("}\n");
+                respond(exchange, 200, body);
+            } catch (IllegalArgumentException | ArithmeticException e) {
+                respond(exchange, 400, error(e.getMessage()));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleBatch(HttpExchange exchange) throws IOException {
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                respond(exchange, 405, error("use POST"));
+                return;
+            }
+
+            QuoteFormat format = getFormat(exchange);
+            Map<String, HouseSpec> templates = this.templates;
+            QuoteRequest request = new QuoteRequest();
+            StringBuilder out = new StringBuilder(4096);
+            if (format.getHeader() != null) {
+                out.append(format.getHeader()).append('\n');
+            }
+
+            try (BufferedReader in = new BufferedReader(
+                    new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+                String line;
+                long row = 0;
+                boolean first = true;
+                while ((line = in.readLine()) != null) {
+                    if (first) {
+                        first = false;
+                        if (format.isHeader(line)) {
+                            continue;
+                        }
+                    }
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    if (++row > MAX_BATCH_ROWS) {
+                        respond(exchange, 413, error("at most " + MAX_BATCH_ROWS + " rows per batch"));
+                        return;
+                    }
+
+                    try {
+                        format.parse(line, request);
+                        format.appendQuote(out, line, price(request, templates));
+                    } catch (IllegalArgumentException | ArithmeticException e) {
+                        format.appendError(out, row, line, e.getMessage());
+                    }
+                }
+            }
+            exchange.getResponseHeaders().set("Content-Type",
+                format == QuoteFormat.JSONL ? "application/x-ndjson" : "text/csv; charset=utf-8");
+            respond(exchange, 200, out);
+        } catch (IllegalArgumentException e) {
+            respond(exchange, 400, error(e.getMessage()));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static long price(QuoteRequest request, Map<String, HouseSpec> templates) {
+        if (request.getStyle() == null) {
+            throw new IllegalArgumentException("missing style");
+        }
+        HouseSpec template = templates.get(request.getStyle().toLowerCase(Locale.ROOT));
+        if (template == null) {
+            throw new IllegalArgumentException("unknown style " + request.getStyle());
+        }
+        return PricingEngine.quoteCents(template, request);
+    }
+
+    private static QuoteFormat getFormat(HttpExchange exchange) {
+        String format = parseQuery(exchange.getRequestURI().getRawQuery()).get("format");
+        if (format != null) {
+            return QuoteFormat.valueOf(format.toUpperCase(Locale.ROOT));
+        }
+        String type = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (type != null && (type.contains("ndjson") || type.contains("jsonl") || type.contains("json"))) {
+            return QuoteFormat.JSONL;
+        }
+        return QuoteFormat.CSV;
+    }
+
+    private static double parameter(Map<String, String> query, String name) {
+        String value = query.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("missing " + name);
+        }
+        double number;
+        try {
+            number = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " is not a number");
+        }
+        // Double.parseDouble also reads NaN, Infinity and hex.
+        if (!(number >= 0) || Double.isInfinite(number)) {
+            throw new IllegalArgumentException(name + " must be a non-negative number");
+        }
+        return number;
+    }
+
+    /**
+     * Writes a parsed value as a JSON number, whole numbers without a fraction.
+     */
+    private static StringBuilder appendNumber(StringBuilder out, double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return out.append((long) value);
+        }
+        return out.append(value);
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        try {
+            for (String pair : query.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0) {
+                    parameters.put(URLDecoder.decode(pair.substring(0, equals), "UTF-8"),
+                        URLDecoder.decode(pair.substring(equals + 1), "UTF-8"));
+                }
+            }
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+        return parameters;
+    }
+
+    private static StringBuilder error(String message) {
+        StringBuilder body = new StringBuilder("{\"error\": ");
+        return Util.appendJsonString(body, String.valueOf(message)).append("}\n");
+    }
+
+    private static void respond(HttpExchange exchange, int status, CharSequence body) throws IOException {
+        byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+        if (!exchange.getResponseHeaders().containsKey("Content-Type")) {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        String bind = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--bind":
+                    bind = args[++i];
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        InetSocketAddress address = bind != null
+            ? new InetSocketAddress(bind, port)
+            : new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+        QuoteServer server = new QuoteServer(address, CatalogLoader.load());
+        System.err.println("Serving quotes on http://" + address.getHostString() + ":" + server.getPort() + "/quote");
+    }
+}
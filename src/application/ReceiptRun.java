@@ -0,0 +1,141 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import application.model.Order;
+import application.model.Receipt;
+import application.store.OrderStore;
+import application.store.ReceiptJournalReader;
+import application.util.ReceiptRenderer;
+import application.util.ReceiptTemplate;
+
+/**
+ * Renders the end-of-day run of receipts without starting the user interface.
+ *
+ * Usage: java application.ReceiptRun [--journal FILE | --orders DIR]
+ * [--date YYYY-MM-DD | --all] [--template FILE] [--threads N] [--chunk RECEIPTS]
+ * [--split] output
+ *
+ * Receipts come from the receipt journal, by default the one the
+ * application writes, or with --orders from the orders in an order store.
+ * Only today's are rendered unless --date or --all says otherwise. They are
+ * written in the order they were printed, one per page of the output file,
+ * or with --split one per file in the output directory.
+ */
+public class ReceiptRun {
+
+    public static void main(String[] args) throws IOException {
+        Path journal = Paths.get(System.getProperty("midwest.receipts",
+            Paths.get(System.getProperty("user.home"), ".midwest-home-design", "receipts.journal").toString()));
+        Path ordersDirectory = null;
+        LocalDate date = LocalDate.now();
+        Path templateFile = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int chunkSize = 1024;
+        boolean split = false;
+        Path output = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--journal":
+                    journal = Paths.get(args[++i]);
+                    break;
+                case "--orders":
+                    ordersDirectory = Paths.get(args[++i]);
+                    break;
+                case "--date":
+                    date = LocalDate.parse(args[++i]);
+                    break;
+                case "--all":
+                    date = null;
+                    break;
+                case "--template":
+                    templateFile = Paths.get(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--chunk":
+                    chunkSize = Integer.parseInt(args[++i]);
+                    break;
+                case "--split":
+                    split = true;
+                    break;
+                default:
+                    output = Paths.get(args[i]);
+            }
+        }
+        if (output == null || threads < 1 || chunkSize < 1) {
+            System.err.println("Usage: java application.ReceiptRun [--journal FILE | --orders DIR]"
+                + " [--date YYYY-MM-DD | --all] [--template FILE] [--threads N] [--chunk RECEIPTS] [--split] output");
+            System.exit(2);
+        }
+
+        long start = System.nanoTime();
+        List<Receipt> receipts = ordersDirectory == null
+            ? readJournal(journal, date)
+            : readOrders(ordersDirectory, date);
+        long read = System.nanoTime();
+
+        ReceiptTemplate template = templateFile == null ? ReceiptTemplate.DEFAULT : ReceiptTemplate.load(templateFile);
+        ReceiptRenderer renderer = new ReceiptRenderer(template, threads, chunkSize);
+        long bytes = split ? renderer.renderEach(receipts, output) : renderer.renderTo(receipts, output);
+        long end = System.nanoTime();
+
+        double seconds = (end - read) / 1e9;
+        System.err.printf("Read %d receipts in %.0f ms; rendered %.1f MB to %s in %.0f ms (%.0f receipts/s)%n",
+            receipts.size(), (read - start) / 1e6, bytes / 1e6, output, seconds * 1e3,
+            seconds > 0 ? receipts.size() / seconds : 0.0);
+    }
+
+    /**
+     * Reads the receipts printed on the date, or all of them if it is null.
+     */
+    private static List<Receipt> readJournal(Path journal, LocalDate date) throws IOException {
+        long[] bounds = bounds(date);
+        List<Receipt> receipts = new ArrayList<>();
+        try (ReceiptJournalReader reader = ReceiptJournalReader.open(journal)) {
+            reader.scan((timestamp, style, bedrooms, bathrooms, area, costCents) -> {
+                if (timestamp >= bounds[0] && timestamp < bounds[1]) {
+                    receipts.add(ReceiptJournalReader.toReceipt(timestamp, style, bedrooms, bathrooms, area, costCents));
+                }
+            });
+        }
+        // The journal is in the order receipts were queued, which a clock
+        // change can leave slightly out of time order.
+        receipts.sort((a, b) -> Long.compare(a.getTimestamp(), b.getTimestamp()));
+        return receipts;
+    }
+
+    /**
+     * Reads the orders placed on the date, or all of them if it is null, as receipts.
+     */
+    private static List<Receipt> readOrders(Path directory, LocalDate date) throws IOException {
+        long[] bounds = bounds(date);
+        List<Receipt> receipts = new ArrayList<>();
+        try (OrderStore store = OrderStore.openReadOnly(directory)) {
+            for (Order order : store.findBetween(bounds[0], bounds[1])) {
+                receipts.add(new Receipt(order.getTimestamp(), order.getStyle(), order.getBedrooms(),
+                    order.getBathrooms(), order.getArea(), order.getCostCents()));
+            }
+        }
+        return receipts;
+    }
+
+    private static long[] bounds(LocalDate date) {
+        if (date == null) {
+            return new long[] { Long.MIN_VALUE, Long.MAX_VALUE };
+        }
+        ZoneId zone = ZoneId.systemDefault();
+        return new long[] {
+            date.atStartOfDay(zone).toInstant().toEpochMilli(),
+            date.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli()
+        };
+    }
+}
@@ -0,0 +1,16 @@
+package application.metrics;
+
+/**
+ * How Metrics reaches the Flight Recorder. The implementation, JfrSupport,
+ * lives in src-jfr, which is only compiled by a JDK that has jdk.jfr, and
+ * Metrics looks it up by name, so the rest of the application builds and
+ * runs without it.
+ */
+interface FlightRecorderBridge {
+	/**
+	 * Tells Metrics whenever a recording starts or stops whether it wants metric events.
+	 */
+	void listen();
+
+	void commit(Metric metric, long elapsedNanos, String detail);
+}
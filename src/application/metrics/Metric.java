@@ -0,0 +1,70 @@
+package application.metrics;
+
+import application.util.LatencyHistogram;
+
+/**
+ * The measurements the application takes, each with its own histogram.
+ */
+public enum Metric {
+	QUOTE("Quote", "Pricing one customized house"),
+	TEMPLATE_MATCH("Template match", "Checking whether a customized house is one of the templates"),
+	FXML_LOAD("FXML load", "Loading one FXML view"),
+	IMAGE_LOAD("Image load", "From asking for a house image until it is decoded"),
+	KEYSTROKE_TO_LABEL("Keystroke to label", "From an edit in the customize dialog until its cost is shown");
+
+	private final String label;
+	private final String description;
+	// Guarded by itself.
+	private final LatencyHistogram histogram = new LatencyHistogram();
+
+	private Metric(String label, String description) {
+		this.label = label;
+		this.description = description;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	/**
+	 * Records a measurement that began at start, a value from Metrics.start().
+	 * Does nothing if start is 0, so callers need not check whether metrics are on.
+	 *
+	 * @param start
+	 */
+	public void record(long start) {
+		record(start, null);
+	}
+
+	/**
+	 * @param start A value from Metrics.start().
+	 * @param detail What was measured, such as the FXML file, or null.
+	 */
+	public void record(long start, String detail) {
+		if (start != 0) {
+			Metrics.record(this, System.nanoTime() - start, detail);
+		}
+	}
+
+	void add(long elapsedNanos) {
+		synchronized (histogram) {
+			histogram.record(elapsedNanos);
+		}
+	}
+
+	LatencyHistogram snapshot() {
+		synchronized (histogram) {
+			return histogram.copy();
+		}
+	}
+
+	void reset() {
+		synchronized (histogram) {
+			histogram.reset();
+		}
+	}
+}
@@ -0,0 +1,74 @@
+package application.metrics;
+
+import java.beans.ConstructorProperties;
+
+import application.util.LatencyHistogram;
+
+/**
+ * The count and latency percentiles of one metric, in microseconds.
+ */
+public final class MetricSummary {
+	private final String name;
+	private final long count;
+	private final double meanMicros;
+	private final double p50Micros;
+	private final double p90Micros;
+	private final double p99Micros;
+	private final double maxMicros;
+
+	@ConstructorProperties({"name", "count", "meanMicros", "p50Micros", "p90Micros", "p99Micros", "maxMicros"})
+	public MetricSummary(String name, long count, double meanMicros, double p50Micros, double p90Micros,
+			double p99Micros, double maxMicros) {
+		this.name = name;
+		this.count = count;
+		this.meanMicros = meanMicros;
+		this.p50Micros = p50Micros;
+		this.p90Micros = p90Micros;
+		this.p99Micros = p99Micros;
+		this.maxMicros = maxMicros;
+	}
+
+	static MetricSummary of(Metric metric, LatencyHistogram histogram) {
+		boolean empty = histogram.getCount() == 0;
+		return new MetricSummary(metric.getLabel(), histogram.getCount(),
+			histogram.getMean() / 1000,
+			empty ? 0 : histogram.getValueAtPercentile(50) / 1000.0,
+			empty ? 0 : histogram.getValueAtPercentile(90) / 1000.0,
+			empty ? 0 : histogram.getValueAtPercentile(99) / 1000.0,
+			empty ? 0 : histogram.getMax() / 1000.0);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public double getMeanMicros() {
+		return meanMicros;
+	}
+
+	public double getP50Micros() {
+		return p50Micros;
+	}
+
+	public double getP90Micros() {
+		return p90Micros;
+	}
+
+	public double getP99Micros() {
+		return p99Micros;
+	}
+
+	public double getMaxMicros() {
+		return maxMicros;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: count=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus max=%.1fus",
+			name, count, meanMicros, p50Micros, p90Micros, p99Micros, maxMicros);
+	}
+}
@@ -0,0 +1,135 @@
+package application.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Times the work the application does, for Java Flight Recorder and JMX.
+ *
+ * A measurement is taken by calling start() and passing its result to
+ * Metric.record once the work is done:
+ *
+ * <pre>
+ * long start = Metrics.start();
+ * ...
+ * Metric.QUOTE.record(start);
+ * </pre>
+ *
+ * Measurements are kept when a Flight Recorder recording has midwest.Metric
+ * events enabled, or when the histograms are enabled with the
+ * midwest.metrics system property or the Enabled attribute of the MXBean.
+ * Otherwise start() returns 0 without reading the clock and record does
+ * nothing, so the calls can stay on hot paths.
+ */
+public final class Metrics implements MetricsMXBean {
+	public static final String OBJECT_NAME = "application:type=Metrics";
+
+	private static final Metrics INSTANCE = new Metrics();
+
+	private static volatile boolean histograms = Boolean.getBoolean("midwest.metrics");
+	private static volatile boolean recording;
+	private static volatile boolean on = histograms;
+
+	// Null if this JVM has no Flight Recorder or the build left out src-jfr.
+	private static final FlightRecorderBridge JFR = loadFlightRecorder();
+
+	private Metrics() {
+	}
+
+	/**
+	 * Returns the time a measurement starts, or 0 if measurements are not kept.
+	 */
+	public static long start() {
+		return on ? System.nanoTime() : 0;
+	}
+
+	/**
+	 * Returns true if measurements are kept.
+	 */
+	public static boolean isOn() {
+		return on;
+	}
+
+	/**
+	 * Registers the MXBean and starts following Flight Recorder recordings.
+	 * Safe to call more than once.
+	 */
+	public static synchronized void register() {
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			ObjectName name = new ObjectName(OBJECT_NAME);
+			if (!server.isRegistered(name)) {
+				server.registerMBean(INSTANCE, name);
+				if (JFR != null) {
+					JFR.listen();
+				}
+			}
+		} catch (JMException e) {
+			e.printStackTrace();
+		}
+	}
+
+	public static MetricsMXBean getInstance() {
+		return INSTANCE;
+	}
+
+	static void record(Metric metric, long elapsedNanos, String detail) {
+		if (histograms) {
+			metric.add(elapsedNanos);
+		}
+		if (recording) {
+			JFR.commit(metric, elapsedNanos, detail);
+		}
+	}
+
+	static void setRecording(boolean enabled) {
+		synchronized (Metrics.class) {
+			recording = enabled;
+			on = histograms || recording;
+		}
+	}
+
+	private static FlightRecorderBridge loadFlightRecorder() {
+		try {
+			Class.forName("jdk.jfr.FlightRecorder");
+			return (FlightRecorderBridge) Class.forName("application.metrics.JfrSupport")
+				.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return histograms;
+	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+		synchronized (Metrics.class) {
+			histograms = enabled;
+			on = histograms || recording;
+		}
+	}
+
+	@Override
+	public List<MetricSummary> getMetrics() {
+		List<MetricSummary> summaries = new ArrayList<>();
+		for (Metric metric : Metric.values()) {
+			summaries.add(MetricSummary.of(metric, metric.snapshot()));
+		}
+		return summaries;
+	}
+
+	@Override
+	public void reset() {
+		for (Metric metric : Metric.values()) {
+			metric.reset();
+		}
+	}
+}
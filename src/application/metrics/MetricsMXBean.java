@@ -0,0 +1,26 @@
+package application.metrics;
+
+import java.util.List;
+
+/**
+ * The application's measurements, as seen from JConsole or any JMX client
+ * under application:type=Metrics.
+ */
+public interface MetricsMXBean {
+	/**
+	 * Returns true if measurements are being added to the histograms.
+	 */
+	boolean isEnabled();
+
+	void setEnabled(boolean enabled);
+
+	/**
+	 * Returns the count and latency percentiles of every metric.
+	 */
+	List<MetricSummary> getMetrics();
+
+	/**
+	 * Empties every histogram.
+	 */
+	void reset();
+}
@@ -0,0 +1,17 @@
+package application.model;
+
+/**
+ * A template house whose details come from the style catalog file
+ * rather than from a class of its own.
+ */
+public class CatalogHouse extends House {
+
+	public CatalogHouse(HouseSpec spec) {
+		super(spec.getStyle());
+		setBedrooms(spec.getBedrooms());
+		setBathrooms(spec.getBathrooms());
+		setArea(spec.getArea());
+		setTemplateBasicRate(spec.getTemplateBasicRate());
+	}
+
+}
@@ -0,0 +1,287 @@
+package application.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import application.util.Util;
+
+/**
+ * Loads the style catalog from its data file.
+ *
+ * The catalog is a CSV file of style,bedrooms,bathrooms,area,templateBasicRate
+ * rows; blank lines and lines starting with # are ignored, and a catalog
+ * with no rows is rejected. A file on disk is compiled the first time it is
+ * read into a binary snapshot next to it, and later starts memory-map the
+ * snapshot instead of parsing the text, as long as the file has not changed
+ * since, as judged by its time and size. A reload after the file is edited
+ * always parses the text, so an edit that keeps both is still seen while the
+ * application runs.
+ *
+ * The catalog file is the midwest.catalog system property if set, otherwise
+ * catalog.csv in the .midwest-home-design folder of the user's home if it
+ * exists, otherwise the catalog bundled with the application.
+ */
+public final class CatalogLoader {
+	public static final String BUNDLED_CATALOG = "catalog.csv";
+
+	private static final int SNAPSHOT_MAGIC = 0x4D484353; // "MHCS"
+	private static final int SNAPSHOT_VERSION = 3;
+	private static final int SNAPSHOT_HEADER_SIZE = 4 + 4 + 8 + 8 + 4;
+
+	private CatalogLoader() {
+	}
+
+	/**
+	 * Returns the catalog file on disk that should be used, or null to use
+	 * the bundled catalog.
+	 */
+	public static Path getCatalogPath() {
+		String property = System.getProperty("midwest.catalog");
+		if (property != null) {
+			return Paths.get(property);
+		}
+		Path home = Paths.get(System.getProperty("user.home"), ".midwest-home-design", "catalog.csv");
+		return Files.isRegularFile(home) ? home : null;
+	}
+
+	/**
+	 * Returns the snapshot compiled from a catalog file, catalog.csv.snapshot next to it.
+	 *
+	 * @param catalog
+	 */
+	public static Path getSnapshotPath(Path catalog) {
+		return catalog.resolveSibling(catalog.getFileName() + ".snapshot");
+	}
+
+	/**
+	 * Loads the catalog in use as template houses. If it cannot be read the
+	 * built-in templates are returned, so the application can always start.
+	 */
+	public static List<House> loadTemplates() {
+		try {
+			return toHouses(load());
+		} catch (IOException | IllegalArgumentException e) {
+			e.printStackTrace();
+			return TemplateCatalog.createDefaultTemplates();
+		}
+	}
+
+	/**
+	 * Loads the catalog in use.
+	 *
+	 * @throws IOException
+	 */
+	public static List<HouseSpec> load() throws IOException {
+		Path catalog = getCatalogPath();
+		return catalog != null ? load(catalog) : loadBundled();
+	}
+
+	/**
+	 * Loads a catalog file, from its snapshot when that is up to date.
+	 * Otherwise the file is parsed and the snapshot rewritten.
+	 *
+	 * @param catalog
+	 * @throws IOException
+	 * @throws IllegalArgumentException If a row is malformed or there are none.
+	 */
+	public static List<HouseSpec> load(Path catalog) throws IOException {
+		return load(catalog, true);
+	}
+
+	/**
+	 * Parses a catalog file that has just been edited, ignoring its snapshot,
+	 * and rewrites the snapshot.
+	 *
+	 * @param catalog
+	 * @throws IOException
+	 * @throws IllegalArgumentException If a row is malformed or there are none.
+	 */
+	public static List<HouseSpec> reload(Path catalog) throws IOException {
+		return load(catalog, false);
+	}
+
+	private static List<HouseSpec> load(Path catalog, boolean useSnapshot) throws IOException {
+		Path snapshot = getSnapshotPath(catalog);
+		long modified = Files.getLastModifiedTime(catalog).toMillis();
+		long size = Files.size(catalog);
+
+		List<HouseSpec> specs = useSnapshot ? readSnapshot(snapshot, modified, size) : null;
+		if (specs != null) {
+			return specs;
+		}
+
+		try (Reader reader = Files.newBufferedReader(catalog, StandardCharsets.UTF_8)) {
+			specs = parse(reader);
+		}
+		try {
+			writeSnapshot(snapshot, specs, modified, size);
+		} catch (IOException e) {
+			// The snapshot only speeds up the next start; the catalog is still usable.
+			e.printStackTrace();
+		}
+		return specs;
+	}
+
+	public static List<HouseSpec> loadBundled() throws IOException {
+		InputStream in = CatalogLoader.class.getResourceAsStream(BUNDLED_CATALOG);
+		if (in == null) {
+			throw new IOException("Missing bundled catalog " + BUNDLED_CATALOG);
+		}
+		try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+			return parse(reader);
+		}
+	}
+
+	/**
+	 * Parses catalog rows. Each row is checked as a template
+	 * {@link PricingEngine} can price.
+	 *
+	 * @param reader
+	 * @throws IOException
+	 * @throws IllegalArgumentException If a row is malformed or there are none.
+	 */
+	public static List<HouseSpec> parse(Reader reader) throws IOException {
+		BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+		List<HouseSpec> specs = new ArrayList<>();
+		String line;
+		int number = 0;
+		while ((line = lines.readLine()) != null) {
+			number++;
+			String trimmed = line.trim();
+			if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.regionMatches(true, 0, "style,", 0, 6)) {
+				continue;
+			}
+
+			String[] fields = trimmed.split(",");
+			if (fields.length != 5) {
+				throw new IllegalArgumentException("Catalog line " + number
+					+ ": expected style,bedrooms,bathrooms,area,templateBasicRate");
+			}
+			try {
+				double bedrooms = Util.parseDouble(fields[1], 0, fields[1].length());
+				double bathrooms = Util.parseDouble(fields[2], 0, fields[2].length());
+				double area = Util.parseDouble(fields[3], 0, fields[3].length());
+				double templateBasicRate = Util.parseDouble(fields[4], 0, fields[4].length());
+				// A template is also quoted as a plan of its own size.
+				PricingEngine.checkTemplate(templateBasicRate, bedrooms, bathrooms);
+				PricingEngine.checkRequest(bedrooms, bathrooms, area);
+				specs.add(new HouseSpec(fields[0].trim(), bedrooms, bathrooms, area, templateBasicRate));
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Catalog line " + number + ": " + e.getMessage(), e);
+			}
+		}
+		if (specs.isEmpty()) {
+			throw new IllegalArgumentException("Catalog has no styles");
+		}
+		return specs;
+	}
+
+	public static List<House> toHouses(List<HouseSpec> specs) {
+		List<House> houses = new ArrayList<>(specs.size());
+		for (HouseSpec spec : specs) {
+			houses.add(new CatalogHouse(spec));
+		}
+		return houses;
+	}
+
+	/**
+	 * Reads a snapshot by memory-mapping it.
+	 *
+	 * @return The specs, or null if there is no snapshot or it was compiled
+	 *         from a different version of the catalog file.
+	 */
+	static List<HouseSpec> readSnapshot(Path snapshot, long modified, long size) {
+		if (!Files.isRegularFile(snapshot)) {
+			return null;
+		}
+		try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			if (buffer.remaining() < SNAPSHOT_HEADER_SIZE
+					|| buffer.getInt() != SNAPSHOT_MAGIC
+					|| buffer.getInt() != SNAPSHOT_VERSION
+					|| buffer.getLong() != modified
+					|| buffer.getLong() != size) {
+				return null;
+			}
+
+			int count = buffer.getInt();
+			if (count <= 0) {
+				return null;
+			}
+			List<HouseSpec> specs = new ArrayList<>(count);
+			byte[] style = new byte[64];
+			for (int i = 0; i < count; i++) {
+				int length = buffer.getShort() & 0xFFFF;
+				if (style.length < length) {
+					style = new byte[length];
+				}
+				buffer.get(style, 0, length);
+				specs.add(new HouseSpec(new String(style, 0, length, StandardCharsets.UTF_8),
+					buffer.getDouble(), buffer.getDouble(), buffer.getDouble(), buffer.getDouble()));
+			}
+			return specs;
+		} catch (IOException | RuntimeException e) {
+			// A damaged snapshot is rebuilt from the catalog file.
+			return null;
+		}
+	}
+
+	/**
+	 * Compiles specs into a snapshot. The snapshot is written to a temporary
+	 * file first, so a reader never sees a half-written one.
+	 */
+	static void writeSnapshot(Path snapshot, List<HouseSpec> specs, long modified, long size)
+			throws IOException {
+		List<byte[]> styles = new ArrayList<>(specs.size());
+		int length = SNAPSHOT_HEADER_SIZE;
+		for (HouseSpec spec : specs) {
+			byte[] style = spec.getStyle().getBytes(StandardCharsets.UTF_8);
+			if (style.length > 0xFFFF) {
+				throw new IOException("Style name too long: " + spec.getStyle());
+			}
+			styles.add(style);
+			length += 2 + style.length + 4 * 8;
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		buffer.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putLong(modified).putLong(size).putInt(specs.size());
+		for (int i = 0; i < specs.size(); i++) {
+			HouseSpec spec = specs.get(i);
+			byte[] style = styles.get(i);
+			buffer.putShort((short) style.length).put(style)
+				.putDouble(spec.getBedrooms())
+				.putDouble(spec.getBathrooms())
+				.putDouble(spec.getArea())
+				.putDouble(spec.getTemplateBasicRate());
+		}
+		buffer.flip();
+
+		Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			channel.force(true);
+		}
+		try {
+			Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package application.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Reloads the style catalog whenever its file changes.
+ *
+ * Editors often write a file in several steps, so changes are collected
+ * until the file has been quiet for a moment before it is reloaded. A file
+ * that fails to load is reported and the previous catalog stays in use.
+ */
+public class CatalogWatcher implements Closeable {
+	private static final long QUIET_MILLIS = 250;
+
+	private final Path catalog;
+	private final Consumer<List<HouseSpec>> listener;
+	private final WatchService watchService;
+	private final Thread thread;
+
+	/**
+	 * @param catalog The catalog file to watch.
+	 * @param listener Called on the watcher's thread with each reloaded catalog.
+	 * @throws IOException
+	 */
+	public CatalogWatcher(Path catalog, Consumer<List<HouseSpec>> listener) throws IOException {
+		this.catalog = catalog.toAbsolutePath();
+		this.listener = listener;
+		this.watchService = FileSystems.getDefault().newWatchService();
+		this.catalog.getParent().register(watchService,
+			StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+		thread = new Thread(this::watch, "catalog-watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	@Override
+	public void close() throws IOException {
+		watchService.close();
+	}
+
+	private void watch() {
+		try {
+			while (true) {
+				if (!changed(watchService.take())) {
+					continue;
+				}
+
+				// Wait for the writes to settle before reading the file.
+				WatchKey key;
+				while ((key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+					changed(key);
+				}
+
+				try {
+					listener.accept(CatalogLoader.reload(catalog));
+				} catch (IOException | IllegalArgumentException e) {
+					System.err.println("Catalog " + catalog + " was not reloaded: " + e.getMessage());
+				}
+			}
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// Closed.
+		}
+	}
+
+	/**
+	 * Returns true if any event of the key is about the catalog file, and resets the key.
+	 */
+	private boolean changed(WatchKey key) {
+		boolean changed = false;
+		for (WatchEvent<?> event : key.pollEvents()) {
+			Object context = event.context();
+			if (context instanceof Path && catalog.getFileName().equals(context)) {
+				changed = true;
+			}
+		}
+		key.reset();
+		return changed;
+	}
+}
@@ -2,115 +2,225 @@ package application.model;
 
 import java.util.Map;
 
+import application.metrics.Metric;
+import application.metrics.Metrics;
 import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.beans.property.SimpleDoubleProperty;
-import javafx.beans.property.SimpleStringProperty;
-import javafx.beans.property.StringProperty;
 
 // Traditional, Modern, European, Southwest, Mountain, Victorian, and Country.
 public abstract class House implements Cloneable, Comparable<House>, Customizable {
-	protected final double TAX = 0.05;
-	protected StringProperty style;
-	protected DoubleProperty numOfBedrooms;
-	protected DoubleProperty numOfBathrooms;
-	protected DoubleProperty totalArea;
-	protected DoubleProperty templateBasicRate;
-	
+	protected final double TAX = PricingEngine.TAX;
+
+	// The details are kept in primitive fields. A JavaFX property is only
+	// created when a view asks for one, and from then on holds the value.
+	private final String style;
+	private double numOfBedrooms;
+	private double numOfBathrooms;
+	private double totalArea = 2000;
+	private double templateBasicRate;
+
+	private ReadOnlyStringWrapper styleProperty;
+	private DoubleProperty numOfBedroomsProperty;
+	private DoubleProperty numOfBathroomsProperty;
+	private DoubleProperty totalAreaProperty;
+	private DoubleProperty templateBasicRateProperty;
+
+	// Cached by toSpec() until one of the details changes.
+	private HouseSpec spec;
+
 	public House(String style) {
-		this.style = new SimpleStringProperty(style);
-		this.totalArea = new SimpleDoubleProperty(2000);
-		this.templateBasicRate = new SimpleDoubleProperty(0);
+		this.style = style;
 	}
-	
+
 	public double getCost(Map<String, Double> customizations) {
-		double templateBasicRate = this.templateBasicRate.get();
-		
-		if (customizations.get("area") > 3000) {
-			templateBasicRate *= 1.5;
+		return getCost(customizations.get("numOfBedrooms"),
+				customizations.get("numOfBathrooms"),
+				customizations.get("area"));
+	}
+
+	/**
+	 * Calculates the total cost of customizing this house without boxing.
+	 *
+	 * @see PricingEngine#quote(House, double, double, double)
+	 */
+	public double getCost(double numOfBedrooms, double numOfBathrooms, double area) {
+		return Money.toDollars(getCostCents(numOfBedrooms, numOfBathrooms, area));
+	}
+
+	/**
+	 * Calculates the total cost of customizing this house in cents.
+	 */
+	public long getCostCents(double numOfBedrooms, double numOfBathrooms, double area) {
+		long start = Metrics.start();
+		long cost = PricingEngine.quoteCents(this, numOfBedrooms, numOfBathrooms, area);
+		Metric.QUOTE.record(start);
+		return cost;
+	}
+
+	/**
+	 * Returns an immutable snapshot of this house that may be used from any thread.
+	 * The same snapshot is returned until one of the details changes.
+	 */
+	public HouseSpec toSpec() {
+		HouseSpec spec = this.spec;
+		if (spec == null) {
+			spec = new HouseSpec(getStyle(), getBedrooms(), getBathrooms(), getArea(), getTemplateBasicRate());
+			this.spec = spec;
 		}
-		
-		double cost = templateBasicRate +
-			(800 * getExtraBedrooms(customizations.get("numOfBedrooms"))) +
-			(500 * getExtraBathrooms(customizations.get("numOfBathrooms")));
-		
-		return cost + (cost * TAX);
-	}
-	
-	private double getExtraBedrooms(double numOfBedrooms) {
-		double extraBedrooms = numOfBedrooms - this.getBedrooms();
-		return extraBedrooms >= 0 ? extraBedrooms : 0;
-	}
-	
-	private double getExtraBathrooms(double numOfBathrooms) {
-		double extraBathrooms = numOfBathrooms - this.getBathrooms();
-		return extraBathrooms >= 0 ? extraBathrooms : 0;
-	}
-	
+		return spec;
+	}
+
+	/**
+	 * Orders houses by their basic rate, cheapest first, then by style,
+	 * bedrooms, bathrooms and area. Only houses with the same details
+	 * compare as equal, so the order is total and sorts are stable across runs.
+	 */
 	@Override
 	public int compareTo(House house) {
-		if (this.style.get() == house.style.get()						&&
-			this.numOfBedrooms.get() == house.numOfBedrooms.get()		&&
-			this.numOfBathrooms.get() == house.numOfBathrooms.get()		&&
-			this.totalArea.get() == house.totalArea.get()) {
-			return 0;
+		int order = Double.compare(this.getTemplateBasicRate(), house.getTemplateBasicRate());
+		if (order == 0) {
+			order = this.getStyle().compareTo(house.getStyle());
+		}
+		if (order == 0) {
+			order = Double.compare(this.getBedrooms(), house.getBedrooms());
+		}
+		if (order == 0) {
+			order = Double.compare(this.getBathrooms(), house.getBathrooms());
 		}
-		
-		if (this.templateBasicRate.get() > house.templateBasicRate.get()) {
-			return 1;
-		} else if (this.templateBasicRate.get() <= house.templateBasicRate.get()) {
-			return -1;
+		if (order == 0) {
+			order = Double.compare(this.getArea(), house.getArea());
 		}
-		
-		return 0;
+		return order;
 	}
-	
+
+	/**
+	 * Copies the details of this house. The copy starts without JavaFX
+	 * properties, so changing it never affects a view bound to this house.
+	 */
 	@Override
 	public Object clone() throws CloneNotSupportedException {
-		return super.clone();
+		House copy = (House) super.clone();
+		copy.numOfBedrooms = getBedrooms();
+		copy.numOfBathrooms = getBathrooms();
+		copy.totalArea = getArea();
+		copy.templateBasicRate = getTemplateBasicRate();
+		copy.styleProperty = null;
+		copy.numOfBedroomsProperty = null;
+		copy.numOfBathroomsProperty = null;
+		copy.totalAreaProperty = null;
+		copy.templateBasicRateProperty = null;
+		return copy;
 	}
-	
+
 	@Override
 	public String toString() {
-		return this.style.get();
+		return this.style;
 	}
-	
+
 	public String getStyle() {
-		return this.style.get();
+		return this.style;
 	}
-	
+
+	public ReadOnlyStringProperty styleProperty() {
+		if (styleProperty == null) {
+			styleProperty = new ReadOnlyStringWrapper(this, "style", style);
+		}
+		return styleProperty.getReadOnlyProperty();
+	}
+
 	@Override
 	public void setBedrooms(double numOfBedrooms) {
-		this.numOfBedrooms = new SimpleDoubleProperty(numOfBedrooms);
+		if (numOfBedroomsProperty != null) {
+			numOfBedroomsProperty.set(numOfBedrooms);
+		} else {
+			this.numOfBedrooms = numOfBedrooms;
+			this.spec = null;
+		}
 	}
-	
+
 	public double getBedrooms() {
-		return this.numOfBedrooms.get();
+		return numOfBedroomsProperty != null ? numOfBedroomsProperty.get() : this.numOfBedrooms;
 	}
-	
+
+	public DoubleProperty bedroomsProperty() {
+		if (numOfBedroomsProperty == null) {
+			numOfBedroomsProperty = createProperty("numOfBedrooms", numOfBedrooms);
+		}
+		return numOfBedroomsProperty;
+	}
+
 	@Override
 	public void setBathrooms(double numOfBathrooms) {
-		this.numOfBathrooms = new SimpleDoubleProperty(numOfBathrooms);
+		if (numOfBathroomsProperty != null) {
+			numOfBathroomsProperty.set(numOfBathrooms);
+		} else {
+			this.numOfBathrooms = numOfBathrooms;
+			this.spec = null;
+		}
 	}
-	
+
 	public double getBathrooms() {
-		return this.numOfBathrooms.get();
+		return numOfBathroomsProperty != null ? numOfBathroomsProperty.get() : this.numOfBathrooms;
 	}
-	
+
+	public DoubleProperty bathroomsProperty() {
+		if (numOfBathroomsProperty == null) {
+			numOfBathroomsProperty = createProperty("numOfBathrooms", numOfBathrooms);
+		}
+		return numOfBathroomsProperty;
+	}
+
 	@Override
 	public void setArea(double area) {
-		this.totalArea = new SimpleDoubleProperty(area);
+		if (totalAreaProperty != null) {
+			totalAreaProperty.set(area);
+		} else {
+			this.totalArea = area;
+			this.spec = null;
+		}
 	}
-	
+
 	public double getArea() {
-		return this.totalArea.get();
+		return totalAreaProperty != null ? totalAreaProperty.get() : this.totalArea;
 	}
-	
+
+	public DoubleProperty areaProperty() {
+		if (totalAreaProperty == null) {
+			totalAreaProperty = createProperty("totalArea", totalArea);
+		}
+		return totalAreaProperty;
+	}
+
 	@Override
 	public void setTemplateBasicRate(double templateBasicRate) {
-		this.templateBasicRate = new SimpleDoubleProperty(templateBasicRate);
+		if (templateBasicRateProperty != null) {
+			templateBasicRateProperty.set(templateBasicRate);
+		} else {
+			this.templateBasicRate = templateBasicRate;
+			this.spec = null;
+		}
 	}
-	
+
 	public double getTemplateBasicRate() {
-		return this.templateBasicRate.get();
+		return templateBasicRateProperty != null ? templateBasicRateProperty.get() : this.templateBasicRate;
+	}
+
+	public DoubleProperty templateBasicRateProperty() {
+		if (templateBasicRateProperty == null) {
+			templateBasicRateProperty = createProperty("templateBasicRate", templateBasicRate);
+		}
+		return templateBasicRateProperty;
+	}
+
+	/**
+	 * Creates a property that drops the cached spec whenever it changes,
+	 * including through a binding.
+	 */
+	private DoubleProperty createProperty(String name, double value) {
+		DoubleProperty property = new SimpleDoubleProperty(this, name, value);
+		property.addListener(observable -> this.spec = null);
+		return property;
 	}
 }
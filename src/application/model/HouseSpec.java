@@ -0,0 +1,100 @@
+package application.model;
+
+/**
+ * An immutable snapshot of a house's details in primitive fields.
+ *
+ * Unlike House, a HouseSpec holds no JavaFX properties and can be shared
+ * freely between threads, so pricing and template matching can run in
+ * the background or in batch jobs.
+ */
+public final class HouseSpec {
+	private final String style;
+	private final double numOfBedrooms;
+	private final double numOfBathrooms;
+	private final double area;
+	private final double templateBasicRate;
+
+	public HouseSpec(String style, double numOfBedrooms, double numOfBathrooms, double area,
+			double templateBasicRate) {
+		if (style == null) {
+			throw new IllegalArgumentException("style must not be null");
+		}
+		this.style = style;
+		this.numOfBedrooms = numOfBedrooms;
+		this.numOfBathrooms = numOfBathrooms;
+		this.area = area;
+		this.templateBasicRate = templateBasicRate;
+	}
+
+	public String getStyle() {
+		return style;
+	}
+
+	public double getBedrooms() {
+		return numOfBedrooms;
+	}
+
+	public double getBathrooms() {
+		return numOfBathrooms;
+	}
+
+	public double getArea() {
+		return area;
+	}
+
+	public double getTemplateBasicRate() {
+		return templateBasicRate;
+	}
+
+	/**
+	 * Returns a spec of the same style and rate with the given customizations.
+	 *
+	 * @param numOfBedrooms
+	 * @param numOfBathrooms
+	 * @param area
+	 */
+	public HouseSpec customize(double numOfBedrooms, double numOfBathrooms, double area) {
+		return new HouseSpec(style, numOfBedrooms, numOfBathrooms, area, templateBasicRate);
+	}
+
+	/**
+	 * Returns true if both specs have the same style, bedrooms, bathrooms and
+	 * area, which is how a customized house is matched to a template.
+	 *
+	 * @param other
+	 */
+	public boolean sameLayout(HouseSpec other) {
+		return numOfBedrooms == other.numOfBedrooms
+			&& numOfBathrooms == other.numOfBathrooms
+			&& area == other.area
+			&& style.equals(other.style);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof HouseSpec)) {
+			return false;
+		}
+		HouseSpec other = (HouseSpec) obj;
+		return sameLayout(other)
+			&& Double.compare(templateBasicRate, other.templateBasicRate) == 0;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = style.hashCode();
+		hash = 31 * hash + Double.hashCode(numOfBedrooms + 0.0);
+		hash = 31 * hash + Double.hashCode(numOfBathrooms + 0.0);
+		hash = 31 * hash + Double.hashCode(area + 0.0);
+		hash = 31 * hash + Double.hashCode(templateBasicRate);
+		return hash;
+	}
+
+	@Override
+	public String toString() {
+		return style;
+	}
+}
@@ -0,0 +1,103 @@
+package application.model;
+
+import application.util.CurrencyFormatter;
+
+/**
+ * An exact amount of money, held as a whole number of cents.
+ *
+ * Prices are computed in cents so totals add up exactly and compare with
+ * ==. Hot paths work on the long cents directly through the static methods;
+ * instances are for code that wants a value type.
+ */
+public final class Money implements Comparable<Money> {
+	public static final Money ZERO = new Money(0);
+
+	private final long cents;
+
+	private Money(long cents) {
+		this.cents = cents;
+	}
+
+	public static Money ofCents(long cents) {
+		return cents == 0 ? ZERO : new Money(cents);
+	}
+
+	/**
+	 * Returns an amount of dollars rounded to the nearest cent.
+	 *
+	 * @param dollars
+	 */
+	public static Money of(double dollars) {
+		return ofCents(centsOf(dollars));
+	}
+
+	/**
+	 * Rounds an amount of dollars to the nearest cent, halves up.
+	 *
+	 * @param dollars
+	 * @return The cents.
+	 * @throws ArithmeticException If dollars is not a number or has more cents than a long holds.
+	 */
+	public static long centsOf(double dollars) {
+		double cents = dollars * 100;
+		// Math.round would give Long.MAX_VALUE, Long.MIN_VALUE or 0 instead.
+		if (!(Math.abs(cents) < 0x1p63)) {
+			throw new ArithmeticException("Not a number of cents: " + dollars + " dollars");
+		}
+		return Math.round(cents);
+	}
+
+	public static double toDollars(long cents) {
+		return cents / 100.0;
+	}
+
+	/**
+	 * Returns the given share of an amount of cents, in basis points
+	 * (hundredths of a percent), rounded to the nearest cent, halves up.
+	 *
+	 * @param cents
+	 * @param basisPoints
+	 */
+	public static long percentOf(long cents, long basisPoints) {
+		return Math.floorDiv(Math.multiplyExact(cents, basisPoints) + 5_000, 10_000);
+	}
+
+	public long getCents() {
+		return cents;
+	}
+
+	public double toDollars() {
+		return toDollars(cents);
+	}
+
+	public Money plus(Money other) {
+		return ofCents(Math.addExact(cents, other.cents));
+	}
+
+	public Money minus(Money other) {
+		return ofCents(Math.subtractExact(cents, other.cents));
+	}
+
+	@Override
+	public int compareTo(Money other) {
+		return Long.compare(cents, other.cents);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof Money && ((Money) obj).cents == cents;
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(cents);
+	}
+
+	/**
+	 * Returns the amount as currency of the default locale.
+	 */
+	@Override
+	public String toString() {
+		return CurrencyFormatter.getInstance().format(cents);
+	}
+}
@@ -0,0 +1,83 @@
+package application.model;
+
+import java.util.Comparator;
+
+import application.util.CurrencyFormatter;
+
+/**
+ * An immutable order for a customized house.
+ */
+public final class Order {
+	/**
+	 * Orders by when they were placed, then by id.
+	 */
+	public static final Comparator<Order> BY_TIME = (a, b) -> {
+		int order = Long.compare(a.timestamp, b.timestamp);
+		return order != 0 ? order : Long.compare(a.id, b.id);
+	};
+
+	private final long id;
+	private final long timestamp;
+	private final String style;
+	private final double numOfBedrooms;
+	private final double numOfBathrooms;
+	private final double area;
+	private final long costCents;
+
+	/**
+	 * @param id The number of the order, unique within its store.
+	 * @param timestamp When the order was placed, in milliseconds since the epoch.
+	 * @param style
+	 * @param numOfBedrooms
+	 * @param numOfBathrooms
+	 * @param area
+	 * @param costCents The total cost in cents, tax included.
+	 */
+	public Order(long id, long timestamp, String style, double numOfBedrooms, double numOfBathrooms,
+			double area, long costCents) {
+		this.id = id;
+		this.timestamp = timestamp;
+		this.style = style;
+		this.numOfBedrooms = numOfBedrooms;
+		this.numOfBathrooms = numOfBathrooms;
+		this.area = area;
+		this.costCents = costCents;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public String getStyle() {
+		return style;
+	}
+
+	public double getBedrooms() {
+		return numOfBedrooms;
+	}
+
+	public double getBathrooms() {
+		return numOfBathrooms;
+	}
+
+	public double getArea() {
+		return area;
+	}
+
+	public long getCostCents() {
+		return costCents;
+	}
+
+	public double getCost() {
+		return Money.toDollars(costCents);
+	}
+
+	@Override
+	public String toString() {
+		return "#" + id + " " + timestamp + " " + style + " " + numOfBedrooms + "/" + numOfBathrooms + "/" + area + " " + CurrencyFormatter.PLAIN.format(costCents);
+	}
+}
@@ -0,0 +1,738 @@
+package application.model;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import application.util.QuoteFormat;
+
+/**
+ * An immutable inventory of house plans, searchable by ranges.
+ *
+ * Plans are stored column by column in primitive arrays, with the style of
+ * each plan encoded as an index into a dictionary of style names. Rows are
+ * kept sorted by area, and each style, the bedrooms and the bathrooms have
+ * an index of their own. A search narrows the rows with whichever index
+ * selects the fewest of them and then checks the other columns in a tight
+ * loop, so ranges over millions of plans answer in milliseconds.
+ *
+ * The cheapest matches can be ranked without sorting them all: the price of
+ * every plan is computed once per StyleRateTable into a column of cents,
+ * and a bounded heap keeps the best rows while the matches are scanned.
+ */
+public final class PlanInventory {
+	/**
+	 * The cost of a plan that has not been priced, or whose style has no template.
+	 */
+	public static final long NO_COST = Long.MAX_VALUE;
+
+	private final String[] styles;
+	private final Map<String, Integer> styleCodes;
+
+	private final int size;
+	private final int[] style;
+	private final double[] bedrooms;
+	private final double[] bathrooms;
+	private final double[] area;
+
+	/**
+	 * The rows of each style, in row order and so by area.
+	 */
+	private final int[][] styleRows;
+
+	/**
+	 * The rows sorted by bedrooms and by bathrooms, with the sorted values alongside.
+	 */
+	private final int[] byBedrooms;
+	private final double[] sortedBedrooms;
+	private final int[] byBathrooms;
+	private final double[] sortedBathrooms;
+
+	/**
+	 * The price of each row under the rates last ranked with.
+	 */
+	private volatile CostColumn costColumn;
+
+	private static final class CostColumn {
+		final StyleRateTable rates;
+		final long[] cents;
+
+		CostColumn(StyleRateTable rates, long[] cents) {
+			this.rates = rates;
+			this.cents = cents;
+		}
+	}
+
+	/**
+	 * One plan of the inventory, created when it is looked at.
+	 */
+	public static final class Plan {
+		private final int row;
+		private final String style;
+		private final double bedrooms;
+		private final double bathrooms;
+		private final double area;
+		private final long costCents;
+
+		Plan(int row, String style, double bedrooms, double bathrooms, double area, long costCents) {
+			this.row = row;
+			this.style = style;
+			this.bedrooms = bedrooms;
+			this.bathrooms = bathrooms;
+			this.area = area;
+			this.costCents = costCents;
+		}
+
+		public int getRow() {
+			return row;
+		}
+
+		public String getStyle() {
+			return style;
+		}
+
+		public double getBedrooms() {
+			return bedrooms;
+		}
+
+		public double getBathrooms() {
+			return bathrooms;
+		}
+
+		public double getArea() {
+			return area;
+		}
+
+		/**
+		 * Returns the price of the plan in cents, or NO_COST unless it came
+		 * from a ranked result.
+		 */
+		public long getCostCents() {
+			return costCents;
+		}
+
+		@Override
+		public String toString() {
+			String text = style + ", " + format(bedrooms) + " bed, " + format(bathrooms) + " bath, "
+				+ format(area) + " sq ft";
+			return costCents == NO_COST ? text : text + ", " + Money.ofCents(costCents);
+		}
+
+		private static String format(double value) {
+			return value == (long) value ? Long.toString((long) value) : Double.toString(value);
+		}
+	}
+
+	/**
+	 * The criteria of a search. Every range is inclusive and unbounded until set.
+	 */
+	public static final class Query {
+		private String style;
+		private double minBedrooms = Double.NEGATIVE_INFINITY;
+		private double maxBedrooms = Double.POSITIVE_INFINITY;
+		private double minBathrooms = Double.NEGATIVE_INFINITY;
+		private double maxBathrooms = Double.POSITIVE_INFINITY;
+		private double minArea = Double.NEGATIVE_INFINITY;
+		private double maxArea = Double.POSITIVE_INFINITY;
+
+		/**
+		 * @param style The style to match, or null for any style.
+		 * @return this query
+		 */
+		public Query style(String style) {
+			this.style = style;
+			return this;
+		}
+
+		public Query bedrooms(double min, double max) {
+			this.minBedrooms = min;
+			this.maxBedrooms = max;
+			return this;
+		}
+
+		public Query bathrooms(double min, double max) {
+			this.minBathrooms = min;
+			this.maxBathrooms = max;
+			return this;
+		}
+
+		public Query area(double min, double max) {
+			this.minArea = min;
+			this.maxArea = max;
+			return this;
+		}
+	}
+
+	/**
+	 * The rows matching a search, in order of area, or the cheapest of them
+	 * in order of cost. Plans are only created for the rows that are asked
+	 * for, so a view can page through millions.
+	 */
+	public final class Result extends AbstractList<Plan> {
+		private final int[] rows;
+		private final long[] costs;
+		private final int count;
+		private final int matched;
+		private final long nanos;
+
+		Result(int[] rows, int count, long nanos) {
+			this(rows, null, count, count, nanos);
+		}
+
+		Result(int[] rows, long[] costs, int count, int matched, long nanos) {
+			this.rows = rows;
+			this.costs = costs;
+			this.count = count;
+			this.matched = matched;
+			this.nanos = nanos;
+		}
+
+		@Override
+		public Plan get(int index) {
+			if (index < 0 || index >= count) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+			}
+			int row = rows[index];
+			return new Plan(row, styles[style[row]], bedrooms[row], bathrooms[row], area[row],
+				costs == null ? NO_COST : costs[index]);
+		}
+
+		@Override
+		public int size() {
+			return count;
+		}
+
+		/**
+		 * Returns the row of the inventory at the given index of the result.
+		 */
+		public int getRow(int index) {
+			if (index < 0 || index >= count) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+			}
+			return rows[index];
+		}
+
+		/**
+		 * Returns one page of the result.
+		 *
+		 * @param page The page, starting at 0.
+		 * @param pageSize
+		 */
+		public List<Plan> page(int page, int pageSize) {
+			int from = Math.min(page * pageSize, count);
+			return subList(from, Math.min(from + pageSize, count));
+		}
+
+		/**
+		 * Returns how many plans matched the query. A ranked result holds
+		 * only the cheapest of them.
+		 */
+		public int getMatched() {
+			return matched;
+		}
+
+		/**
+		 * Returns how long the search took, in nanoseconds.
+		 */
+		public long getNanos() {
+			return nanos;
+		}
+	}
+
+	/**
+	 * Collects plans and builds the inventory.
+	 */
+	public static final class Builder {
+		private final List<String> styles = new ArrayList<>();
+		private final Map<String, Integer> styleCodes = new HashMap<>();
+		private int size;
+		private int[] style = new int[1024];
+		private double[] bedrooms = new double[1024];
+		private double[] bathrooms = new double[1024];
+		private double[] area = new double[1024];
+
+		public Builder add(String style, double bedrooms, double bathrooms, double area) {
+			if (size == this.style.length) {
+				int capacity = size * 2;
+				this.style = Arrays.copyOf(this.style, capacity);
+				this.bedrooms = Arrays.copyOf(this.bedrooms, capacity);
+				this.bathrooms = Arrays.copyOf(this.bathrooms, capacity);
+				this.area = Arrays.copyOf(this.area, capacity);
+			}
+			Integer code = styleCodes.get(style);
+			if (code == null) {
+				code = styles.size();
+				styles.add(style);
+				styleCodes.put(style, code);
+			}
+			this.style[size] = code;
+			this.bedrooms[size] = bedrooms;
+			this.bathrooms[size] = bathrooms;
+			this.area[size] = area;
+			size++;
+			return this;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public PlanInventory build() {
+			return new PlanInventory(this);
+		}
+	}
+
+	private PlanInventory(Builder builder) {
+		styles = builder.styles.toArray(new String[0]);
+		styleCodes = new HashMap<>(builder.styleCodes);
+		size = builder.size;
+
+		// Store the rows in order of area.
+		int[] order = identity(size);
+		sort(order, builder.area, 0, size - 1);
+		style = new int[size];
+		bedrooms = new double[size];
+		bathrooms = new double[size];
+		area = new double[size];
+		for (int i = 0; i < size; i++) {
+			int row = order[i];
+			style[i] = builder.style[row];
+			bedrooms[i] = builder.bedrooms[row];
+			bathrooms[i] = builder.bathrooms[row];
+			area[i] = builder.area[row];
+		}
+
+		int[] counts = new int[styles.length];
+		for (int i = 0; i < size; i++) {
+			counts[style[i]]++;
+		}
+		styleRows = new int[styles.length][];
+		for (int code = 0; code < styles.length; code++) {
+			styleRows[code] = new int[counts[code]];
+		}
+		Arrays.fill(counts, 0);
+		for (int i = 0; i < size; i++) {
+			styleRows[style[i]][counts[style[i]]++] = i;
+		}
+
+		byBedrooms = identity(size);
+		sort(byBedrooms, bedrooms, 0, size - 1);
+		sortedBedrooms = gather(bedrooms, byBedrooms);
+		byBathrooms = identity(size);
+		sort(byBathrooms, bathrooms, 0, size - 1);
+		sortedBathrooms = gather(bathrooms, byBathrooms);
+	}
+
+	/**
+	 * Builds an inventory of the given houses, such as the templates.
+	 *
+	 * @param houses
+	 */
+	public static PlanInventory of(List<House> houses) {
+		Builder builder = new Builder();
+		for (House house : houses) {
+			builder.add(house.getStyle(), house.getBedrooms(), house.getBathrooms(), house.getArea());
+		}
+		return builder.build();
+	}
+
+	/**
+	 * Loads an inventory from a file of style,bedrooms,bathrooms,area rows,
+	 * the format BatchQuote reads. An optional header row is skipped.
+	 *
+	 * @param path
+	 * @throws IOException
+	 * @throws IllegalArgumentException If a row is malformed or cannot be priced.
+	 */
+	public static PlanInventory load(Path path) throws IOException {
+		Builder builder = new Builder();
+		QuoteRequest request = new QuoteRequest();
+		try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			String line;
+			int number = 0;
+			while ((line = reader.readLine()) != null) {
+				number++;
+				if (line.isEmpty() || (number == 1 && QuoteFormat.CSV.isHeader(line))) {
+					continue;
+				}
+				try {
+					QuoteFormat.CSV.parse(line, request);
+					PricingEngine.checkRequest(request.getBedrooms(), request.getBathrooms(), request.getArea());
+				} catch (IllegalArgumentException e) {
+					throw new IllegalArgumentException(path + " line " + number + ": " + e.getMessage(), e);
+				}
+				builder.add(request.getStyle(), request.getBedrooms(), request.getBathrooms(), request.getArea());
+			}
+		}
+		return builder.build();
+	}
+
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the styles of the plans, in the order they were first added.
+	 */
+	public List<String> getStyles() {
+		return Collections.unmodifiableList(Arrays.asList(styles));
+	}
+
+	public Plan getPlan(int row) {
+		return new Plan(row, styles[style[row]], bedrooms[row], bathrooms[row], area[row], NO_COST);
+	}
+
+	/**
+	 * Finds the plans matching a query.
+	 *
+	 * @param query
+	 */
+	public Result search(Query query) {
+		long start = System.nanoTime();
+		Scan scan = scan(query);
+		if (scan == null) {
+			return new Result(new int[0], 0, System.nanoTime() - start);
+		}
+
+		int[] matches = new int[Math.max(0, scan.to - scan.from)];
+		int count = 0;
+		for (int i = scan.from; i < scan.to; i++) {
+			int row = scan.candidates == null ? i : scan.candidates[i];
+			if (matches(row, scan.code, query)) {
+				matches[count++] = row;
+			}
+		}
+		if (!scan.inRowOrder) {
+			Arrays.sort(matches, 0, count);
+		}
+		return new Result(matches, count, System.nanoTime() - start);
+	}
+
+	/**
+	 * Finds the cheapest plans matching a query, cheapest first. Plans of
+	 * the same cost are in the inventory's order of area, so the ranking is
+	 * the same on every call. Plans whose style has no template in the
+	 * rates are left out.
+	 *
+	 * The matches are scanned once, keeping the cheapest in a heap of at
+	 * most limit rows, so ranking is linear in the matches.
+	 *
+	 * @param query
+	 * @param rates The prices of the templates.
+	 * @param limit The most plans to return.
+	 */
+	public Result cheapest(Query query, StyleRateTable rates, int limit) {
+		long start = System.nanoTime();
+		long[] prices = costCents(rates);
+		Scan scan = scan(query);
+		if (scan == null || limit <= 0) {
+			return new Result(new int[0], new long[0], 0, 0, System.nanoTime() - start);
+		}
+
+		// A max-heap of the cheapest rows so far, ordered by cost and then row.
+		int capacity = Math.min(limit, Math.max(0, scan.to - scan.from));
+		long[] heapCosts = new long[capacity];
+		int[] heapRows = new int[capacity];
+		int count = 0;
+		int matched = 0;
+		for (int i = scan.from; i < scan.to; i++) {
+			int row = scan.candidates == null ? i : scan.candidates[i];
+			long cost = prices[row];
+			if (cost == NO_COST || !matches(row, scan.code, query)) {
+				continue;
+			}
+			matched++;
+			if (count < capacity) {
+				heapCosts[count] = cost;
+				heapRows[count] = row;
+				siftUp(heapCosts, heapRows, count++);
+			} else if (before(cost, row, heapCosts[0], heapRows[0])) {
+				heapCosts[0] = cost;
+				heapRows[0] = row;
+				siftDown(heapCosts, heapRows, 0, count);
+			}
+		}
+
+		// Heapsort what is left: the largest moves to the end each time.
+		for (int last = count - 1; last > 0; last--) {
+			swap(heapCosts, heapRows, 0, last);
+			siftDown(heapCosts, heapRows, 0, last);
+		}
+		return new Result(heapRows, heapCosts, count, matched, System.nanoTime() - start);
+	}
+
+	/**
+	 * Returns the price in cents of every row under the given rates, or
+	 * NO_COST for rows whose style has no template. The column is computed
+	 * once and kept until other rates are asked for.
+	 *
+	 * @param rates
+	 */
+	public long[] costCents(StyleRateTable rates) {
+		CostColumn column = costColumn;
+		if (column != null && column.rates == rates) {
+			return column.cents;
+		}
+
+		int[] templates = new int[styles.length];
+		for (int code = 0; code < styles.length; code++) {
+			templates[code] = rates.indexOf(styles[code]);
+		}
+		long[] cents = new long[size];
+		for (int row = 0; row < size; row++) {
+			int template = templates[style[row]];
+			cents[row] = template < 0 ? NO_COST
+				: rates.quoteCents(template, bedrooms[row], bathrooms[row], area[row]);
+		}
+		costColumn = new CostColumn(rates, cents);
+		return cents;
+	}
+
+	/**
+	 * The rows a query has to check: positions from to to of the candidate
+	 * rows, or of all rows when there are no candidates.
+	 */
+	private static final class Scan {
+		int code = -1;
+		int[] candidates;
+		int from;
+		int to;
+		boolean inRowOrder = true;
+	}
+
+	/**
+	 * Picks the index that leaves the fewest rows to check, or returns null
+	 * if the query's style is not in the inventory.
+	 */
+	private Scan scan(Query query) {
+		Scan scan = new Scan();
+		if (query.style != null) {
+			Integer found = styleCodes.get(query.style);
+			if (found == null) {
+				return null;
+			}
+			scan.code = found;
+		}
+
+		scan.from = lowerBound(area, query.minArea);
+		scan.to = upperBound(area, query.maxArea);
+
+		if (scan.code >= 0) {
+			int[] rows = styleRows[scan.code];
+			int styleFrom = lowerBound(rows, area, query.minArea);
+			int styleTo = upperBound(rows, area, query.maxArea);
+			if (styleTo - styleFrom < scan.to - scan.from) {
+				scan.candidates = rows;
+				scan.from = styleFrom;
+				scan.to = styleTo;
+			}
+		}
+		int bedroomsFrom = lowerBound(sortedBedrooms, query.minBedrooms);
+		int bedroomsTo = upperBound(sortedBedrooms, query.maxBedrooms);
+		if (bedroomsTo - bedroomsFrom < scan.to - scan.from) {
+			scan.candidates = byBedrooms;
+			scan.from = bedroomsFrom;
+			scan.to = bedroomsTo;
+			scan.inRowOrder = false;
+		}
+		int bathroomsFrom = lowerBound(sortedBathrooms, query.minBathrooms);
+		int bathroomsTo = upperBound(sortedBathrooms, query.maxBathrooms);
+		if (bathroomsTo - bathroomsFrom < scan.to - scan.from) {
+			scan.candidates = byBathrooms;
+			scan.from = bathroomsFrom;
+			scan.to = bathroomsTo;
+			scan.inRowOrder = false;
+		}
+		return scan;
+	}
+
+	private boolean matches(int row, int code, Query query) {
+		return (code < 0 || style[row] == code)
+			&& bedrooms[row] >= query.minBedrooms && bedrooms[row] <= query.maxBedrooms
+			&& bathrooms[row] >= query.minBathrooms && bathrooms[row] <= query.maxBathrooms
+			&& area[row] >= query.minArea && area[row] <= query.maxArea;
+	}
+
+	/**
+	 * The order of ranked rows: by cost, then by row, which is by area.
+	 */
+	private static boolean before(long cost, int row, long otherCost, int otherRow) {
+		return cost < otherCost || (cost == otherCost && row < otherRow);
+	}
+
+	private static void siftUp(long[] costs, int[] rows, int child) {
+		while (child > 0) {
+			int parent = (child - 1) >>> 1;
+			if (!before(costs[parent], rows[parent], costs[child], rows[child])) {
+				return;
+			}
+			swap(costs, rows, parent, child);
+			child = parent;
+		}
+	}
+
+	private static void siftDown(long[] costs, int[] rows, int parent, int size) {
+		while (true) {
+			int largest = parent;
+			int left = 2 * parent + 1;
+			int right = left + 1;
+			if (left < size && before(costs[largest], rows[largest], costs[left], rows[left])) {
+				largest = left;
+			}
+			if (right < size && before(costs[largest], rows[largest], costs[right], rows[right])) {
+				largest = right;
+			}
+			if (largest == parent) {
+				return;
+			}
+			swap(costs, rows, parent, largest);
+			parent = largest;
+		}
+	}
+
+	private static void swap(long[] costs, int[] rows, int i, int j) {
+		long cost = costs[i];
+		costs[i] = costs[j];
+		costs[j] = cost;
+		swap(rows, i, j);
+	}
+
+	private static int[] identity(int size) {
+		int[] rows = new int[size];
+		for (int i = 0; i < size; i++) {
+			rows[i] = i;
+		}
+		return rows;
+	}
+
+	private static double[] gather(double[] values, int[] rows) {
+		double[] gathered = new double[rows.length];
+		for (int i = 0; i < rows.length; i++) {
+			gathered[i] = values[rows[i]];
+		}
+		return gathered;
+	}
+
+	/**
+	 * Returns the first index whose value is at least key.
+	 */
+	private static int lowerBound(double[] sorted, double key) {
+		int low = 0;
+		int high = sorted.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (sorted[mid] < key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Returns the first index whose value is greater than key.
+	 */
+	private static int upperBound(double[] sorted, double key) {
+		int low = 0;
+		int high = sorted.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (sorted[mid] <= key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private static int lowerBound(int[] rows, double[] values, double key) {
+		int low = 0;
+		int high = rows.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values[rows[mid]] < key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	private static int upperBound(int[] rows, double[] values, double key) {
+		int low = 0;
+		int high = rows.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (values[rows[mid]] <= key) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * Sorts rows by their keys with a three-way quicksort, which stays fast
+	 * on columns with few distinct values such as bedrooms.
+	 */
+	private static void sort(int[] rows, double[] keys, int low, int high) {
+		while (high - low > 16) {
+			int mid = (low + high) >>> 1;
+			double pivot = median(keys[rows[low]], keys[rows[mid]], keys[rows[high]]);
+			int lt = low;
+			int gt = high;
+			int i = low;
+			while (i <= gt) {
+				double key = keys[rows[i]];
+				if (key < pivot) {
+					swap(rows, lt++, i++);
+				} else if (key > pivot) {
+					swap(rows, i, gt--);
+				} else {
+					i++;
+				}
+			}
+			// Recurse into the smaller side to bound the stack depth.
+			if (lt - low < high - gt) {
+				sort(rows, keys, low, lt - 1);
+				low = gt + 1;
+			} else {
+				sort(rows, keys, gt + 1, high);
+				high = lt - 1;
+			}
+		}
+		for (int i = low + 1; i <= high; i++) {
+			int row = rows[i];
+			double key = keys[row];
+			int j = i - 1;
+			while (j >= low && keys[rows[j]] > key) {
+				rows[j + 1] = rows[j];
+				j--;
+			}
+			rows[j + 1] = row;
+		}
+	}
+
+	private static double median(double a, double b, double c) {
+		return a < b ? (b < c ? b : Math.max(a, c)) : (a < c ? a : Math.max(b, c));
+	}
+
+	private static void swap(int[] rows, int i, int j) {
+		int row = rows[i];
+		rows[i] = rows[j];
+		rows[j] = row;
+	}
+}
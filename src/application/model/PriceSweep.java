@@ -0,0 +1,430 @@
+package application.model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Prices a template over a grid of bedrooms, bathrooms and area, for the
+ * what-if views.
+ *
+ * The grid is swept coarse to fine. The first pass prices every stride-th
+ * point along each axis, with the stride a power of two chosen so the pass
+ * takes a few thousand quotes; each later pass halves the stride and prices
+ * only the points earlier passes skipped. A view can show the whole grid
+ * after the first pass and sharpen it as the others finish. Each pass is
+ * split across a fork/join pool.
+ *
+ * A sweep can start from a finished sweep of the same template. Points of
+ * the new grid that the old one priced are copied, a row at a time, so
+ * narrowing the grid or adding points between the old ones only prices
+ * what is new.
+ *
+ * Prices are exactly those of PricingEngine: the rate for each area and the
+ * extras for each number of bedrooms and bathrooms are computed once per
+ * axis value, which leaves one sum and the tax for each point. A sweep
+ * started while a branch's own PricingRules are installed prices each point
+ * by those rules instead.
+ */
+public final class PriceSweep {
+	/**
+	 * The most points a grid may have, 128 MB of prices.
+	 */
+	public static final int MAX_POINTS = 1 << 24;
+
+	private static final int FIRST_PASS_POINTS = 4096;
+	private static final int POINTS_PER_TASK = 1 << 14;
+
+	/**
+	 * Evenly spaced values along one side of the grid.
+	 */
+	public static final class Axis {
+		private final double min;
+		private final double step;
+		private final int size;
+
+		/**
+		 * @param min The first value.
+		 * @param max The last value, if it is a whole number of steps from min.
+		 * @param step
+		 * @throws IllegalArgumentException If the step is not positive or max is below min.
+		 */
+		public Axis(double min, double max, double step) {
+			if (!(step > 0) || !(max >= min) || Double.isInfinite(max - min)) {
+				throw new IllegalArgumentException("Bad range " + min + " to " + max + " by " + step);
+			}
+			double steps = Math.floor((max - min) / step + 1e-9);
+			if (steps >= MAX_POINTS) {
+				throw new IllegalArgumentException("Too many steps from " + min + " to " + max + " by " + step);
+			}
+			this.min = min;
+			this.step = step;
+			this.size = (int) steps + 1;
+		}
+
+		public double getMin() {
+			return min;
+		}
+
+		public double getMax() {
+			return value(size - 1);
+		}
+
+		public double getStep() {
+			return step;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public double value(int index) {
+			return min + index * step;
+		}
+
+		/**
+		 * Returns the index of the value nearest to the given one, clamped to the axis.
+		 */
+		public int nearestIndex(double value) {
+			long index = Math.round((value - min) / step);
+			return (int) Math.max(0, Math.min(size - 1, index));
+		}
+
+		/**
+		 * Returns the index of a value on the axis, or -1 if it is not exactly on it.
+		 */
+		public int indexOf(double value) {
+			int index = nearestIndex(value);
+			return value(index) == value ? index : -1;
+		}
+	}
+
+	/**
+	 * Called by the sweeping thread each time a pass finishes.
+	 */
+	public interface Listener {
+		/**
+		 * @param sweep
+		 * @param stride The stride of the pass; every point whose indexes are
+		 * multiples of it has been priced.
+		 */
+		void passed(PriceSweep sweep, int stride);
+	}
+
+	private final HouseSpec template;
+	private final Axis bedrooms;
+	private final Axis bathrooms;
+	private final Axis area;
+	private final long[] costs;
+	private final PricingRules rules;
+
+	// Cents of each axis value: the rate for each area, the extras for the others.
+	private final long[] rateCents;
+	private final long[] bedroomCents;
+	private final long[] bathroomCents;
+
+	// Area indexes [from, to) of each row that were copied from an earlier sweep.
+	private int[] copiedFrom;
+	private int[] copiedTo;
+
+	private volatile int stride;
+	private volatile boolean cancelled;
+
+	/**
+	 * @param template The house being priced.
+	 * @param bedrooms
+	 * @param bathrooms
+	 * @param area
+	 * @throws IllegalArgumentException If the grid has more than MAX_POINTS
+	 * points, or the template or a point of it cannot be priced.
+	 */
+	public PriceSweep(HouseSpec template, Axis bedrooms, Axis bathrooms, Axis area) {
+		long points = (long) bedrooms.size() * bathrooms.size() * area.size();
+		if (points > MAX_POINTS) {
+			throw new IllegalArgumentException("A sweep of " + points + " points is over the limit of " + MAX_POINTS);
+		}
+		// Every point lies between the corners of the grid.
+		PricingEngine.checkTemplate(template.getTemplateBasicRate(), template.getBedrooms(), template.getBathrooms());
+		PricingEngine.checkRequest(bedrooms.getMin(), bathrooms.getMin(), area.getMin());
+		PricingEngine.checkRequest(bedrooms.getMax(), bathrooms.getMax(), area.getMax());
+		this.template = template;
+		this.bedrooms = bedrooms;
+		this.bathrooms = bathrooms;
+		this.area = area;
+		this.costs = new long[(int) points];
+		this.rules = PricingRules.active();
+
+		long rate = Money.centsOf(template.getTemplateBasicRate());
+		long largeRate = Math.round(rate * PricingEngine.LARGE_AREA_MULTIPLIER);
+		rateCents = new long[area.size()];
+		for (int k = 0; k < rateCents.length; k++) {
+			rateCents[k] = area.value(k) > PricingEngine.LARGE_AREA ? largeRate : rate;
+		}
+		bedroomCents = extras(bedrooms, template.getBedrooms(), PricingEngine.EXTRA_BEDROOM_RATE);
+		bathroomCents = extras(bathrooms, template.getBathrooms(), PricingEngine.EXTRA_BATHROOM_RATE);
+	}
+
+	private static long[] extras(Axis axis, double included, double rate) {
+		long[] cents = new long[axis.size()];
+		for (int i = 0; i < cents.length; i++) {
+			double extra = axis.value(i) - included;
+			cents[i] = Money.centsOf(rate * (extra >= 0 ? extra : 0));
+		}
+		return cents;
+	}
+
+	/**
+	 * Sweeps the grid, calling the listener after each pass.
+	 *
+	 * @param pool
+	 * @param previous A sweep to copy prices from, or null. Only used if it
+	 * finished and priced the same template by the same rules.
+	 * @param listener
+	 * @return True if the sweep finished, false if it was cancelled.
+	 */
+	public boolean run(ForkJoinPool pool, PriceSweep previous, Listener listener) {
+		if (previous != null && previous.stride == 1 && previous.rules == rules
+				&& previous.template.equals(template)) {
+			copyFrom(pool, previous);
+		}
+
+		int first = firstStride();
+		for (int pass = first; pass >= 1; pass /= 2) {
+			pool.invoke(new Pass(pass, pass == first, 0, rows(pass)));
+			if (cancelled) {
+				return false;
+			}
+			stride = pass;
+			listener.passed(this, pass);
+		}
+		return true;
+	}
+
+	/**
+	 * Stops a running sweep after the tasks in progress.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	/**
+	 * Returns the stride of the last pass finished, or 0 before the first.
+	 */
+	public int getStride() {
+		return stride;
+	}
+
+	public boolean isDone() {
+		return stride == 1;
+	}
+
+	public HouseSpec getTemplate() {
+		return template;
+	}
+
+	public Axis getBedrooms() {
+		return bedrooms;
+	}
+
+	public Axis getBathrooms() {
+		return bathrooms;
+	}
+
+	public Axis getArea() {
+		return area;
+	}
+
+	public int size() {
+		return costs.length;
+	}
+
+	/**
+	 * Returns the price in cents at the given indexes. Only meaningful once
+	 * a pass with a stride dividing all three indexes has finished.
+	 */
+	public long getCostCents(int bedroom, int bathroom, int areaIndex) {
+		return costs[(bedroom * bathrooms.size() + bathroom) * area.size() + areaIndex];
+	}
+
+	/**
+	 * Returns the smallest power of two stride whose pass prices no more
+	 * than FIRST_PASS_POINTS points.
+	 */
+	private int firstStride() {
+		int stride = 1;
+		while (points(stride) > FIRST_PASS_POINTS) {
+			stride *= 2;
+		}
+		return stride;
+	}
+
+	private long points(int stride) {
+		return (long) ceilDiv(bedrooms.size(), stride) * ceilDiv(bathrooms.size(), stride) * ceilDiv(area.size(), stride);
+	}
+
+	private int rows(int stride) {
+		return ceilDiv(bedrooms.size(), stride) * ceilDiv(bathrooms.size(), stride);
+	}
+
+	private static int ceilDiv(int a, int b) {
+		return (a + b - 1) / b;
+	}
+
+	/**
+	 * Prices the rows from (inclusive) to to (exclusive) of the rows a pass
+	 * visits, splitting them until each task has about POINTS_PER_TASK points.
+	 */
+	private final class Pass extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final int stride;
+		private final boolean first;
+		private final int from;
+		private final int to;
+
+		Pass(int stride, boolean first, int from, int to) {
+			this.stride = stride;
+			this.first = first;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (cancelled) {
+				return;
+			}
+			long points = (long) (to - from) * ceilDiv(area.size(), stride);
+			if (to - from > 1 && points > POINTS_PER_TASK) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Pass(stride, first, from, middle), new Pass(stride, first, middle, to));
+				return;
+			}
+
+			boolean standard = rules == PricingRules.STANDARD;
+			int bathroomRows = ceilDiv(bathrooms.size(), stride);
+			int areaSize = area.size();
+			int coarser = stride * 2;
+			for (int row = from; row < to; row++) {
+				int i = row / bathroomRows * stride;
+				int j = row % bathroomRows * stride;
+				int gridRow = i * bathrooms.size() + j;
+				int base = gridRow * areaSize;
+				long extras = bedroomCents[i] + bathroomCents[j];
+				// On rows an earlier pass visited, every other point is already priced.
+				boolean skipEven = !first && i % coarser == 0 && j % coarser == 0;
+				int copiedStart = copiedFrom == null ? 0 : copiedFrom[gridRow];
+				int copiedEnd = copiedTo == null ? 0 : copiedTo[gridRow];
+				for (int k = 0; k < areaSize; k += stride) {
+					if (skipEven && k % coarser == 0 || k >= copiedStart && k < copiedEnd) {
+						continue;
+					}
+					if (standard) {
+						long cost = rateCents[k] + extras;
+						costs[base + k] = cost + Money.percentOf(cost, PricingEngine.TAX_BASIS_POINTS);
+					} else {
+						costs[base + k] = rules.quoteCents(template, bedrooms.value(i), bathrooms.value(j), area.value(k));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Copies the prices the previous sweep has for points of this grid. Only
+	 * rows whose area axis lines up with the previous one's are copied.
+	 */
+	private void copyFrom(ForkJoinPool pool, PriceSweep previous) {
+		Axis oldArea = previous.area;
+		if (oldArea.getStep() != area.getStep()) {
+			return;
+		}
+		int oldStart = oldArea.indexOf(area.getMin());
+		int newStart = area.indexOf(oldArea.getMin());
+		if (oldStart < 0 && newStart < 0) {
+			return;
+		}
+		// The new row's area k is the old row's k + offset.
+		int offset = oldStart >= 0 ? oldStart : -newStart;
+		int from = Math.max(0, -offset);
+		int to = Math.min(area.size(), oldArea.size() - offset);
+		if (from >= to) {
+			return;
+		}
+
+		int[] oldBedrooms = new int[bedrooms.size()];
+		for (int i = 0; i < oldBedrooms.length; i++) {
+			oldBedrooms[i] = previous.bedrooms.indexOf(bedrooms.value(i));
+		}
+		int[] oldBathrooms = new int[bathrooms.size()];
+		for (int j = 0; j < oldBathrooms.length; j++) {
+			oldBathrooms[j] = previous.bathrooms.indexOf(bathrooms.value(j));
+		}
+
+		int rows = bedrooms.size() * bathrooms.size();
+		Copy copy = new Copy(previous, oldBedrooms, oldBathrooms, offset, from, to, 0, rows,
+			new int[rows], new int[rows]);
+		pool.invoke(copy);
+		copiedFrom = copy.copiedFrom;
+		copiedTo = copy.copiedTo;
+	}
+
+	/**
+	 * Copies the rows from (inclusive) to to (exclusive) of the grid that
+	 * the previous sweep has.
+	 */
+	private final class Copy extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final PriceSweep previous;
+		private final int[] oldBedrooms;
+		private final int[] oldBathrooms;
+		private final int offset;
+		private final int areaFrom;
+		private final int areaTo;
+		private final int from;
+		private final int to;
+		private final int[] copiedFrom;
+		private final int[] copiedTo;
+
+		Copy(PriceSweep previous, int[] oldBedrooms, int[] oldBathrooms, int offset, int areaFrom, int areaTo,
+				int from, int to, int[] copiedFrom, int[] copiedTo) {
+			this.previous = previous;
+			this.oldBedrooms = oldBedrooms;
+			this.oldBathrooms = oldBathrooms;
+			this.offset = offset;
+			this.areaFrom = areaFrom;
+			this.areaTo = areaTo;
+			this.from = from;
+			this.to = to;
+			this.copiedFrom = copiedFrom;
+			this.copiedTo = copiedTo;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from > 1 && (long) (to - from) * (areaTo - areaFrom) > POINTS_PER_TASK * 4) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new Copy(previous, oldBedrooms, oldBathrooms, offset, areaFrom, areaTo, from, middle, copiedFrom, copiedTo),
+					new Copy(previous, oldBedrooms, oldBathrooms, offset, areaFrom, areaTo, middle, to, copiedFrom, copiedTo));
+				return;
+			}
+			Axis oldArea = previous.area;
+			for (int row = from; row < to; row++) {
+				int i = oldBedrooms[row / bathrooms.size()];
+				int j = oldBathrooms[row % bathrooms.size()];
+				if (i < 0 || j < 0) {
+					continue;
+				}
+				int oldBase = (i * previous.bathrooms.size() + j) * oldArea.size();
+				System.arraycopy(previous.costs, oldBase + areaFrom + offset,
+					costs, row * area.size() + areaFrom, areaTo - areaFrom);
+				copiedFrom[row] = areaFrom;
+				copiedTo[row] = areaTo;
+			}
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package application.model;
+
+/**
+ * Prices a customized house from primitive inputs.
+ *
+ * Prices are computed exactly, in whole cents: the rate and each extra are
+ * rounded to the cent, and the tax on their sum is rounded to the cent,
+ * halves up. Nothing on the pricing path allocates, so it can be called on
+ * every keystroke or for millions of rows in a batch job.
+ *
+ * The constants below are the standard rules. A branch that installs rules
+ * of its own through PricingRules is priced by them instead.
+ *
+ * Every rate, count and area must be a number from 0 to MAX_AMOUNT; anything
+ * else is rejected with an IllegalArgumentException rather than priced.
+ */
+public final class PricingEngine {
+	public static final double TAX = 0.05;
+	public static final long TAX_BASIS_POINTS = Math.round(TAX * 10_000);
+	public static final double LARGE_AREA = 3000;
+	public static final double LARGE_AREA_MULTIPLIER = 1.5;
+	public static final double EXTRA_BEDROOM_RATE = 800;
+	public static final double EXTRA_BATHROOM_RATE = 500;
+
+	/**
+	 * The largest rate, number of rooms or area that can be priced. Under the
+	 * standard rules the largest quote it allows is still far below the most
+	 * cents a long can hold.
+	 */
+	public static final double MAX_AMOUNT = 1e9;
+
+	private PricingEngine() {
+	}
+
+	/**
+	 * Calculates the total cost in cents, tax included, of a customized template.
+	 *
+	 * @param templateBasicRate The basic rate of the template.
+	 * @param templateBedrooms The number of bedrooms included in the basic rate.
+	 * @param templateBathrooms The number of bathrooms included in the basic rate.
+	 * @param numOfBedrooms The requested number of bedrooms.
+	 * @param numOfBathrooms The requested number of bathrooms.
+	 * @param area The requested total area.
+	 * @return The total cost in cents.
+	 * @throws IllegalArgumentException If an input is not a number from 0 to
+	 * MAX_AMOUNT, or a branch's rules price it beyond what a long can hold.
+	 */
+	public static long quoteCents(double templateBasicRate, double templateBedrooms, double templateBathrooms,
+			double numOfBedrooms, double numOfBathrooms, double area) {
+		checkTemplate(templateBasicRate, templateBedrooms, templateBathrooms);
+		checkRequest(numOfBedrooms, numOfBathrooms, area);
+		if (!PricingRules.isStandardActive()) {
+			return PricingRules.activeQuoteCents(templateBasicRate, templateBedrooms, templateBathrooms,
+					numOfBedrooms, numOfBathrooms, area);
+		}
+
+		long rate = Money.centsOf(templateBasicRate);
+		if (area > LARGE_AREA) {
+			rate = Math.round(rate * LARGE_AREA_MULTIPLIER);
+		}
+
+		long cost = rate +
+			Money.centsOf(EXTRA_BEDROOM_RATE * extra(numOfBedrooms, templateBedrooms)) +
+			Money.centsOf(EXTRA_BATHROOM_RATE * extra(numOfBathrooms, templateBathrooms));
+
+		return cost + Money.percentOf(cost, TAX_BASIS_POINTS);
+	}
+
+	public static long quoteCents(House template, double numOfBedrooms, double numOfBathrooms, double area) {
+		return quoteCents(template.getTemplateBasicRate(), template.getBedrooms(), template.getBathrooms(),
+				numOfBedrooms, numOfBathrooms, area);
+	}
+
+	public static long quoteCents(HouseSpec template, double numOfBedrooms, double numOfBathrooms, double area) {
+		return quoteCents(template.getTemplateBasicRate(), template.getBedrooms(), template.getBathrooms(),
+				numOfBedrooms, numOfBathrooms, area);
+	}
+
+	public static long quoteCents(HouseSpec template, QuoteRequest request) {
+		return quoteCents(template, request.getBedrooms(), request.getBathrooms(), request.getArea());
+	}
+
+	/**
+	 * Calculates the total cost, tax included, of a customized template.
+	 * The same as quoteCents, in dollars.
+	 *
+	 * @param templateBasicRate The basic rate of the template.
+	 * @param templateBedrooms The number of bedrooms included in the basic rate.
+	 * @param templateBathrooms The number of bathrooms included in the basic rate.
+	 * @param numOfBedrooms The requested number of bedrooms.
+	 * @param numOfBathrooms The requested number of bathrooms.
+	 * @param area The requested total area.
+	 * @return The total cost.
+	 */
+	public static double quote(double templateBasicRate, double templateBedrooms, double templateBathrooms,
+			double numOfBedrooms, double numOfBathrooms, double area) {
+		return Money.toDollars(quoteCents(templateBasicRate, templateBedrooms, templateBathrooms,
+				numOfBedrooms, numOfBathrooms, area));
+	}
+
+	public static double quote(House template, double numOfBedrooms, double numOfBathrooms, double area) {
+		return quote(template.getTemplateBasicRate(), template.getBedrooms(), template.getBathrooms(),
+				numOfBedrooms, numOfBathrooms, area);
+	}
+
+	public static double quote(House template, QuoteRequest request) {
+		return quote(template, request.getBedrooms(), request.getBathrooms(), request.getArea());
+	}
+
+	public static double quote(HouseSpec template, double numOfBedrooms, double numOfBathrooms, double area) {
+		return quote(template.getTemplateBasicRate(), template.getBedrooms(), template.getBathrooms(),
+				numOfBedrooms, numOfBathrooms, area);
+	}
+
+	public static double quote(HouseSpec template, QuoteRequest request) {
+		return quote(template, request.getBedrooms(), request.getBathrooms(), request.getArea());
+	}
+
+	/**
+	 * Prices a customized house against the template it was made from.
+	 *
+	 * @param template
+	 * @param custom
+	 */
+	public static double quote(HouseSpec template, HouseSpec custom) {
+		return quote(template, custom.getBedrooms(), custom.getBathrooms(), custom.getArea());
+	}
+
+	/**
+	 * Prices many customizations of one template in a single call.
+	 * The input arrays are read in parallel, so costs[i] is the price of
+	 * numOfBedrooms[i], numOfBathrooms[i] and area[i].
+	 *
+	 * @param template The house being customized.
+	 * @param numOfBedrooms
+	 * @param numOfBathrooms
+	 * @param area
+	 * @param costs Receives the total costs; may be one of the input arrays.
+	 */
+	public static void quote(House template, double[] numOfBedrooms, double[] numOfBathrooms,
+			double[] area, double[] costs) {
+		quote(template, numOfBedrooms, numOfBathrooms, area, costs, 0, costs.length);
+	}
+
+	/**
+	 * Prices the rows from (inclusive) to to (exclusive) of the parallel arrays.
+	 */
+	public static void quote(House template, double[] numOfBedrooms, double[] numOfBathrooms,
+			double[] area, double[] costs, int from, int to) {
+		if (numOfBedrooms.length < to || numOfBathrooms.length < to || area.length < to || costs.length < to) {
+			throw new IllegalArgumentException("Arrays are shorter than " + to);
+		}
+
+		double rate = template.getTemplateBasicRate();
+		double bedrooms = template.getBedrooms();
+		double bathrooms = template.getBathrooms();
+
+		for (int i = from; i < to; i++) {
+			costs[i] = quote(rate, bedrooms, bathrooms, numOfBedrooms[i], numOfBathrooms[i], area[i]);
+		}
+	}
+
+	/**
+	 * Checks the details of a template can be priced.
+	 *
+	 * @throws IllegalArgumentException If one is not a number from 0 to MAX_AMOUNT.
+	 */
+	static void checkTemplate(double templateBasicRate, double templateBedrooms, double templateBathrooms) {
+		if (!(inRange(templateBasicRate) && inRange(templateBedrooms) && inRange(templateBathrooms))) {
+			check("Template basic rate", templateBasicRate);
+			check("Template bedrooms", templateBedrooms);
+			check("Template bathrooms", templateBathrooms);
+		}
+	}
+
+	/**
+	 * Checks a customization can be priced.
+	 *
+	 * @throws IllegalArgumentException If one is not a number from 0 to MAX_AMOUNT.
+	 */
+	static void checkRequest(double numOfBedrooms, double numOfBathrooms, double area) {
+		if (!(inRange(numOfBedrooms) && inRange(numOfBathrooms) && inRange(area))) {
+			check("Bedrooms", numOfBedrooms);
+			check("Bathrooms", numOfBathrooms);
+			check("Area", area);
+		}
+	}
+
+	private static boolean inRange(double value) {
+		// False for NaN as well.
+		return value >= 0 && value <= MAX_AMOUNT;
+	}
+
+	private static void check(String name, double value) {
+		if (!inRange(value)) {
+			throw new IllegalArgumentException(name + " must be a number from 0 to " + (long) MAX_AMOUNT + ": " + value);
+		}
+	}
+
+	private static double extra(double requested, double included) {
+		double extra = requested - included;
+		return extra >= 0 ? extra : 0;
+	}
+}
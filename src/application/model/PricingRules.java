@@ -0,0 +1,374 @@
+package application.model;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The rules a branch prices customized houses by, compiled into a chain of
+ * method handles.
+ *
+ * A rules file has one rule per line; blank lines and lines starting with #
+ * are ignored. Starting from the template's basic rate, in cents, each rule
+ * in turn changes the running cost:
+ *
+ * <pre>
+ * area above 3000 multiply 1.5             times 1.5 if the area is above 3000
+ * bedrooms above template add 800 each     $800 per bedroom beyond the template's
+ * area above 4000 add 2.50 each            $2.50 per sq ft beyond 4000
+ * add 1200                                 a flat $1,200
+ * minimum 90000                            at least $90,000
+ * tax 5%                                   5% of the cost so far, to the cent
+ * </pre>
+ *
+ * Thresholds apply to bedrooms, bathrooms or area, and are a number or, for
+ * bedrooms and bathrooms, the template's own count. Every amount is rounded
+ * to the cent as it is added, halves up, the way PricingEngine prices.
+ *
+ * Compiling binds each rule's constants into a method handle and folds the
+ * handles into one, which the JIT inlines like hand-written arithmetic. The
+ * rules in use are installed behind a call site, so PricingEngine calls them
+ * without a check per rule; the standard rules keep PricingEngine's own
+ * arithmetic. The midwest.pricing system property names a rules file to
+ * install at startup.
+ */
+public final class PricingRules {
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	// rate, template bedrooms, template bathrooms, bedrooms, bathrooms, area
+	private static final MethodType QUOTE_TYPE = MethodType.methodType(long.class,
+		double.class, double.class, double.class, double.class, double.class, double.class);
+	// The running cost, then the arguments of a quote.
+	private static final MethodType STEP_TYPE = QUOTE_TYPE.insertParameterTypes(0, long.class);
+	private static final int TEMPLATE_BEDROOMS = 2;
+	private static final int TEMPLATE_BATHROOMS = 3;
+	private static final int BEDROOMS = 4;
+	private static final int BATHROOMS = 5;
+	private static final int AREA = 6;
+
+	private static final MethodHandle RATE = find("rate", long.class, double.class);
+	private static final MethodHandle MULTIPLY_ABOVE = find("multiplyAbove", long.class, long.class, double.class, double.class, double.class);
+	private static final MethodHandle ADD_EACH_ABOVE = find("addEachAbove", long.class, long.class, double.class, double.class, double.class);
+	private static final MethodHandle ADD = find("add", long.class, long.class, long.class);
+	private static final MethodHandle MINIMUM = find("minimum", long.class, long.class, long.class);
+	private static final MethodHandle TAX = find("tax", long.class, long.class, long.class);
+
+	/**
+	 * The rules PricingEngine has always priced by.
+	 */
+	public static final PricingRules STANDARD = compile(
+		"area above " + number(PricingEngine.LARGE_AREA) + " multiply " + number(PricingEngine.LARGE_AREA_MULTIPLIER) + "\n"
+		+ "bedrooms above template add " + number(PricingEngine.EXTRA_BEDROOM_RATE) + " each\n"
+		+ "bathrooms above template add " + number(PricingEngine.EXTRA_BATHROOM_RATE) + " each\n"
+		+ "tax " + number(PricingEngine.TAX_BASIS_POINTS / 100.0) + "%");
+
+	private static final MutableCallSite ACTIVE_SITE = new MutableCallSite(STANDARD.handle);
+	private static final MethodHandle ACTIVE = ACTIVE_SITE.dynamicInvoker();
+	private static volatile PricingRules active = STANDARD;
+
+	static {
+		String path = System.getProperty("midwest.pricing");
+		if (path != null) {
+			try {
+				install(load(Paths.get(path)));
+			} catch (IOException | IllegalArgumentException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private final List<String> rules;
+	private final MethodHandle handle;
+
+	private PricingRules(List<String> rules, MethodHandle handle) {
+		this.rules = Collections.unmodifiableList(rules);
+		this.handle = handle;
+	}
+
+	/**
+	 * Compiles the text of a rules file.
+	 *
+	 * @param text
+	 * @throws IllegalArgumentException If a rule is malformed.
+	 */
+	public static PricingRules compile(String text) {
+		List<String> rules = new ArrayList<>();
+		MethodHandle chain = MethodHandles.permuteArguments(RATE, QUOTE_TYPE, 0);
+		String[] lines = text.split("\r?\n");
+		for (int number = 1; number <= lines.length; number++) {
+			String line = lines[number - 1].trim();
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			String[] words = line.toLowerCase(Locale.ROOT).split("\\s+");
+			try {
+				chain = MethodHandles.foldArguments(step(words), chain);
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Pricing rules line " + number + ": " + e.getMessage(), e);
+			}
+			rules.add(String.join(" ", words));
+		}
+		return new PricingRules(rules, chain);
+	}
+
+	/**
+	 * Compiles a rules file.
+	 *
+	 * @param path
+	 * @throws IOException
+	 * @throws IllegalArgumentException If a rule is malformed.
+	 */
+	public static PricingRules load(Path path) throws IOException {
+		return compile(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Returns the rules in use.
+	 */
+	public static PricingRules active() {
+		return active;
+	}
+
+	/**
+	 * Prices with these rules from now on, everywhere PricingEngine is used.
+	 *
+	 * @param rules
+	 */
+	public static synchronized void install(PricingRules rules) {
+		PricingRules installed = rules.isStandard() ? STANDARD : rules;
+		ACTIVE_SITE.setTarget(installed.handle);
+		MutableCallSite.syncAll(new MutableCallSite[] { ACTIVE_SITE });
+		active = installed;
+	}
+
+	/**
+	 * Returns true if the standard rules are in use, so the arithmetic
+	 * specialized for them may be used.
+	 */
+	public static boolean isStandardActive() {
+		return active == STANDARD;
+	}
+
+	/**
+	 * Prices with the rules in use.
+	 *
+	 * @see PricingEngine#quoteCents(double, double, double, double, double, double)
+	 */
+	static long activeQuoteCents(double templateBasicRate, double templateBedrooms, double templateBathrooms,
+			double numOfBedrooms, double numOfBathrooms, double area) {
+		try {
+			return (long) ACTIVE.invokeExact(templateBasicRate, templateBedrooms, templateBathrooms,
+				numOfBedrooms, numOfBathrooms, area);
+		} catch (ArithmeticException e) {
+			throw tooLarge(e);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Calculates the total cost in cents of a customized template by these rules.
+	 *
+	 * @param templateBasicRate The basic rate of the template.
+	 * @param templateBedrooms The number of bedrooms included in the basic rate.
+	 * @param templateBathrooms The number of bathrooms included in the basic rate.
+	 * @param numOfBedrooms The requested number of bedrooms.
+	 * @param numOfBathrooms The requested number of bathrooms.
+	 * @param area The requested total area.
+	 * @return The total cost in cents.
+	 * @throws IllegalArgumentException If an input is not a number from 0 to
+	 * PricingEngine.MAX_AMOUNT, or the cost is more than a long can hold.
+	 */
+	public long quoteCents(double templateBasicRate, double templateBedrooms, double templateBathrooms,
+			double numOfBedrooms, double numOfBathrooms, double area) {
+		PricingEngine.checkTemplate(templateBasicRate, templateBedrooms, templateBathrooms);
+		PricingEngine.checkRequest(numOfBedrooms, numOfBathrooms, area);
+		try {
+			return (long) handle.invokeExact(templateBasicRate, templateBedrooms, templateBathrooms,
+				numOfBedrooms, numOfBathrooms, area);
+		} catch (ArithmeticException e) {
+			throw tooLarge(e);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public long quoteCents(HouseSpec template, double numOfBedrooms, double numOfBathrooms, double area) {
+		return quoteCents(template.getTemplateBasicRate(), template.getBedrooms(), template.getBathrooms(),
+			numOfBedrooms, numOfBathrooms, area);
+	}
+
+	/**
+	 * Returns the compiled rules, of type (double templateBasicRate, double
+	 * templateBedrooms, double templateBathrooms, double numOfBedrooms,
+	 * double numOfBathrooms, double area) long, for callers that hold it in a
+	 * constant of their own.
+	 */
+	public MethodHandle getHandle() {
+		return handle;
+	}
+
+	/**
+	 * Returns the rules, one per line, as they were read less comments.
+	 */
+	public List<String> getRules() {
+		return rules;
+	}
+
+	/**
+	 * Returns true if these are the standard rules.
+	 */
+	public boolean isStandard() {
+		return this == STANDARD || STANDARD != null && rules.equals(STANDARD.rules);
+	}
+
+	@Override
+	public String toString() {
+		return String.join("\n", rules);
+	}
+
+	/**
+	 * Compiles one rule into a handle of STEP_TYPE.
+	 */
+	private static MethodHandle step(String[] words) {
+		if (words.length == 2 && words[0].equals("add")) {
+			return constant(ADD, cents(words[1]));
+		}
+		if (words.length == 2 && words[0].equals("minimum")) {
+			return constant(MINIMUM, cents(words[1]));
+		}
+		if (words.length == 2 && words[0].equals("tax") && words[1].endsWith("%")) {
+			double percent = amount(words[1].substring(0, words[1].length() - 1));
+			return constant(TAX, Math.round(percent * 100));
+		}
+		if (words.length >= 5 && words[1].equals("above")) {
+			int variable = variable(words[0]);
+			if (words[3].equals("multiply") && words.length == 5) {
+				double factor = amount(words[4]);
+				return threshold(MULTIPLY_ABOVE, variable, words[2], factor);
+			}
+			if (words[3].equals("add") && words.length == 6 && words[5].equals("each")) {
+				double price = amount(words[4]);
+				return threshold(ADD_EACH_ABOVE, variable, words[2], price);
+			}
+		}
+		throw new IllegalArgumentException("Unknown rule \"" + String.join(" ", words) + "\"");
+	}
+
+	/**
+	 * Binds the amount of a rule on one variable, and its threshold if it
+	 * is a number rather than the template's count.
+	 */
+	private static MethodHandle threshold(MethodHandle target, int variable, String threshold, double amount) {
+		if (threshold.equals("template")) {
+			if (variable == AREA) {
+				throw new IllegalArgumentException("Area has no template threshold");
+			}
+			int included = variable == BEDROOMS ? TEMPLATE_BEDROOMS : TEMPLATE_BATHROOMS;
+			MethodHandle bound = MethodHandles.insertArguments(target, 3, amount);
+			return MethodHandles.permuteArguments(bound, STEP_TYPE, 0, variable, included);
+		}
+		MethodHandle bound = MethodHandles.insertArguments(target, 2, amount(threshold), amount);
+		return MethodHandles.permuteArguments(bound, STEP_TYPE, 0, variable);
+	}
+
+	private static MethodHandle constant(MethodHandle target, long value) {
+		return MethodHandles.permuteArguments(MethodHandles.insertArguments(target, 1, value), STEP_TYPE, 0);
+	}
+
+	private static int variable(String word) {
+		switch (word) {
+			case "bedrooms":
+				return BEDROOMS;
+			case "bathrooms":
+				return BATHROOMS;
+			case "area":
+				return AREA;
+			default:
+				throw new IllegalArgumentException("Unknown variable \"" + word + "\"");
+		}
+	}
+
+	private static double amount(String word) {
+		double amount;
+		try {
+			amount = Double.parseDouble(word);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Not a number: " + word);
+		}
+		if (!(amount >= 0) || Double.isInfinite(amount)) {
+			throw new IllegalArgumentException("Not a non-negative amount: " + word);
+		}
+		return amount;
+	}
+
+	private static long cents(String word) {
+		return Money.centsOf(amount(word));
+	}
+
+	private static IllegalArgumentException tooLarge(ArithmeticException e) {
+		return new IllegalArgumentException("The pricing rules price this beyond the most cents a long can hold", e);
+	}
+
+	private static String number(double value) {
+		return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+	}
+
+	private static MethodHandle find(String name, Class<?> returnType, Class<?>... parameterTypes) {
+		try {
+			return LOOKUP.findStatic(PricingRules.class, name, MethodType.methodType(returnType, parameterTypes));
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	// The operations rules compile to. Each takes the running cost first and
+	// throws an ArithmeticException rather than overflow.
+
+	private static long rate(double templateBasicRate) {
+		return Money.centsOf(templateBasicRate);
+	}
+
+	private static long multiplyAbove(long cost, double value, double threshold, double factor) {
+		if (!(value > threshold)) {
+			return cost;
+		}
+		double product = cost * factor;
+		if (!(product < 0x1p63)) {
+			throw new ArithmeticException("long overflow");
+		}
+		return Math.round(product);
+	}
+
+	private static long addEachAbove(long cost, double value, double threshold, double price) {
+		double extra = value - threshold;
+		return Math.addExact(cost, Money.centsOf(price * (extra >= 0 ? extra : 0)));
+	}
+
+	private static long add(long cost, long cents) {
+		return Math.addExact(cost, cents);
+	}
+
+	private static long minimum(long cost, long cents) {
+		return Math.max(cost, cents);
+	}
+
+	private static long tax(long cost, long basisPoints) {
+		return cost + Money.percentOf(cost, basisPoints);
+	}
+}
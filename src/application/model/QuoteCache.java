@@ -0,0 +1,240 @@
+package application.model;
+
+import java.util.Arrays;
+
+/**
+ * A bounded cache of quotes in front of the PricingEngine.
+ *
+ * A quote only depends on the template's rate, how many bedrooms and
+ * bathrooms are added beyond the template's, and whether the area is large,
+ * so entries are keyed on those rather than on the raw customizations and
+ * many requests share one entry. Each entry also keeps the template details
+ * it was priced with and is recomputed on a hit if the template has changed
+ * since, so a new templateBasicRate is never answered with an old price.
+ *
+ * Entries live in parallel primitive arrays split into sets of a few ways,
+ * and each set evicts with the CLOCK algorithm, so a lookup neither boxes
+ * nor allocates. Not thread-safe; give each thread its own cache.
+ */
+public final class QuoteCache {
+	private static final int WAYS = 8;
+
+	private final int setMask;
+	private final String[] styles;
+	private final double[] extraBedrooms;
+	private final double[] extraBathrooms;
+	private final boolean[] largeArea;
+	private final double[] templateBasicRate;
+	private final double[] templateBedrooms;
+	private final double[] templateBathrooms;
+	private final long[] costs;
+	private final boolean[] referenced;
+	private final byte[] hands;
+
+	private int size;
+	private long hits;
+	private long misses;
+	private long stale;
+	private long evictions;
+
+	/**
+	 * @param capacity The most quotes to keep, rounded up to a power of two of at least 8.
+	 */
+	public QuoteCache(int capacity) {
+		int sets = Integer.highestOneBit(Math.max(1, (capacity + WAYS - 1) / WAYS) - 1) << 1;
+		sets = Math.max(1, sets);
+		setMask = sets - 1;
+		int entries = sets * WAYS;
+		styles = new String[entries];
+		extraBedrooms = new double[entries];
+		extraBathrooms = new double[entries];
+		largeArea = new boolean[entries];
+		templateBasicRate = new double[entries];
+		templateBedrooms = new double[entries];
+		templateBathrooms = new double[entries];
+		costs = new long[entries];
+		referenced = new boolean[entries];
+		hands = new byte[sets];
+	}
+
+	public long quoteCents(House template, double numOfBedrooms, double numOfBathrooms, double area) {
+		return quoteCents(template.getStyle(), template.getTemplateBasicRate(), template.getBedrooms(),
+				template.getBathrooms(), numOfBedrooms, numOfBathrooms, area);
+	}
+
+	public long quoteCents(HouseSpec template, double numOfBedrooms, double numOfBathrooms, double area) {
+		return quoteCents(template.getStyle(), template.getTemplateBasicRate(), template.getBedrooms(),
+				template.getBathrooms(), numOfBedrooms, numOfBathrooms, area);
+	}
+
+	public long quoteCents(HouseSpec template, QuoteRequest request) {
+		return quoteCents(template, request.getBedrooms(), request.getBathrooms(), request.getArea());
+	}
+
+	/**
+	 * Returns the total cost in cents, tax included, of a customized
+	 * template, as PricingEngine.quoteCents would.
+	 *
+	 * @param style The style of the template.
+	 * @param rate The basic rate of the template.
+	 * @param bedrooms The number of bedrooms included in the basic rate.
+	 * @param bathrooms The number of bathrooms included in the basic rate.
+	 * @param numOfBedrooms The requested number of bedrooms.
+	 * @param numOfBathrooms The requested number of bathrooms.
+	 * @param area The requested total area.
+	 * @throws IllegalArgumentException As PricingEngine.quoteCents.
+	 */
+	public long quoteCents(String style, double rate, double bedrooms, double bathrooms,
+			double numOfBedrooms, double numOfBathrooms, double area) {
+		// Checked before the lookup, as a NaN count would hit the entry for no extras.
+		PricingEngine.checkTemplate(rate, bedrooms, bathrooms);
+		PricingEngine.checkRequest(numOfBedrooms, numOfBathrooms, area);
+		if (!PricingRules.isStandardActive()) {
+			// Entries are keyed on what the standard rules depend on; a
+			// branch's rules may depend on more, such as the exact area.
+			return PricingEngine.quoteCents(rate, bedrooms, bathrooms, numOfBedrooms, numOfBathrooms, area);
+		}
+
+		double extraBeds = extra(numOfBedrooms, bedrooms);
+		double extraBaths = extra(numOfBathrooms, bathrooms);
+		boolean large = area > PricingEngine.LARGE_AREA;
+
+		int set = hash(style, extraBeds, extraBaths, large) & setMask;
+		int first = set * WAYS;
+		int empty = -1;
+		for (int i = first; i < first + WAYS; i++) {
+			String cached = styles[i];
+			if (cached == null) {
+				if (empty < 0) {
+					empty = i;
+				}
+			} else if (extraBedrooms[i] == extraBeds && extraBathrooms[i] == extraBaths
+					&& largeArea[i] == large && (cached == style || cached.equals(style))) {
+				referenced[i] = true;
+				if (templateBasicRate[i] == rate && templateBedrooms[i] == bedrooms
+						&& templateBathrooms[i] == bathrooms) {
+					hits++;
+					return costs[i];
+				}
+				// The template changed since this entry was priced.
+				stale++;
+				return store(i, style, extraBeds, extraBaths, large, rate, bedrooms, bathrooms,
+						numOfBedrooms, numOfBathrooms, area);
+			}
+		}
+
+		misses++;
+		int slot = empty;
+		if (slot < 0) {
+			slot = evict(set);
+		} else {
+			size++;
+		}
+		return store(slot, style, extraBeds, extraBaths, large, rate, bedrooms, bathrooms,
+				numOfBedrooms, numOfBathrooms, area);
+	}
+
+	private long store(int slot, String style, double extraBeds, double extraBaths, boolean large,
+			double rate, double bedrooms, double bathrooms,
+			double numOfBedrooms, double numOfBathrooms, double area) {
+		long cost = PricingEngine.quoteCents(rate, bedrooms, bathrooms, numOfBedrooms, numOfBathrooms, area);
+		styles[slot] = style;
+		extraBedrooms[slot] = extraBeds;
+		extraBathrooms[slot] = extraBaths;
+		largeArea[slot] = large;
+		templateBasicRate[slot] = rate;
+		templateBedrooms[slot] = bedrooms;
+		templateBathrooms[slot] = bathrooms;
+		costs[slot] = cost;
+		referenced[slot] = true;
+		return cost;
+	}
+
+	/**
+	 * Returns the way of a full set to reuse: the first one from the set's
+	 * hand that has not been used since the hand last passed it.
+	 */
+	private int evict(int set) {
+		int first = set * WAYS;
+		int hand = hands[set];
+		while (referenced[first + hand]) {
+			referenced[first + hand] = false;
+			hand = (hand + 1) % WAYS;
+		}
+		hands[set] = (byte) ((hand + 1) % WAYS);
+		evictions++;
+		return first + hand;
+	}
+
+	private static int hash(String style, double extraBeds, double extraBaths, boolean large) {
+		long bits = (Double.doubleToLongBits(extraBeds) * 31 + Double.doubleToLongBits(extraBaths)) * 31
+				+ style.hashCode() * 2 + (large ? 1 : 0);
+		// Mix every bit into the low ones, which choose the set.
+		bits = (bits ^ (bits >>> 33)) * 0xFF51AFD7ED558CCDL;
+		bits = (bits ^ (bits >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return (int) (bits ^ (bits >>> 33));
+	}
+
+	private static double extra(double requested, double included) {
+		double extra = requested - included;
+		return extra >= 0 ? extra : 0;
+	}
+
+	/**
+	 * Empties the cache and resets its statistics.
+	 */
+	public void clear() {
+		Arrays.fill(styles, null);
+		Arrays.fill(referenced, false);
+		Arrays.fill(hands, (byte) 0);
+		size = 0;
+		hits = 0;
+		misses = 0;
+		stale = 0;
+		evictions = 0;
+	}
+
+	public int getCapacity() {
+		return styles.length;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the lookups that found no entry.
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the lookups that found an entry priced with an older version of the template.
+	 */
+	public long getStale() {
+		return stale;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns the share of lookups answered from the cache, between 0 and 1.
+	 */
+	public double getHitRate() {
+		long lookups = hits + misses + stale;
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%d/%d quotes cached, %d hits, %d misses, %d stale, %d evictions (%.1f%% hit rate)",
+				size, getCapacity(), hits, misses, stale, evictions, getHitRate() * 100);
+	}
+}
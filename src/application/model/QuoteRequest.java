@@ -0,0 +1,71 @@
+package application.model;
+
+/**
+ * A reusable, mutable set of customizations to be priced.
+ *
+ * One instance can be refilled and passed to the PricingEngine for every
+ * quote, so pricing in a loop does not allocate.
+ */
+public final class QuoteRequest {
+	private String style;
+	private double numOfBedrooms;
+	private double numOfBathrooms;
+	private double area;
+
+	public QuoteRequest() {
+	}
+
+	public QuoteRequest(String style, double numOfBedrooms, double numOfBathrooms, double area) {
+		set(style, numOfBedrooms, numOfBathrooms, area);
+	}
+
+	/**
+	 * Overwrites every field of the request.
+	 *
+	 * @return this request
+	 */
+	public QuoteRequest set(String style, double numOfBedrooms, double numOfBathrooms, double area) {
+		this.style = style;
+		this.numOfBedrooms = numOfBedrooms;
+		this.numOfBathrooms = numOfBathrooms;
+		this.area = area;
+		return this;
+	}
+
+	public String getStyle() {
+		return style;
+	}
+
+	public void setStyle(String style) {
+		this.style = style;
+	}
+
+	public double getBedrooms() {
+		return numOfBedrooms;
+	}
+
+	public void setBedrooms(double numOfBedrooms) {
+		this.numOfBedrooms = numOfBedrooms;
+	}
+
+	public double getBathrooms() {
+		return numOfBathrooms;
+	}
+
+	public void setBathrooms(double numOfBathrooms) {
+		this.numOfBathrooms = numOfBathrooms;
+	}
+
+	public double getArea() {
+		return area;
+	}
+
+	public void setArea(double area) {
+		this.area = area;
+	}
+
+	@Override
+	public String toString() {
+		return style + " " + numOfBedrooms + "/" + numOfBathrooms + "/" + area;
+	}
+}
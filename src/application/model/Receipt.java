@@ -0,0 +1,66 @@
+package application.model;
+
+import application.util.CurrencyFormatter;
+
+/**
+ * An immutable record of a printed quote.
+ */
+public final class Receipt {
+	private final long timestamp;
+	private final String style;
+	private final double numOfBedrooms;
+	private final double numOfBathrooms;
+	private final double area;
+	private final long costCents;
+
+	/**
+	 * @param timestamp When the receipt was printed, in milliseconds since the epoch.
+	 * @param style
+	 * @param numOfBedrooms
+	 * @param numOfBathrooms
+	 * @param area
+	 * @param costCents The total cost in cents, tax included.
+	 */
+	public Receipt(long timestamp, String style, double numOfBedrooms, double numOfBathrooms,
+			double area, long costCents) {
+		this.timestamp = timestamp;
+		this.style = style;
+		this.numOfBedrooms = numOfBedrooms;
+		this.numOfBathrooms = numOfBathrooms;
+		this.area = area;
+		this.costCents = costCents;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	public String getStyle() {
+		return style;
+	}
+
+	public double getBedrooms() {
+		return numOfBedrooms;
+	}
+
+	public double getBathrooms() {
+		return numOfBathrooms;
+	}
+
+	public double getArea() {
+		return area;
+	}
+
+	public long getCostCents() {
+		return costCents;
+	}
+
+	public double getCost() {
+		return Money.toDollars(costCents);
+	}
+
+	@Override
+	public String toString() {
+		return timestamp + " " + style + " " + numOfBedrooms + "/" + numOfBathrooms + "/" + area + " " + CurrencyFormatter.PLAIN.format(costCents);
+	}
+}
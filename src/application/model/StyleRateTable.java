@@ -0,0 +1,198 @@
+package application.model;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The rates of every style in the catalog, laid out for pricing one set of
+ * customizations against all of them at once.
+ *
+ * Each detail of the templates is held in its own primitive array, and the
+ * rates are rounded to cents, with and without the large area multiplier,
+ * when the table is built. The extra rooms only depend on the few distinct
+ * bedroom and bathroom counts of the templates, so they are priced once per
+ * count, and pricing every style is then a single loop of integer adds over
+ * the arrays with no virtual calls, boxing or rounding. The costs are the
+ * same, to the cent, as PricingEngine.quoteCents gives for each template.
+ * While a branch's own PricingRules are installed, each style is priced
+ * through PricingEngine instead.
+ *
+ * A table is an immutable snapshot; build a new one when the catalog changes.
+ */
+public final class StyleRateTable {
+	private final String[] styles;
+	private final long[] rateCents;
+	private final long[] largeRateCents;
+	// Templates share a handful of bedroom and bathroom counts, so each
+	// style holds the code of its count and the extras are priced per count.
+	private final int[] bedroomCodes;
+	private final int[] bathroomCodes;
+	private final double[] bedroomCounts;
+	private final double[] bathroomCounts;
+
+	private StyleRateTable(String[] styles, long[] rateCents, long[] largeRateCents,
+			int[] bedroomCodes, double[] bedroomCounts, int[] bathroomCodes, double[] bathroomCounts) {
+		this.styles = styles;
+		this.rateCents = rateCents;
+		this.largeRateCents = largeRateCents;
+		this.bedroomCodes = bedroomCodes;
+		this.bedroomCounts = bedroomCounts;
+		this.bathroomCodes = bathroomCodes;
+		this.bathroomCounts = bathroomCounts;
+	}
+
+	/**
+	 * Builds a table of the templates, in the order given.
+	 *
+	 * @param templates
+	 * @throws IllegalArgumentException If a template cannot be priced.
+	 */
+	public static StyleRateTable of(List<? extends House> templates) {
+		int size = templates.size();
+		String[] styles = new String[size];
+		long[] rateCents = new long[size];
+		long[] largeRateCents = new long[size];
+		int[] bedroomCodes = new int[size];
+		int[] bathroomCodes = new int[size];
+		Map<Double, Integer> bedroomDictionary = new LinkedHashMap<>();
+		Map<Double, Integer> bathroomDictionary = new LinkedHashMap<>();
+		for (int i = 0; i < size; i++) {
+			House template = templates.get(i);
+			PricingEngine.checkTemplate(template.getTemplateBasicRate(), template.getBedrooms(), template.getBathrooms());
+			long rate = Money.centsOf(template.getTemplateBasicRate());
+			styles[i] = template.getStyle();
+			rateCents[i] = rate;
+			largeRateCents[i] = Math.round(rate * PricingEngine.LARGE_AREA_MULTIPLIER);
+			bedroomCodes[i] = code(bedroomDictionary, template.getBedrooms());
+			bathroomCodes[i] = code(bathroomDictionary, template.getBathrooms());
+		}
+		return new StyleRateTable(styles, rateCents, largeRateCents,
+				bedroomCodes, counts(bedroomDictionary), bathroomCodes, counts(bathroomDictionary));
+	}
+
+	private static int code(Map<Double, Integer> dictionary, double count) {
+		Integer code = dictionary.get(count);
+		if (code == null) {
+			code = dictionary.size();
+			dictionary.put(count, code);
+		}
+		return code;
+	}
+
+	private static double[] counts(Map<Double, Integer> dictionary) {
+		double[] counts = new double[dictionary.size()];
+		for (Map.Entry<Double, Integer> entry : dictionary.entrySet()) {
+			counts[entry.getValue()] = entry.getKey();
+		}
+		return counts;
+	}
+
+	public int size() {
+		return styles.length;
+	}
+
+	public String getStyle(int index) {
+		return styles[index];
+	}
+
+	/**
+	 * Returns the index of a style, or -1 if the table does not have it.
+	 *
+	 * @param style
+	 */
+	public int indexOf(String style) {
+		for (int i = 0; i < styles.length; i++) {
+			if (styles[i].equals(style)) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Prices customizations of one style, as PricingEngine.quoteCents would
+	 * price its template.
+	 *
+	 * @param index The index of the style.
+	 * @param numOfBedrooms The requested number of bedrooms.
+	 * @param numOfBathrooms The requested number of bathrooms.
+	 * @param area The requested total area.
+	 * @return The total cost in cents, tax included.
+	 * @throws IllegalArgumentException As PricingEngine.quoteCents.
+	 */
+	public long quoteCents(int index, double numOfBedrooms, double numOfBathrooms, double area) {
+		PricingEngine.checkRequest(numOfBedrooms, numOfBathrooms, area);
+		if (!PricingRules.isStandardActive()) {
+			return PricingEngine.quoteCents(Money.toDollars(rateCents[index]), bedroomCounts[bedroomCodes[index]],
+				bathroomCounts[bathroomCodes[index]], numOfBedrooms, numOfBathrooms, area);
+		}
+		double extraBedrooms = numOfBedrooms - bedroomCounts[bedroomCodes[index]];
+		double extraBathrooms = numOfBathrooms - bathroomCounts[bathroomCodes[index]];
+		long cost = (area > PricingEngine.LARGE_AREA ? largeRateCents : rateCents)[index] +
+			Money.centsOf(PricingEngine.EXTRA_BEDROOM_RATE * (extraBedrooms >= 0 ? extraBedrooms : 0)) +
+			Money.centsOf(PricingEngine.EXTRA_BATHROOM_RATE * (extraBathrooms >= 0 ? extraBathrooms : 0));
+		return cost + Money.percentOf(cost, PricingEngine.TAX_BASIS_POINTS);
+	}
+
+	/**
+	 * Prices one set of customizations against every style.
+	 *
+	 * @param numOfBedrooms The requested number of bedrooms.
+	 * @param numOfBathrooms The requested number of bathrooms.
+	 * @param area The requested total area.
+	 * @return The total cost in cents, tax included, of each style in table order.
+	 */
+	public long[] quoteCents(double numOfBedrooms, double numOfBathrooms, double area) {
+		long[] costs = new long[styles.length];
+		quoteCents(numOfBedrooms, numOfBathrooms, area, costs);
+		return costs;
+	}
+
+	/**
+	 * Prices one set of customizations against every style, into an array
+	 * the caller reuses.
+	 *
+	 * @param numOfBedrooms The requested number of bedrooms.
+	 * @param numOfBathrooms The requested number of bathrooms.
+	 * @param area The requested total area.
+	 * @param costs Receives the total cost in cents of each style; at least size() long.
+	 * @throws IllegalArgumentException As PricingEngine.quoteCents.
+	 */
+	public void quoteCents(double numOfBedrooms, double numOfBathrooms, double area, long[] costs) {
+		int size = styles.length;
+		if (costs.length < size) {
+			throw new IllegalArgumentException("Costs are shorter than " + size);
+		}
+		PricingEngine.checkRequest(numOfBedrooms, numOfBathrooms, area);
+		if (!PricingRules.isStandardActive()) {
+			for (int i = 0; i < size; i++) {
+				costs[i] = quoteCents(i, numOfBedrooms, numOfBathrooms, area);
+			}
+			return;
+		}
+
+		// The area is the same for every style, so choose the rates once.
+		long[] rates = area > PricingEngine.LARGE_AREA ? largeRateCents : rateCents;
+		long[] extraBedrooms = extraCents(PricingEngine.EXTRA_BEDROOM_RATE, numOfBedrooms, bedroomCounts);
+		long[] extraBathrooms = extraCents(PricingEngine.EXTRA_BATHROOM_RATE, numOfBathrooms, bathroomCounts);
+		int[] bedroomCodes = this.bedroomCodes;
+		int[] bathroomCodes = this.bathroomCodes;
+		for (int i = 0; i < size; i++) {
+			long cost = rates[i] + extraBedrooms[bedroomCodes[i]] + extraBathrooms[bathroomCodes[i]];
+			costs[i] = cost + Money.percentOf(cost, PricingEngine.TAX_BASIS_POINTS);
+		}
+	}
+
+	/**
+	 * Prices the rooms requested beyond each count the templates include.
+	 */
+	private static long[] extraCents(double roomRate, double requested, double[] included) {
+		long[] cents = new long[included.length];
+		for (int i = 0; i < included.length; i++) {
+			double extra = requested - included[i];
+			cents[i] = Money.centsOf(roomRate * (extra >= 0 ? extra : 0));
+		}
+		return cents;
+	}
+}
@@ -0,0 +1,215 @@
+package application.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import application.metrics.Metric;
+import application.metrics.Metrics;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+
+/**
+ * An index over the template houses for exact-match lookups.
+ *
+ * Templates are hashed on their style, bedrooms, bathrooms and area, so
+ * checking whether a customized house is one of the templates takes the same
+ * time however large the catalog grows. The index follows adds, removes and
+ * replacements made to the observed list. Lookups may be made from any thread.
+ */
+public class TemplateCatalog {
+	private final ObservableList<House> houses;
+	private final Map<Key, Entry> index = new ConcurrentHashMap<>();
+
+	private final ListChangeListener<House> listener = change -> {
+		while (change.next()) {
+			if (change.wasPermutated()) {
+				continue;
+			}
+			for (House removed : change.getRemoved()) {
+				remove(removed);
+			}
+			for (House added : change.getAddedSubList()) {
+				add(added);
+			}
+		}
+	};
+
+	/**
+	 * Indexes the houses and keeps following changes made to the list.
+	 *
+	 * @param houses
+	 */
+	public TemplateCatalog(ObservableList<House> houses) {
+		this.houses = houses;
+		reindex();
+		houses.addListener(listener);
+	}
+
+	/**
+	 * Returns a new list of the templates the company offers:
+	 * Traditional, Modern, European, Southwest, Mountain, Victorian, and Country.
+	 */
+	public static List<House> createDefaultTemplates() {
+		List<House> templates = new ArrayList<>();
+		templates.add(new Traditional());
+		templates.add(new Modern());
+		templates.add(new European());
+		templates.add(new Southwest());
+		templates.add(new Mountain());
+		templates.add(new Victorian());
+		templates.add(new Country());
+		return templates;
+	}
+
+	/**
+	 * Checks if a given house is equal to one of the templates.
+	 *
+	 * @param house
+	 * @return True if template.
+	 */
+	public boolean contains(House house) {
+		return find(house) != null;
+	}
+
+	/**
+	 * Returns the template with the same style, bedrooms, bathrooms and area
+	 * as the given house, or null if there is none.
+	 *
+	 * @param house
+	 */
+	public House find(House house) {
+		return find(house.getStyle(), house.getBedrooms(), house.getBathrooms(), house.getArea());
+	}
+
+	public House find(HouseSpec spec) {
+		return find(spec.getStyle(), spec.getBedrooms(), spec.getBathrooms(), spec.getArea());
+	}
+
+	public House find(String style, double numOfBedrooms, double numOfBathrooms, double area) {
+		long start = Metrics.start();
+		Entry entry = index.get(new Key(style, numOfBedrooms, numOfBathrooms, area));
+		Metric.TEMPLATE_MATCH.record(start);
+		return entry != null ? entry.template : null;
+	}
+
+	/**
+	 * Returns the number of distinct templates indexed.
+	 */
+	public int size() {
+		return index.size();
+	}
+
+	/**
+	 * Rebuilds the index from the list. Houses that are changed in place
+	 * (for example with setArea) do not notify the list, so call this
+	 * after modifying a template that is already in the catalog.
+	 */
+	public synchronized void reindex() {
+		index.clear();
+		for (House house : houses) {
+			add(house);
+		}
+	}
+
+	/**
+	 * Stops following the list.
+	 */
+	public void dispose() {
+		houses.removeListener(listener);
+	}
+
+	private synchronized void add(House house) {
+		index.compute(Key.of(house), (key, entry) -> {
+			if (entry == null) {
+				return new Entry(house);
+			}
+			entry.count++;
+			return entry;
+		});
+	}
+
+	private synchronized void remove(House house) {
+		index.computeIfPresent(Key.of(house), (key, entry) -> {
+			if (--entry.count == 0) {
+				return null;
+			}
+			if (entry.template == house) {
+				entry.template = findRemaining(key);
+			}
+			return entry;
+		});
+	}
+
+	private House findRemaining(Key key) {
+		List<House> houses = this.houses;
+		for (House house : houses) {
+			if (key.equals(Key.of(house))) {
+				return house;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * The templates sharing one key. Equal templates may appear in the list
+	 * more than once, so the key is only dropped when the last one is removed.
+	 */
+	private static final class Entry {
+		private volatile House template;
+		private int count = 1;
+
+		Entry(House template) {
+			this.template = template;
+		}
+	}
+
+	private static final class Key {
+		private final String style;
+		private final double numOfBedrooms;
+		private final double numOfBathrooms;
+		private final double area;
+		private final int hash;
+
+		Key(String style, double numOfBedrooms, double numOfBathrooms, double area) {
+			this.style = style;
+			// Adding zero turns -0.0 into 0.0, so both hash the same as they compare.
+			this.numOfBedrooms = numOfBedrooms + 0.0;
+			this.numOfBathrooms = numOfBathrooms + 0.0;
+			this.area = area + 0.0;
+
+			int hash = style != null ? style.hashCode() : 0;
+			hash = 31 * hash + Double.hashCode(this.numOfBedrooms);
+			hash = 31 * hash + Double.hashCode(this.numOfBathrooms);
+			hash = 31 * hash + Double.hashCode(this.area);
+			this.hash = hash;
+		}
+
+		static Key of(House house) {
+			HouseSpec spec = house.toSpec();
+			return new Key(spec.getStyle(), spec.getBedrooms(), spec.getBathrooms(), spec.getArea());
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return hash == other.hash
+				&& numOfBedrooms == other.numOfBedrooms
+				&& numOfBathrooms == other.numOfBathrooms
+				&& area == other.area
+				&& (style == null ? other.style == null : style.equals(other.style));
+		}
+	}
+}
@@ -0,0 +1,75 @@
+package application.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+
+/**
+ * The binary layout of a receipt journal file.
+ *
+ * The file starts with a 16 byte header: the magic number, the format
+ * version and 8 reserved bytes. Records follow back to back:
+ *
+ * int length, int crc32 of the payload, then the payload of
+ * long timestamp, double bedrooms, double bathrooms, double area,
+ * long cost in cents, short style length and the style in UTF-8.
+ *
+ * The unused end of the file is zero, so a length of zero marks the end
+ * of the journal. A record whose checksum does not match was torn by a
+ * crash and is treated as the end as well.
+ */
+final class JournalFormat {
+	static final int MAGIC = 0x4D48524A; // "MHRJ"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 16;
+	static final int RECORD_HEADER_SIZE = 8;
+	static final int FIXED_PAYLOAD_SIZE = 8 + 8 + 8 + 8 + 8 + 2;
+	static final int MAX_STYLE_BYTES = Short.MAX_VALUE;
+
+	private JournalFormat() {
+	}
+
+	static void writeHeader(ByteBuffer buffer) {
+		buffer.putInt(0, MAGIC);
+		buffer.putInt(4, VERSION);
+		buffer.putLong(8, 0);
+	}
+
+	static void checkHeader(ByteBuffer buffer) throws IOException {
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not a receipt journal");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported receipt journal version " + buffer.getInt(4));
+		}
+	}
+
+	/**
+	 * Returns the position just after the record starting at position, or -1
+	 * if there is no complete, intact record there.
+	 *
+	 * @param buffer
+	 * @param position
+	 * @param limit The end of the readable part of the buffer.
+	 * @param crc Reset and reused for the checksum.
+	 */
+	static int recordEnd(ByteBuffer buffer, int position, int limit, CRC32 crc) {
+		if (position + RECORD_HEADER_SIZE > limit) {
+			return -1;
+		}
+		int length = buffer.getInt(position);
+		if (length < FIXED_PAYLOAD_SIZE || length > limit - position - RECORD_HEADER_SIZE) {
+			return -1;
+		}
+
+		int payload = position + RECORD_HEADER_SIZE;
+		ByteBuffer slice = buffer.duplicate();
+		slice.limit(payload + length).position(payload);
+		crc.reset();
+		crc.update(slice);
+		if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+			return -1;
+		}
+		return payload + length;
+	}
+}
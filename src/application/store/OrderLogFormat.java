@@ -0,0 +1,122 @@
+package application.store;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+import application.model.Order;
+
+/**
+ * The binary layout of an order store's log and snapshot files.
+ *
+ * A log file starts with a 16 byte header: the magic number, the format
+ * version and the generation of the log. Records follow back to back:
+ *
+ * int length, int crc32 of the payload, then the payload: a byte with the
+ * record type, followed for PUT by an order and for CANCEL by the long id.
+ *
+ * An order is long id, long timestamp, double bedrooms, double bathrooms,
+ * double area, long cost in cents, short style length and the style in
+ * UTF-8. A record that is cut short or whose checksum does not match was
+ * torn by a crash and ends the log.
+ *
+ * A snapshot starts with a 32 byte header: the magic number, the version,
+ * the first log generation it does not include, the next order id and the
+ * number of orders. The orders follow back to back, and the file ends with
+ * the crc32 of everything after the header.
+ */
+final class OrderLogFormat {
+	static final int LOG_MAGIC = 0x4D484F4C; // "MHOL"
+	static final int SNAPSHOT_MAGIC = 0x4D484F53; // "MHOS"
+	static final int VERSION = 1;
+	static final int LOG_HEADER_SIZE = 16;
+	static final int SNAPSHOT_HEADER_SIZE = 32;
+	static final int RECORD_HEADER_SIZE = 8;
+	static final int FIXED_ORDER_SIZE = 8 + 8 + 8 + 8 + 8 + 8 + 2;
+	static final int MAX_STYLE_BYTES = Short.MAX_VALUE;
+
+	static final byte PUT = 1;
+	static final byte CANCEL = 2;
+
+	private OrderLogFormat() {
+	}
+
+	static void writeLogHeader(ByteBuffer buffer, long generation) {
+		buffer.putInt(LOG_MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putLong(generation);
+	}
+
+	/**
+	 * Checks the header of a log and returns its generation.
+	 */
+	static long checkLogHeader(ByteBuffer buffer) throws IOException {
+		if (buffer.limit() < LOG_HEADER_SIZE || buffer.getInt(0) != LOG_MAGIC) {
+			throw new IOException("Not an order log");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported order log version " + buffer.getInt(4));
+		}
+		return buffer.getLong(8);
+	}
+
+	static int orderSize(byte[] style) {
+		return FIXED_ORDER_SIZE + style.length;
+	}
+
+	static void putOrder(ByteBuffer buffer, Order order, byte[] style) {
+		buffer.putLong(order.getId());
+		buffer.putLong(order.getTimestamp());
+		buffer.putDouble(order.getBedrooms());
+		buffer.putDouble(order.getBathrooms());
+		buffer.putDouble(order.getArea());
+		buffer.putLong(order.getCostCents());
+		buffer.putShort((short) style.length);
+		buffer.put(style);
+	}
+
+	/**
+	 * Reads an order at the buffer's position, moving past it.
+	 */
+	static Order getOrder(ByteBuffer buffer) {
+		long id = buffer.getLong();
+		long timestamp = buffer.getLong();
+		double bedrooms = buffer.getDouble();
+		double bathrooms = buffer.getDouble();
+		double area = buffer.getDouble();
+		long cost = buffer.getLong();
+		byte[] style = new byte[buffer.getShort() & 0xFFFF];
+		buffer.get(style);
+		return new Order(id, timestamp, new String(style, StandardCharsets.UTF_8), bedrooms, bathrooms, area, cost);
+	}
+
+	/**
+	 * Returns the position just after the record starting at position, or -1
+	 * if there is no complete, intact record there.
+	 *
+	 * @param buffer
+	 * @param position
+	 * @param limit The end of the readable part of the buffer.
+	 * @param crc Reset and reused for the checksum.
+	 */
+	static int recordEnd(ByteBuffer buffer, int position, int limit, CRC32 crc) {
+		if (position + RECORD_HEADER_SIZE > limit) {
+			return -1;
+		}
+		int length = buffer.getInt(position);
+		if (length < 1 + 8 || length > limit - position - RECORD_HEADER_SIZE) {
+			return -1;
+		}
+
+		int payload = position + RECORD_HEADER_SIZE;
+		ByteBuffer slice = buffer.duplicate();
+		slice.limit(payload + length).position(payload);
+		crc.reset();
+		crc.update(slice);
+		if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+			return -1;
+		}
+		return payload + length;
+	}
+}
@@ -0,0 +1,805 @@
+package application.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import application.model.Order;
+
+/**
+ * A crash-safe store of orders, kept in memory and in a directory of files.
+ *
+ * Placing or cancelling an order updates the in-memory indexes at once and
+ * queues the change for a background thread, which appends whatever has
+ * queued up to the current log file and forces the whole batch to disk at
+ * once. Callers only wait when the writer falls more than the queue's
+ * capacity behind.
+ *
+ * Once snapshotEvery changes have been logged, and at least as many as
+ * there were orders in the last snapshot, and when the store is closed,
+ * the writer starts a new log and writes the live orders to a snapshot,
+ * leaving out cancelled ones, so each change is rewritten only a few times
+ * however large the store grows. Once the snapshot has been renamed into
+ * place the older logs are deleted. On open the snapshot is loaded and the
+ * newer logs are replayed up to their last intact record. Changes still
+ * queued when a snapshot is taken are both in the snapshot and in the new
+ * log; replaying a put or cancel twice leaves the same orders, so that is
+ * harmless.
+ *
+ * Orders can be looked up by id, by style and by when they were placed.
+ * See OrderLogFormat for the file layouts.
+ *
+ * An open store holds an exclusive lock on a file in its directory, so a
+ * second store cannot be opened on it, in this process or another, and
+ * recover logs the first one is still writing. A store opened read-only
+ * takes no lock and changes no files: it loads the orders on disk when it
+ * is opened and never sees later changes.
+ */
+public class OrderStore implements Closeable {
+	private static final String SNAPSHOT = "orders.snapshot";
+	private static final String SNAPSHOT_TEMP = "orders.snapshot.tmp";
+	private static final String LOCK = "orders.lock";
+	private static final String LOG_PREFIX = "orders-";
+	private static final String LOG_SUFFIX = ".log";
+	private static final int MAX_BATCH = 4096;
+
+	/**
+	 * One change waiting to be written: an order placed, or the id of one cancelled.
+	 */
+	private static final class Change {
+		final Order order;
+		final long cancelledId;
+
+		Change(Order order, long cancelledId) {
+			this.order = order;
+			this.cancelledId = cancelledId;
+		}
+	}
+
+	private final Path directory;
+	private final int capacity;
+	private final int snapshotEvery;
+	private final Semaphore space;
+	private final BlockingQueue<Change> queue = new LinkedBlockingQueue<>();
+	private final CRC32 crc = new CRC32();
+	private final Map<String, byte[]> styleBytes = new HashMap<>();
+	private final boolean readOnly;
+	private final StoreLock storeLock;
+	private ByteBuffer out = ByteBuffer.allocate(1 << 20);
+	private Thread writer;
+
+	// The orders and their indexes, guarded by lock.
+	private final Object lock = new Object();
+	private final Map<Long, Order> byId = new HashMap<>();
+	private final NavigableSet<Order> byTime = new TreeSet<>(Order.BY_TIME);
+	private final Map<String, NavigableSet<Order>> byStyle = new TreeMap<>();
+	private long nextId = 1;
+
+	// Only used by the writer once the store is open.
+	private FileChannel log;
+	private long generation;
+	private long sinceSnapshot;
+	private long snapshotSize;
+
+	private long changes;
+	private long committed;
+	private long snapshots;
+	private long snapshotsRequested;
+	private volatile boolean closed;
+	private IOException failure;
+
+	private OrderStore(Path directory, int capacity, int snapshotEvery, boolean readOnly) throws IOException {
+		this.directory = directory;
+		this.capacity = capacity;
+		this.snapshotEvery = snapshotEvery;
+		this.space = new Semaphore(capacity);
+		this.readOnly = readOnly;
+
+		if (readOnly) {
+			storeLock = null;
+			load();
+			return;
+		}
+
+		storeLock = StoreLock.acquire(directory.resolve(LOCK), "Order store " + directory);
+		try {
+			recover();
+		} catch (IOException | RuntimeException e) {
+			storeLock.close();
+			throw e;
+		}
+
+		writer = new Thread(this::writeLoop, "order-store");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Opens the store in the given directory, creating it if it does not exist.
+	 *
+	 * @param directory
+	 * @throws IOException If the store cannot be read, or is already open.
+	 */
+	public static OrderStore open(Path directory) throws IOException {
+		return open(directory, 65536, 100_000);
+	}
+
+	/**
+	 * @param directory
+	 * @param capacity The most changes that may wait to be written.
+	 * @param snapshotEvery The fewest changes logged before a snapshot is taken.
+	 * @throws IOException If the store cannot be read, or is already open.
+	 */
+	public static OrderStore open(Path directory, int capacity, int snapshotEvery) throws IOException {
+		Files.createDirectories(directory);
+		return new OrderStore(directory, capacity, snapshotEvery, false);
+	}
+
+	/**
+	 * Opens the store in the given directory for reading the orders in it,
+	 * even while another process has it open. Placing or cancelling an
+	 * order throws an IOException.
+	 *
+	 * @param directory
+	 * @throws IOException If the store cannot be read.
+	 */
+	public static OrderStore openReadOnly(Path directory) throws IOException {
+		if (!Files.isDirectory(directory)) {
+			throw new NoSuchFileException(directory.toString(), null, "No order store");
+		}
+		return new OrderStore(directory, 1, 0, true);
+	}
+
+	public boolean isReadOnly() {
+		return readOnly;
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Places an order and queues it to be written.
+	 *
+	 * @param timestamp When the order was placed, in milliseconds since the epoch.
+	 * @param style
+	 * @param numOfBedrooms
+	 * @param numOfBathrooms
+	 * @param area
+	 * @param costCents The total cost in cents.
+	 * @return The order, with its id.
+	 * @throws IOException If the store is closed or could not be written.
+	 */
+	public Order place(long timestamp, String style, double numOfBedrooms, double numOfBathrooms,
+			double area, long costCents) throws IOException {
+		reserve();
+		synchronized (lock) {
+			Order order = new Order(nextId++, timestamp, style, numOfBedrooms, numOfBathrooms, area, costCents);
+			index(order);
+			enqueue(new Change(order, 0));
+			return order;
+		}
+	}
+
+	/**
+	 * Cancels an order. A cancelled order is no longer found and is left
+	 * out of the next snapshot.
+	 *
+	 * @param id
+	 * @return False if there is no order with the id.
+	 * @throws IOException If the store is closed or could not be written.
+	 */
+	public boolean cancel(long id) throws IOException {
+		reserve();
+		synchronized (lock) {
+			if (unindex(id) == null) {
+				space.release();
+				return false;
+			}
+			enqueue(new Change(null, id));
+			return true;
+		}
+	}
+
+	/**
+	 * Waits for room in the queue.
+	 */
+	private void reserve() throws IOException {
+		checkOpen();
+		space.acquireUninterruptibly();
+		try {
+			checkOpen();
+		} catch (IOException e) {
+			space.release();
+			throw e;
+		}
+	}
+
+	private void checkOpen() throws IOException {
+		if (readOnly) {
+			throw new IOException("Order store is open read-only: " + directory);
+		}
+		if (closed) {
+			throw new IOException("Order store is closed: " + directory);
+		}
+		synchronized (this) {
+			if (failure != null) {
+				throw new IOException("Order store failed: " + directory, failure);
+			}
+		}
+	}
+
+	private void enqueue(Change change) {
+		queue.add(change);
+		synchronized (this) {
+			changes++;
+		}
+	}
+
+	public Order get(long id) {
+		synchronized (lock) {
+			return byId.get(id);
+		}
+	}
+
+	public int size() {
+		synchronized (lock) {
+			return byId.size();
+		}
+	}
+
+	/**
+	 * Returns the orders of a style in the order they were placed.
+	 *
+	 * @param style
+	 */
+	public List<Order> findByStyle(String style) {
+		synchronized (lock) {
+			NavigableSet<Order> orders = byStyle.get(style);
+			return orders == null ? Collections.<Order>emptyList() : new ArrayList<>(orders);
+		}
+	}
+
+	/**
+	 * Returns the orders placed from (inclusive) to to (exclusive), in the
+	 * order they were placed.
+	 *
+	 * @param from Milliseconds since the epoch.
+	 * @param to Milliseconds since the epoch.
+	 */
+	public List<Order> findBetween(long from, long to) {
+		if (from >= to) {
+			return Collections.emptyList();
+		}
+		synchronized (lock) {
+			return new ArrayList<>(byTime.subSet(probe(from), true, probe(to), false));
+		}
+	}
+
+	/**
+	 * Returns the orders placed on the days from first to last, inclusive,
+	 * in the system time zone.
+	 *
+	 * @param first
+	 * @param last
+	 */
+	public List<Order> findByDate(LocalDate first, LocalDate last) {
+		ZoneId zone = ZoneId.systemDefault();
+		return findBetween(first.atStartOfDay(zone).toInstant().toEpochMilli(),
+			last.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli());
+	}
+
+	/**
+	 * Returns an order that sorts before every order placed at the timestamp.
+	 */
+	private static Order probe(long timestamp) {
+		return new Order(Long.MIN_VALUE, timestamp, "", 0, 0, 0, 0);
+	}
+
+	private void index(Order order) {
+		Order previous = byId.put(order.getId(), order);
+		if (previous != null) {
+			removeFromIndexes(previous);
+		}
+		byTime.add(order);
+		NavigableSet<Order> orders = byStyle.get(order.getStyle());
+		if (orders == null) {
+			orders = new TreeSet<>(Order.BY_TIME);
+			byStyle.put(order.getStyle(), orders);
+		}
+		orders.add(order);
+	}
+
+	private Order unindex(long id) {
+		Order order = byId.remove(id);
+		if (order != null) {
+			removeFromIndexes(order);
+		}
+		return order;
+	}
+
+	private void removeFromIndexes(Order order) {
+		byTime.remove(order);
+		NavigableSet<Order> orders = byStyle.get(order.getStyle());
+		orders.remove(order);
+		if (orders.isEmpty()) {
+			byStyle.remove(order.getStyle());
+		}
+	}
+
+	/**
+	 * Waits until every change made before this call is on disk.
+	 *
+	 * @throws IOException If the store could not be written.
+	 * @throws InterruptedException
+	 */
+	public synchronized void flush() throws IOException, InterruptedException {
+		if (readOnly) {
+			return;
+		}
+		long target = changes;
+		while (committed < target && failure == null && writer.isAlive()) {
+			wait(100);
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Takes a snapshot now, after the changes already queued are written,
+	 * and waits for it.
+	 *
+	 * @throws IOException If the store could not be written or is read-only.
+	 * @throws InterruptedException
+	 */
+	public synchronized void snapshot() throws IOException, InterruptedException {
+		if (readOnly) {
+			throw new IOException("Order store is open read-only: " + directory);
+		}
+		long target = ++snapshotsRequested;
+		while (snapshots < target && failure == null && writer.isAlive()) {
+			wait(100);
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Returns the number of changes known to be on disk since the store was opened.
+	 */
+	public synchronized long getCommittedCount() {
+		return committed;
+	}
+
+	/**
+	 * Writes the changes still queued, takes a snapshot and closes the files.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		if (readOnly) {
+			return;
+		}
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			log.close();
+		} finally {
+			storeLock.close();
+		}
+		synchronized (this) {
+			if (failure != null) {
+				throw failure;
+			}
+		}
+	}
+
+	private void writeLoop() {
+		List<Change> batch = new ArrayList<>(MAX_BATCH);
+		try {
+			while (!closed || !queue.isEmpty()) {
+				Change first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first != null) {
+					batch.add(first);
+					queue.drainTo(batch, MAX_BATCH - 1);
+					write(batch);
+					space.release(batch.size());
+
+					synchronized (this) {
+						committed += batch.size();
+						notifyAll();
+					}
+					sinceSnapshot += batch.size();
+					batch.clear();
+				}
+
+				boolean requested;
+				synchronized (this) {
+					requested = snapshots < snapshotsRequested;
+				}
+				if (requested || sinceSnapshot >= Math.max(snapshotEvery, snapshotSize)) {
+					takeSnapshot();
+				}
+			}
+			if (sinceSnapshot > 0) {
+				takeSnapshot();
+			}
+		} catch (IOException e) {
+			synchronized (this) {
+				failure = e;
+				notifyAll();
+			}
+			// Wake anyone waiting for room so they see the failure.
+			space.release(capacity);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Appends a batch of changes to the log and forces it to disk.
+	 */
+	private void write(List<Change> batch) throws IOException {
+		out.clear();
+		for (Change change : batch) {
+			if (change.order != null) {
+				byte[] style = styleBytes(change.order.getStyle());
+				int position = beginRecord(1 + OrderLogFormat.orderSize(style));
+				out.put(OrderLogFormat.PUT);
+				OrderLogFormat.putOrder(out, change.order, style);
+				endRecord(position);
+			} else {
+				int position = beginRecord(1 + 8);
+				out.put(OrderLogFormat.CANCEL);
+				out.putLong(change.cancelledId);
+				endRecord(position);
+			}
+		}
+		out.flip();
+		while (out.hasRemaining()) {
+			log.write(out);
+		}
+		// One sync for the whole batch.
+		log.force(false);
+	}
+
+	private int beginRecord(int length) {
+		ensureRemaining(OrderLogFormat.RECORD_HEADER_SIZE + length);
+		int position = out.position();
+		out.putInt(length);
+		out.putInt(0);
+		return position;
+	}
+
+	private void endRecord(int position) {
+		int payload = position + OrderLogFormat.RECORD_HEADER_SIZE;
+		crc.reset();
+		crc.update(out.array(), payload, out.position() - payload);
+		out.putInt(position + 4, (int) crc.getValue());
+	}
+
+	private void ensureRemaining(int bytes) {
+		if (out.remaining() < bytes) {
+			ByteBuffer larger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + bytes));
+			out.flip();
+			larger.put(out);
+			out = larger;
+		}
+	}
+
+	private byte[] styleBytes(String style) throws IOException {
+		byte[] bytes = styleBytes.get(style);
+		if (bytes == null) {
+			bytes = style.getBytes(StandardCharsets.UTF_8);
+			if (bytes.length > OrderLogFormat.MAX_STYLE_BYTES) {
+				throw new IOException("Style name too long: " + style);
+			}
+			styleBytes.put(style, bytes);
+		}
+		return bytes;
+	}
+
+	/**
+	 * Starts a new log, writes the live orders to a snapshot that covers
+	 * every older log, and deletes those logs.
+	 */
+	private void takeSnapshot() throws IOException {
+		FileChannel previous = log;
+		log = createLog(generation + 1);
+		previous.close();
+
+		List<Order> live;
+		long snapshotNextId;
+		synchronized (lock) {
+			live = new ArrayList<>(byId.values());
+			snapshotNextId = nextId;
+		}
+		live.sort((a, b) -> Long.compare(a.getId(), b.getId()));
+
+		Path temp = directory.resolve(SNAPSHOT_TEMP);
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			out.clear();
+			out.putInt(OrderLogFormat.SNAPSHOT_MAGIC);
+			out.putInt(OrderLogFormat.VERSION);
+			out.putLong(generation);
+			out.putLong(snapshotNextId);
+			out.putInt(live.size());
+			out.putInt(0);
+			crc.reset();
+			int checked = out.position();
+			for (Order order : live) {
+				byte[] style = styleBytes(order.getStyle());
+				int size = OrderLogFormat.orderSize(style);
+				if (out.remaining() < size + 4) {
+					crc.update(out.array(), checked, out.position() - checked);
+					drain(channel);
+					checked = 0;
+					ensureRemaining(size + 4);
+				}
+				OrderLogFormat.putOrder(out, order, style);
+			}
+			crc.update(out.array(), checked, out.position() - checked);
+			out.putInt((int) crc.getValue());
+			drain(channel);
+			channel.force(true);
+		}
+		Files.move(temp, directory.resolve(SNAPSHOT),
+			StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+		for (Path path : logs()) {
+			if (logGeneration(path) < generation) {
+				Files.delete(path);
+			}
+		}
+		sinceSnapshot = 0;
+		snapshotSize = live.size();
+		synchronized (this) {
+			snapshots = Math.max(snapshots + 1, snapshotsRequested);
+			notifyAll();
+		}
+	}
+
+	private void drain(FileChannel channel) throws IOException {
+		out.flip();
+		while (out.hasRemaining()) {
+			channel.write(out);
+		}
+		out.clear();
+	}
+
+	private FileChannel createLog(long generation) throws IOException {
+		FileChannel channel = FileChannel.open(logPath(generation), StandardOpenOption.CREATE,
+			StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+		ByteBuffer header = ByteBuffer.allocate(OrderLogFormat.LOG_HEADER_SIZE);
+		OrderLogFormat.writeLogHeader(header, generation);
+		header.flip();
+		while (header.hasRemaining()) {
+			channel.write(header);
+		}
+		channel.force(true);
+		this.generation = generation;
+		return channel;
+	}
+
+	/**
+	 * Loads the snapshot, replays the logs after it and opens the last log
+	 * for appending, cutting off anything a crash left after its last intact
+	 * record.
+	 */
+	private void recover() throws IOException {
+		Files.deleteIfExists(directory.resolve(SNAPSHOT_TEMP));
+
+		long first = 1;
+		Path snapshot = directory.resolve(SNAPSHOT);
+		if (Files.exists(snapshot)) {
+			first = loadSnapshot(snapshot);
+		}
+
+		List<Path> logs = new ArrayList<>();
+		for (Path path : logs()) {
+			if (logGeneration(path) < first) {
+				// Left behind by a crash just after the snapshot replaced it.
+				Files.delete(path);
+			} else {
+				logs.add(path);
+			}
+		}
+		logs.sort((a, b) -> Long.compare(logGeneration(a), logGeneration(b)));
+
+		int end = -1;
+		for (Path path : logs) {
+			end = replay(path, true);
+		}
+		if (logs.isEmpty()) {
+			log = createLog(first);
+		} else {
+			Path last = logs.get(logs.size() - 1);
+			generation = logGeneration(last);
+			log = FileChannel.open(last, StandardOpenOption.WRITE);
+			if (log.size() > end) {
+				log.truncate(end);
+				log.force(true);
+			}
+			log.position(end);
+		}
+	}
+
+	/**
+	 * Loads the snapshot and replays the logs after it up to their last
+	 * intact record, without changing any file.
+	 */
+	private void load() throws IOException {
+		for (int attempt = 1; ; attempt++) {
+			try {
+				long first = 1;
+				Path snapshot = directory.resolve(SNAPSHOT);
+				if (Files.exists(snapshot)) {
+					first = loadSnapshot(snapshot);
+				}
+				List<Path> logs = new ArrayList<>();
+				for (Path path : logs()) {
+					if (logGeneration(path) >= first) {
+						logs.add(path);
+					}
+				}
+				logs.sort((a, b) -> Long.compare(logGeneration(a), logGeneration(b)));
+				long expected = first;
+				for (Path path : logs) {
+					// The logs after a snapshot are numbered on from it, with no gaps.
+					if (logGeneration(path) != expected++) {
+						throw new NoSuchFileException(logPath(expected - 1).toString());
+					}
+					replay(path, false);
+				}
+				return;
+			} catch (NoSuchFileException e) {
+				// A store open in another process took a snapshot and deleted
+				// the logs it covers; read the new snapshot instead.
+				if (attempt == 3) {
+					throw e;
+				}
+				synchronized (lock) {
+					byId.clear();
+					byTime.clear();
+					byStyle.clear();
+					nextId = 1;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Loads the orders of a snapshot and returns the first log generation it does not include.
+	 */
+	private long loadSnapshot(Path path) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+		if (buffer.limit() < OrderLogFormat.SNAPSHOT_HEADER_SIZE + 4
+				|| buffer.getInt(0) != OrderLogFormat.SNAPSHOT_MAGIC) {
+			throw new IOException("Not an order snapshot: " + path);
+		}
+		if (buffer.getInt(4) != OrderLogFormat.VERSION) {
+			throw new IOException("Unsupported order snapshot version " + buffer.getInt(4));
+		}
+		int end = buffer.limit() - 4;
+		crc.reset();
+		crc.update(buffer.array(), OrderLogFormat.SNAPSHOT_HEADER_SIZE, end - OrderLogFormat.SNAPSHOT_HEADER_SIZE);
+		if ((int) crc.getValue() != buffer.getInt(end)) {
+			throw new IOException("Corrupt order snapshot: " + path);
+		}
+
+		long first = buffer.getLong(8);
+		nextId = buffer.getLong(16);
+		int count = buffer.getInt(24);
+		snapshotSize = count;
+		buffer.position(OrderLogFormat.SNAPSHOT_HEADER_SIZE);
+		synchronized (lock) {
+			for (int i = 0; i < count; i++) {
+				index(OrderLogFormat.getOrder(buffer));
+			}
+		}
+		return first;
+	}
+
+	/**
+	 * Applies the intact records of a log and returns where they end.
+	 *
+	 * @param path
+	 * @param repair Whether to rewrite the header of a log cut short while it
+	 * was being created, rather than skip it.
+	 */
+	private int replay(Path path, boolean repair) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+		if (buffer.limit() < OrderLogFormat.LOG_HEADER_SIZE) {
+			if (!repair) {
+				return 0;
+			}
+			// Cut short while it was being created.
+			buffer = ByteBuffer.allocate(OrderLogFormat.LOG_HEADER_SIZE);
+			OrderLogFormat.writeLogHeader(buffer, logGeneration(path));
+			Files.write(path, buffer.array());
+			buffer.flip();
+		}
+		OrderLogFormat.checkLogHeader(buffer);
+
+		int limit = buffer.limit();
+		int position = OrderLogFormat.LOG_HEADER_SIZE;
+		int end;
+		synchronized (lock) {
+			while ((end = OrderLogFormat.recordEnd(buffer, position, limit, crc)) > 0) {
+				buffer.position(position + OrderLogFormat.RECORD_HEADER_SIZE);
+				byte type = buffer.get();
+				if (type == OrderLogFormat.PUT) {
+					Order order = OrderLogFormat.getOrder(buffer);
+					index(order);
+					nextId = Math.max(nextId, order.getId() + 1);
+				} else if (type == OrderLogFormat.CANCEL) {
+					unindex(buffer.getLong());
+				} else {
+					throw new IOException("Unknown record type " + type + " in " + path);
+				}
+				position = end;
+			}
+		}
+		return position;
+	}
+
+	private List<Path> logs() throws IOException {
+		List<Path> logs = new ArrayList<>();
+		try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, LOG_PREFIX + "*" + LOG_SUFFIX)) {
+			for (Path path : paths) {
+				if (logGeneration(path) > 0) {
+					logs.add(path);
+				}
+			}
+		}
+		return logs;
+	}
+
+	private Path logPath(long generation) {
+		return directory.resolve(String.format("%s%06d%s", LOG_PREFIX, generation, LOG_SUFFIX));
+	}
+
+	/**
+	 * Returns the generation in a log's file name, or -1 if it is not a log.
+	 */
+	private static long logGeneration(Path path) {
+		String name = path.getFileName().toString();
+		try {
+			return Long.parseLong(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length()));
+		} catch (NumberFormatException | IndexOutOfBoundsException e) {
+			return -1;
+		}
+	}
+}
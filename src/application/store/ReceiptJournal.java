@@ -0,0 +1,303 @@
+package application.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+import application.model.Receipt;
+
+/**
+ * An append-only journal of printed receipts, kept in a memory-mapped file.
+ *
+ * Appending only queues the receipt, so the caller never waits on the disk.
+ * A background thread writes whatever has queued up and then forces the
+ * whole batch to disk at once. After a crash the journal is reopened up to
+ * the last intact record. See JournalFormat for the file layout.
+ *
+ * An open journal holds an exclusive lock on a .lock file next to it, so a
+ * second one cannot be opened on the same file and write over its records.
+ * Once a write fails the journal takes no more receipts.
+ */
+public class ReceiptJournal implements Closeable {
+	private static final int MIN_MAPPED_SIZE = 16 * 1024 * 1024;
+	private static final int MAX_BATCH = 4096;
+
+	private final Path path;
+	private final StoreLock storeLock;
+	private final FileChannel channel;
+	private final BlockingQueue<Receipt> queue;
+	private final Thread writer;
+	private final CRC32 crc = new CRC32();
+	private final Map<String, byte[]> styles = new HashMap<>();
+
+	private MappedByteBuffer buffer;
+	private int position;
+
+	private long appended;
+	private long committed;
+	private volatile boolean closed;
+	private IOException failure;
+
+	private ReceiptJournal(Path path, int capacity) throws IOException {
+		this.path = path;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.storeLock = StoreLock.acquire(path.resolveSibling(path.getFileName() + ".lock"),
+			"Receipt journal " + path);
+		FileChannel channel = null;
+		try {
+			channel = FileChannel.open(path,
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			this.channel = channel;
+
+			boolean created = channel.size() == 0;
+			map(Math.max(channel.size(), MIN_MAPPED_SIZE));
+			if (created) {
+				JournalFormat.writeHeader(buffer);
+				buffer.force();
+				position = JournalFormat.HEADER_SIZE;
+			} else {
+				JournalFormat.checkHeader(buffer);
+				position = recover();
+			}
+		} catch (IOException | RuntimeException e) {
+			try {
+				if (channel != null) {
+					channel.close();
+				}
+			} finally {
+				storeLock.close();
+			}
+			throw e;
+		}
+
+		writer = new Thread(this::writeLoop, "receipt-journal");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Opens the journal at the given path, creating it if it does not exist.
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public static ReceiptJournal open(Path path) throws IOException {
+		return open(path, 65536);
+	}
+
+	/**
+	 * @param path
+	 * @param capacity The most receipts that may wait to be written.
+	 * @throws IOException
+	 */
+	public static ReceiptJournal open(Path path, int capacity) throws IOException {
+		Path parent = path.toAbsolutePath().getParent();
+		if (parent != null) {
+			Files.createDirectories(parent);
+		}
+		return new ReceiptJournal(path, capacity);
+	}
+
+	public Path getPath() {
+		return path;
+	}
+
+	/**
+	 * Queues a receipt to be written. Never blocks.
+	 *
+	 * @param receipt
+	 * @return False if the journal is closed or has failed, too many receipts
+	 * are waiting, or the style is too long to record.
+	 */
+	public boolean append(Receipt receipt) {
+		if (closed || !fits(receipt.getStyle())) {
+			return false;
+		}
+		synchronized (this) {
+			if (failure != null || !queue.offer(receipt)) {
+				return false;
+			}
+			appended++;
+		}
+		return true;
+	}
+
+	/**
+	 * Waits until every receipt appended before this call is on disk.
+	 *
+	 * @throws IOException If the journal could not be written.
+	 * @throws InterruptedException
+	 */
+	public synchronized void flush() throws IOException, InterruptedException {
+		long target = appended;
+		while (committed < target && failure == null && writer.isAlive()) {
+			wait(100);
+		}
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	/**
+	 * Returns the number of receipts known to be on disk since the journal was opened.
+	 */
+	public synchronized long getCommittedCount() {
+		return committed;
+	}
+
+	/**
+	 * Writes the receipts still queued and closes the file.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		try {
+			channel.close();
+		} finally {
+			storeLock.close();
+		}
+		synchronized (this) {
+			if (failure != null) {
+				throw failure;
+			}
+		}
+	}
+
+	private void writeLoop() {
+		List<Receipt> batch = new ArrayList<>(MAX_BATCH);
+		try {
+			while (!closed || !queue.isEmpty()) {
+				Receipt first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+				queue.drainTo(batch, MAX_BATCH - 1);
+
+				for (Receipt receipt : batch) {
+					write(receipt);
+				}
+				// One sync for the whole batch.
+				buffer.force();
+
+				synchronized (this) {
+					committed += batch.size();
+					notifyAll();
+				}
+				batch.clear();
+			}
+		} catch (IOException e) {
+			synchronized (this) {
+				failure = e;
+				notifyAll();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Returns true if a style is short enough to record. A character takes
+	 * at most three bytes, so only long names are encoded to check.
+	 */
+	private static boolean fits(String style) {
+		return style.length() * 3L <= JournalFormat.MAX_STYLE_BYTES
+			|| style.getBytes(StandardCharsets.UTF_8).length <= JournalFormat.MAX_STYLE_BYTES;
+	}
+
+	private void write(Receipt receipt) throws IOException {
+		byte[] style = styles.get(receipt.getStyle());
+		if (style == null) {
+			style = receipt.getStyle().getBytes(StandardCharsets.UTF_8);
+			if (style.length > JournalFormat.MAX_STYLE_BYTES) {
+				throw new IOException("Style name too long: " + receipt.getStyle());
+			}
+			styles.put(receipt.getStyle(), style);
+		}
+
+		int length = JournalFormat.FIXED_PAYLOAD_SIZE + style.length;
+		long end = (long) position + JournalFormat.RECORD_HEADER_SIZE + length;
+		if (end > buffer.capacity()) {
+			grow(end);
+		}
+
+		int payload = position + JournalFormat.RECORD_HEADER_SIZE;
+		buffer.position(payload);
+		buffer.putLong(receipt.getTimestamp());
+		buffer.putDouble(receipt.getBedrooms());
+		buffer.putDouble(receipt.getBathrooms());
+		buffer.putDouble(receipt.getArea());
+		buffer.putLong(receipt.getCostCents());
+		buffer.putShort((short) style.length);
+		buffer.put(style);
+
+		ByteBuffer slice = buffer.duplicate();
+		slice.limit((int) end).position(payload);
+		crc.reset();
+		crc.update(slice);
+		buffer.putInt(position + 4, (int) crc.getValue());
+		// The length goes last, so a reader never sees a record before it is complete.
+		buffer.putInt(position, length);
+		position = (int) end;
+	}
+
+	/**
+	 * Finds the end of the last intact record and clears anything a crash left after it.
+	 */
+	private int recover() {
+		int limit = buffer.capacity();
+		int position = JournalFormat.HEADER_SIZE;
+		int end;
+		while ((end = JournalFormat.recordEnd(buffer, position, limit, crc)) > 0) {
+			position = end;
+		}
+
+		if (position + 4 <= limit && buffer.getInt(position) != 0) {
+			for (int i = position; i < limit; i++) {
+				buffer.put(i, (byte) 0);
+			}
+			buffer.force();
+		}
+		return position;
+	}
+
+	private void grow(long required) throws IOException {
+		// A single mapping cannot be larger than 2 GB.
+		if (required > Integer.MAX_VALUE) {
+			throw new IOException("Receipt journal is full: " + path);
+		}
+		long size = buffer.capacity();
+		while (size < required) {
+			size *= 2;
+		}
+		size = Math.min(size, Integer.MAX_VALUE);
+		buffer.force();
+		map(size);
+	}
+
+	private void map(long size) throws IOException {
+		buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+	}
+}
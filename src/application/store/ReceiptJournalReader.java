@@ -0,0 +1,196 @@
+package application.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+import application.model.Receipt;
+import application.util.CurrencyFormatter;
+
+/**
+ * Reads a receipt journal through a read-only memory mapping.
+ *
+ * Records are handed to a visitor as primitives, so scanning millions of
+ * receipts only allocates for style names it has not seen yet. The reader
+ * remembers where it stopped; calling scan again picks up receipts written
+ * since, which is how tail follows a journal that is still being written.
+ */
+public class ReceiptJournalReader implements Closeable {
+	/**
+	 * Receives each receipt read from the journal.
+	 */
+	public interface Visitor {
+		/**
+		 * @param timestamp Milliseconds since the epoch.
+		 * @param style
+		 * @param numOfBedrooms
+		 * @param numOfBathrooms
+		 * @param area
+		 * @param costCents The total cost in cents.
+		 */
+		void receipt(long timestamp, String style, double numOfBedrooms, double numOfBathrooms,
+				double area, long costCents);
+	}
+
+	private static final int STYLE_CACHE_SIZE = 256;
+
+	private final FileChannel channel;
+	private final CRC32 crc = new CRC32();
+	private final byte[][] styleBytes = new byte[STYLE_CACHE_SIZE][];
+	private final String[] styleNames = new String[STYLE_CACHE_SIZE];
+	private byte[] scratch = new byte[64];
+
+	private MappedByteBuffer buffer;
+	private int position = JournalFormat.HEADER_SIZE;
+
+	private ReceiptJournalReader(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		remap();
+		JournalFormat.checkHeader(buffer);
+	}
+
+	public static ReceiptJournalReader open(Path path) throws IOException {
+		return new ReceiptJournalReader(path);
+	}
+
+	/**
+	 * Reads every complete receipt after the last one read.
+	 *
+	 * @param visitor
+	 * @return The number of receipts read.
+	 * @throws IOException
+	 */
+	public long scan(Visitor visitor) throws IOException {
+		if (channel.size() > buffer.capacity()) {
+			remap();
+		}
+
+		long count = 0;
+		int limit = buffer.capacity();
+		int end;
+		while ((end = JournalFormat.recordEnd(buffer, position, limit, crc)) > 0) {
+			int at = position + JournalFormat.RECORD_HEADER_SIZE;
+			long timestamp = buffer.getLong(at);
+			double bedrooms = buffer.getDouble(at + 8);
+			double bathrooms = buffer.getDouble(at + 16);
+			double area = buffer.getDouble(at + 24);
+			long costCents = buffer.getLong(at + 32);
+			int styleLength = buffer.getShort(at + 40);
+			String style = style(at + 42, styleLength);
+
+			visitor.receipt(timestamp, style, bedrooms, bathrooms, area, costCents);
+			position = end;
+			count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Reads receipts as they are written until the thread is interrupted.
+	 *
+	 * @param visitor
+	 * @param pollMillis How long to wait when no new receipts are found.
+	 * @throws IOException
+	 */
+	public void tail(Visitor visitor, long pollMillis) throws IOException {
+		while (!Thread.currentThread().isInterrupted()) {
+			if (scan(visitor) == 0) {
+				try {
+					Thread.sleep(pollMillis);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private void remap() throws IOException {
+		long size = Math.min(channel.size(), Integer.MAX_VALUE);
+		buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+	}
+
+	/**
+	 * Decodes a style name, reusing the String from an earlier record with the same bytes.
+	 */
+	private String style(int at, int length) {
+		if (scratch.length < length) {
+			scratch = new byte[length];
+		}
+		int hash = 1;
+		for (int i = 0; i < length; i++) {
+			scratch[i] = buffer.get(at + i);
+			hash = 31 * hash + scratch[i];
+		}
+
+		int slot = (hash ^ (hash >>> 16)) & (STYLE_CACHE_SIZE - 1);
+		byte[] cached = styleBytes[slot];
+		if (cached != null && cached.length == length && regionEquals(cached, scratch, length)) {
+			return styleNames[slot];
+		}
+
+		byte[] bytes = new byte[length];
+		System.arraycopy(scratch, 0, bytes, 0, length);
+		String style = new String(bytes, StandardCharsets.UTF_8);
+		styleBytes[slot] = bytes;
+		styleNames[slot] = style;
+		return style;
+	}
+
+	private static boolean regionEquals(byte[] a, byte[] b, int length) {
+		for (int i = 0; i < length; i++) {
+			if (a[i] != b[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Creates a Receipt from the values passed to a visitor.
+	 */
+	public static Receipt toReceipt(long timestamp, String style, double numOfBedrooms,
+			double numOfBathrooms, double area, long costCents) {
+		return new Receipt(timestamp, style, numOfBedrooms, numOfBathrooms, area, costCents);
+	}
+
+	/**
+	 * Prints a journal as CSV.
+	 * Usage: java application.store.ReceiptJournalReader [--tail] journal
+	 */
+	public static void main(String[] args) throws IOException {
+		boolean tail = args.length > 1 && args[0].equals("--tail");
+		Path path = Paths.get(args[args.length - 1]);
+		PrintStream out = System.out;
+		StringBuilder line = new StringBuilder();
+		Visitor print = (timestamp, style, bedrooms, bathrooms, area, costCents) -> {
+			line.setLength(0);
+			line.append(timestamp).append(',').append(style).append(',')
+				.append(bedrooms).append(',').append(bathrooms).append(',').append(area).append(',');
+			CurrencyFormatter.PLAIN.appendTo(line, costCents);
+			out.println(line);
+		};
+
+		try (ReceiptJournalReader reader = open(path)) {
+			out.println("timestamp,style,bedrooms,bathrooms,area,cost");
+			if (tail) {
+				reader.tail(print, 200);
+			} else {
+				long start = System.nanoTime();
+				long count = reader.scan(print);
+				System.err.printf("Read %d receipts in %.1f ms%n", count, (System.nanoTime() - start) / 1e6);
+			}
+		}
+	}
+}
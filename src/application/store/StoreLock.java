@@ -0,0 +1,81 @@
+package application.store;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An exclusive lock on a file, held while a store writes the files it
+ * guards, so a second writer fails to open rather than recover and
+ * overwrite files the first is still writing.
+ *
+ * Closing any channel to a locked file drops every lock this process holds
+ * on it, so locks taken in this process are also kept in a set, and a
+ * second attempt fails before the file is opened.
+ */
+final class StoreLock implements Closeable {
+	// The lock files held in this process.
+	private static final Set<Path> LOCKED = new HashSet<>();
+
+	private final Path path;
+	private final FileLock fileLock;
+
+	private StoreLock(Path path, FileLock fileLock) {
+		this.path = path;
+		this.fileLock = fileLock;
+	}
+
+	/**
+	 * Takes the lock, creating the lock file if needed.
+	 *
+	 * @param path The lock file; its folder must exist.
+	 * @param name What is locked, for the error, e.g. "Order store /home/orders".
+	 * @throws IOException If the lock is held, here or in another process.
+	 */
+	static StoreLock acquire(Path path, String name) throws IOException {
+		path = path.toAbsolutePath().getParent().toRealPath().resolve(path.getFileName());
+		synchronized (LOCKED) {
+			if (!LOCKED.add(path)) {
+				throw new IOException(name + " is already open");
+			}
+		}
+		FileLock fileLock = null;
+		try {
+			FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			try {
+				fileLock = channel.tryLock();
+			} finally {
+				if (fileLock == null) {
+					channel.close();
+				}
+			}
+		} finally {
+			if (fileLock == null) {
+				synchronized (LOCKED) {
+					LOCKED.remove(path);
+				}
+			}
+		}
+		if (fileLock == null) {
+			throw new IOException(name + " is open in another process");
+		}
+		return new StoreLock(path, fileLock);
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			// Closing the channel releases the lock.
+			fileLock.channel().close();
+		} finally {
+			synchronized (LOCKED) {
+				LOCKED.remove(path);
+			}
+		}
+	}
+}
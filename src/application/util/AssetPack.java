@@ -0,0 +1,254 @@
+package application.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads the pack of pre-scaled images written by AssetPacker.
+ *
+ * A pack starts with a 12 byte header: the magic number, the format version
+ * and the number of entries. The index follows, an entry per image variant:
+ * short name length, the name in UTF-8, short width, short height, int
+ * offset of the image from the start of the pack and int length. The
+ * encoded images follow the index.
+ *
+ * A pack on disk is memory-mapped, so an image is decoded straight from the
+ * page cache without reading it into the heap first. A pack inside a jar is
+ * read once into a direct buffer.
+ */
+public final class AssetPack {
+	static final int MAGIC = 0x4D484150; // "MHAP"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 12;
+
+	/**
+	 * The name of the pack resource on the class path.
+	 */
+	public static final String RESOURCE_NAME = "assets.pack";
+
+	private static final class Variant {
+		final int width;
+		final int height;
+		final int offset;
+		final int length;
+
+		Variant(int width, int height, int offset, int length) {
+			this.width = width;
+			this.height = height;
+			this.offset = offset;
+			this.length = length;
+		}
+
+		boolean fits(double width, double height) {
+			return this.width >= width && this.height >= height;
+		}
+
+		/**
+		 * A variant that fits beats one that does not; the smallest of those
+		 * that fit and the largest of those that do not win.
+		 */
+		boolean isBetterThan(Variant other, double width, double height) {
+			boolean fits = fits(width, height);
+			if (fits != other.fits(width, height)) {
+				return fits;
+			}
+			long pixels = (long) this.width * this.height;
+			long otherPixels = (long) other.width * other.height;
+			return fits ? pixels < otherPixels : pixels > otherPixels;
+		}
+	}
+
+	private final ByteBuffer buffer;
+	private final Map<String, List<Variant>> variants = new HashMap<>();
+
+	private AssetPack(ByteBuffer buffer) throws IOException {
+		this.buffer = buffer;
+		if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+			throw new IOException("Not an asset pack");
+		}
+		if (buffer.getInt(4) != VERSION) {
+			throw new IOException("Unsupported asset pack version " + buffer.getInt(4));
+		}
+
+		ByteBuffer index = buffer.duplicate();
+		index.position(HEADER_SIZE);
+		int count = index.getInt(8);
+		try {
+			for (int i = 0; i < count; i++) {
+				byte[] name = new byte[index.getShort() & 0xFFFF];
+				index.get(name);
+				Variant variant = new Variant(index.getShort() & 0xFFFF, index.getShort() & 0xFFFF,
+					index.getInt(), index.getInt());
+				if (variant.offset < 0 || variant.length < 0 || variant.offset > buffer.limit() - variant.length) {
+					throw new IOException("Asset pack entry out of bounds");
+				}
+				variants.computeIfAbsent(new String(name, StandardCharsets.UTF_8), key -> new ArrayList<>(2))
+					.add(variant);
+			}
+		} catch (RuntimeException e) {
+			throw new IOException("Corrupt asset pack index", e);
+		}
+	}
+
+	/**
+	 * Memory-maps a pack file.
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public static AssetPack open(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return new AssetPack(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Opens a pack from a URL, mapping it if it is a file.
+	 *
+	 * @param url
+	 * @throws IOException
+	 */
+	public static AssetPack open(URL url) throws IOException {
+		if (url.getProtocol().equals("file")) {
+			try {
+				return open(Paths.get(url.toURI()));
+			} catch (URISyntaxException e) {
+				throw new IOException(e);
+			}
+		}
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(1 << 16);
+		try (InputStream in = url.openStream()) {
+			byte[] chunk = new byte[1 << 16];
+			int read;
+			while ((read = in.read(chunk)) > 0) {
+				bytes.write(chunk, 0, read);
+			}
+		}
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.size());
+		buffer.put(bytes.toByteArray()).flip();
+		return new AssetPack(buffer);
+	}
+
+	/**
+	 * Opens the pack named by the midwest.assets system property, or the one
+	 * on the class path.
+	 *
+	 * @return The pack, or null if there is none or it cannot be read.
+	 */
+	public static AssetPack openDefault() {
+		try {
+			String path = System.getProperty("midwest.assets");
+			if (path != null) {
+				return open(Paths.get(path));
+			}
+			ClassLoader loader = Thread.currentThread().getContextClassLoader();
+			if (loader == null) {
+				loader = AssetPack.class.getClassLoader();
+			}
+			URL url = loader.getResource(RESOURCE_NAME);
+			return url == null ? null : open(url);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Returns whether the pack holds any variant of the named image.
+	 */
+	public boolean contains(String name) {
+		return variants.containsKey(name);
+	}
+
+	/**
+	 * Returns the encoded bytes of the smallest variant of the named image
+	 * that is at least width by height, or of its largest variant if none
+	 * is that large.
+	 *
+	 * @param name The name of the original image, e.g. mountain-house.jpg.
+	 * @param width
+	 * @param height
+	 * @return A read-only buffer over the bytes, or null if the image is not in the pack.
+	 */
+	public ByteBuffer get(String name, double width, double height) {
+		List<Variant> candidates = variants.get(name);
+		if (candidates == null) {
+			return null;
+		}
+		Variant best = null;
+		for (Variant variant : candidates) {
+			if (best == null || variant.isBetterThan(best, width, height)) {
+				best = variant;
+			}
+		}
+
+		ByteBuffer slice = buffer.asReadOnlyBuffer();
+		slice.limit(best.offset + best.length).position(best.offset);
+		return slice.slice();
+	}
+
+	/**
+	 * Returns a stream over the variant get would return, for decoding it.
+	 *
+	 * @return The stream, or null if the image is not in the pack.
+	 */
+	public InputStream openStream(String name, double width, double height) {
+		ByteBuffer bytes = get(name, width, height);
+		return bytes == null ? null : new BufferInputStream(bytes);
+	}
+
+	/**
+	 * Reads a buffer without copying it first.
+	 */
+	private static final class BufferInputStream extends InputStream {
+		private final ByteBuffer buffer;
+
+		BufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (length == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			int read = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, read);
+			return read;
+		}
+
+		@Override
+		public long skip(long count) {
+			int skipped = (int) Math.max(0, Math.min(count, buffer.remaining()));
+			buffer.position(buffer.position() + skipped);
+			return skipped;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+}
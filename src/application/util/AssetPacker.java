@@ -0,0 +1,213 @@
+package application.util;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Builds the asset pack from the images in a folder, scaled to the sizes
+ * the views show them at and recompressed. Run by build.xml before the jar
+ * is made.
+ *
+ * Usage: java application.util.AssetPacker [--quality 0.0-1.0] images pack WIDTHxHEIGHT[,WIDTHxHEIGHT...]
+ *
+ * Images are scaled to exactly each size, as an ImageView that does not
+ * preserve the ratio shows them. The pack is written in name order, so the
+ * same images always make the same pack.
+ */
+public class AssetPacker {
+	private final float quality;
+	private final List<int[]> sizes;
+
+	/**
+	 * @param quality The JPEG quality, from 0 to 1.
+	 * @param sizes The width and height of each variant.
+	 */
+	public AssetPacker(float quality, List<int[]> sizes) {
+		this.quality = quality;
+		this.sizes = sizes;
+	}
+
+	/**
+	 * Packs every JPEG in the folder.
+	 *
+	 * @param images
+	 * @param pack Replaced if it exists.
+	 * @return The number of bytes of the pack.
+	 * @throws IOException
+	 */
+	public long pack(Path images, Path pack) throws IOException {
+		List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(images, "*.{jpg,jpeg,JPG,JPEG}")) {
+			for (Path file : stream) {
+				files.add(file);
+			}
+		}
+		files.sort((a, b) -> a.getFileName().toString().compareTo(b.getFileName().toString()));
+
+		List<byte[]> names = new ArrayList<>();
+		List<int[]> dimensions = new ArrayList<>();
+		List<byte[]> encoded = new ArrayList<>();
+		for (Path file : files) {
+			BufferedImage original = ImageIO.read(file.toFile());
+			if (original == null) {
+				throw new IOException("Cannot decode " + file);
+			}
+			byte[] name = file.getFileName().toString().getBytes(StandardCharsets.UTF_8);
+			for (int[] size : sizes) {
+				names.add(name);
+				dimensions.add(size);
+				encoded.add(encode(scale(original, size[0], size[1])));
+			}
+		}
+
+		int indexSize = 0;
+		for (byte[] name : names) {
+			indexSize += 2 + name.length + 2 + 2 + 4 + 4;
+		}
+		long total = AssetPack.HEADER_SIZE + indexSize;
+		for (byte[] image : encoded) {
+			total += image.length;
+		}
+		if (total > Integer.MAX_VALUE) {
+			throw new IOException("Asset pack would exceed 2 GB");
+		}
+
+		ByteBuffer buffer = ByteBuffer.allocate((int) total);
+		buffer.putInt(AssetPack.MAGIC);
+		buffer.putInt(AssetPack.VERSION);
+		buffer.putInt(names.size());
+		int offset = AssetPack.HEADER_SIZE + indexSize;
+		for (int i = 0; i < names.size(); i++) {
+			buffer.putShort((short) names.get(i).length);
+			buffer.put(names.get(i));
+			buffer.putShort((short) dimensions.get(i)[0]);
+			buffer.putShort((short) dimensions.get(i)[1]);
+			buffer.putInt(offset);
+			buffer.putInt(encoded.get(i).length);
+			offset += encoded.get(i).length;
+		}
+		for (byte[] image : encoded) {
+			buffer.put(image);
+		}
+		buffer.flip();
+
+		Path parent = pack.toAbsolutePath().getParent();
+		Files.createDirectories(parent);
+		Path temp = parent.resolve(pack.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+		Files.move(temp, pack, StandardCopyOption.REPLACE_EXISTING);
+		return total;
+	}
+
+	/**
+	 * Scales an image to exactly width by height. Large reductions are done
+	 * in halving steps, which keeps the detail bilinear filtering alone loses.
+	 */
+	static BufferedImage scale(BufferedImage image, int width, int height) {
+		BufferedImage current = image;
+		int currentWidth = image.getWidth();
+		int currentHeight = image.getHeight();
+		do {
+			currentWidth = currentWidth / 2 >= width ? currentWidth / 2 : width;
+			currentHeight = currentHeight / 2 >= height ? currentHeight / 2 : height;
+			BufferedImage next = new BufferedImage(currentWidth, currentHeight, BufferedImage.TYPE_INT_RGB);
+			Graphics2D graphics = next.createGraphics();
+			try {
+				graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+				graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+				graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+			} finally {
+				graphics.dispose();
+			}
+			current = next;
+		} while (currentWidth != width || currentHeight != height);
+		return current;
+	}
+
+	private byte[] encode(BufferedImage image) throws IOException {
+		ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+		ImageWriteParam param = writer.getDefaultWriteParam();
+		param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+		param.setCompressionQuality(quality);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+			writer.setOutput(out);
+			writer.write(null, new IIOImage(image, null, null), param);
+		} finally {
+			writer.dispose();
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Parses sizes like 260x165,520x330.
+	 */
+	static List<int[]> parseSizes(String text) {
+		List<int[]> sizes = new ArrayList<>();
+		for (String size : text.split(",")) {
+			String[] parts = size.trim().toLowerCase().split("x");
+			int width = Integer.parseInt(parts[0]);
+			int height = Integer.parseInt(parts[1]);
+			if (width < 1 || height < 1 || width > 0xFFFF || height > 0xFFFF) {
+				throw new IllegalArgumentException("Bad image size " + size);
+			}
+			sizes.add(new int[] { width, height });
+		}
+		return sizes;
+	}
+
+	public static void main(String[] args) throws IOException {
+		System.setProperty("java.awt.headless", "true");
+		float quality = 0.85f;
+		List<String> files = new ArrayList<>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("--quality")) {
+				quality = Float.parseFloat(args[++i]);
+			} else {
+				files.add(args[i]);
+			}
+		}
+		if (files.size() != 3) {
+			System.err.println("Usage: java application.util.AssetPacker [--quality 0.0-1.0] images pack WIDTHxHEIGHT[,WIDTHxHEIGHT...]");
+			System.exit(2);
+		}
+
+		Path images = Paths.get(files.get(0));
+		Path pack = Paths.get(files.get(1));
+		long originals = 0;
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(images, "*.{jpg,jpeg,JPG,JPEG}")) {
+			for (Path file : stream) {
+				originals += Files.size(file);
+			}
+		}
+		long start = System.nanoTime();
+		long bytes = new AssetPacker(quality, parseSizes(files.get(2))).pack(images, pack);
+		System.out.printf("Packed %d KB of images into %s, %d KB, in %.0f ms%n",
+			originals / 1024, pack, bytes / 1024, (System.nanoTime() - start) / 1e6);
+	}
+}
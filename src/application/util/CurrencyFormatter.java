@@ -0,0 +1,146 @@
+package application.util;
+
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.text.NumberFormat;
+import java.util.Locale;
+
+/**
+ * Writes amounts of cents as currency, such as $1,234.50, into a buffer the
+ * caller reuses.
+ *
+ * The symbols, grouping and sign of a locale are read once from its
+ * currency NumberFormat, so the text matches what that format produces,
+ * but formatting an amount creates no objects. A formatter is immutable and
+ * may be shared by any number of threads.
+ */
+public final class CurrencyFormatter {
+	private static final long[] POWERS_OF_TEN = {
+		1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+		1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L,
+		10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L,
+		10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+	};
+
+	/**
+	 * Plain amounts such as 1234.50 or -3.00, for data files.
+	 */
+	public static final CurrencyFormatter PLAIN = new CurrencyFormatter("", "", "-", "", '.', (char) 0, 0, 2);
+
+	private static final CurrencyFormatter DEFAULT = forLocale(Locale.getDefault(Locale.Category.FORMAT));
+
+	private final String positivePrefix;
+	private final String positiveSuffix;
+	private final String negativePrefix;
+	private final String negativeSuffix;
+	private final char decimalSeparator;
+	private final char groupingSeparator;
+	private final int groupingSize;
+	private final int fractionDigits;
+
+	private CurrencyFormatter(String positivePrefix, String positiveSuffix, String negativePrefix,
+			String negativeSuffix, char decimalSeparator, char groupingSeparator, int groupingSize,
+			int fractionDigits) {
+		this.positivePrefix = positivePrefix;
+		this.positiveSuffix = positiveSuffix;
+		this.negativePrefix = negativePrefix;
+		this.negativeSuffix = negativeSuffix;
+		this.decimalSeparator = decimalSeparator;
+		this.groupingSeparator = groupingSeparator;
+		this.groupingSize = groupingSize;
+		this.fractionDigits = fractionDigits;
+	}
+
+	/**
+	 * Returns the formatter of the default locale, the one
+	 * NumberFormat.getCurrencyInstance() would use.
+	 */
+	public static CurrencyFormatter getInstance() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Returns a formatter for the currency of a locale. Currencies are
+	 * written with either two fraction digits or none, like yen.
+	 *
+	 * @param locale
+	 */
+	public static CurrencyFormatter forLocale(Locale locale) {
+		NumberFormat format = NumberFormat.getCurrencyInstance(locale);
+		if (!(format instanceof DecimalFormat)) {
+			throw new IllegalArgumentException("No decimal currency format for " + locale);
+		}
+		DecimalFormat decimal = (DecimalFormat) format;
+		DecimalFormatSymbols symbols = decimal.getDecimalFormatSymbols();
+		return new CurrencyFormatter(
+			decimal.getPositivePrefix(), decimal.getPositiveSuffix(),
+			decimal.getNegativePrefix(), decimal.getNegativeSuffix(),
+			symbols.getMonetaryDecimalSeparator(),
+			decimal.isGroupingUsed() ? symbols.getGroupingSeparator() : 0,
+			decimal.isGroupingUsed() ? decimal.getGroupingSize() : 0,
+			decimal.getMaximumFractionDigits() == 0 ? 0 : 2);
+	}
+
+	/**
+	 * Appends an amount to the buffer.
+	 *
+	 * @param out
+	 * @param cents
+	 * @return out
+	 */
+	public StringBuilder appendTo(StringBuilder out, long cents) {
+		boolean negative = cents < 0;
+		long units;
+		long fraction;
+		if (fractionDigits == 0) {
+			units = Math.abs(roundHalfEven(cents));
+			fraction = 0;
+		} else {
+			long magnitude = negative ? Math.negateExact(cents) : cents;
+			units = magnitude / 100;
+			fraction = magnitude % 100;
+		}
+
+		out.append(negative ? negativePrefix : positivePrefix);
+		appendUnits(out, units);
+		if (fractionDigits > 0) {
+			out.append(decimalSeparator).append((char) ('0' + fraction / 10)).append((char) ('0' + fraction % 10));
+		}
+		out.append(negative ? negativeSuffix : positiveSuffix);
+		return out;
+	}
+
+	/**
+	 * Returns an amount as text. Only the returned String is allocated.
+	 *
+	 * @param cents
+	 */
+	public String format(long cents) {
+		return appendTo(new StringBuilder(24), cents).toString();
+	}
+
+	private void appendUnits(StringBuilder out, long units) {
+		int digits = 1;
+		while (digits < POWERS_OF_TEN.length && units >= POWERS_OF_TEN[digits]) {
+			digits++;
+		}
+		for (int position = digits - 1; position >= 0; position--) {
+			out.append((char) ('0' + (units / POWERS_OF_TEN[position]) % 10));
+			if (groupingSize > 0 && position > 0 && position % groupingSize == 0) {
+				out.append(groupingSeparator);
+			}
+		}
+	}
+
+	/**
+	 * Rounds cents to whole units the way DecimalFormat does, half to even.
+	 */
+	private static long roundHalfEven(long cents) {
+		long units = cents / 100;
+		long remainder = Math.abs(cents % 100);
+		if (remainder > 50 || (remainder == 50 && (units & 1) != 0)) {
+			units += cents < 0 ? -1 : 1;
+		}
+		return units;
+	}
+}
@@ -0,0 +1,152 @@
+package application.util;
+
+import java.util.Arrays;
+
+/**
+ * A fixed-size histogram of latencies in nanoseconds, or any other
+ * non-negative long values.
+ *
+ * Values are counted in log-linear buckets: each power of two is split into
+ * 32 buckets, so any reported percentile is within about 3% of the recorded
+ * value, and recording never allocates. Instances are not thread-safe; give
+ * each thread its own histogram and merge them when reporting.
+ */
+public final class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final long[] counts = new long[BUCKETS];
+	private long count;
+	private long sum;
+	private long min = Long.MAX_VALUE;
+	private long max;
+
+	/**
+	 * Counts one value. Negative values are counted as zero.
+	 *
+	 * @param value
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts[indexOf(value)]++;
+		count++;
+		sum += value;
+		if (value < min) {
+			min = value;
+		}
+		if (value > max) {
+			max = value;
+		}
+	}
+
+	/**
+	 * Adds every value counted by another histogram to this one.
+	 *
+	 * @param other
+	 */
+	public void merge(LatencyHistogram other) {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] += other.counts[i];
+		}
+		count += other.count;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+	}
+
+	public void reset() {
+		Arrays.fill(counts, 0);
+		count = 0;
+		sum = 0;
+		min = Long.MAX_VALUE;
+		max = 0;
+	}
+
+	/**
+	 * Returns a copy that can be read while this histogram keeps recording.
+	 */
+	public LatencyHistogram copy() {
+		LatencyHistogram copy = new LatencyHistogram();
+		copy.merge(this);
+		return copy;
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public long getMin() {
+		return count == 0 ? 0 : min;
+	}
+
+	public long getMax() {
+		return max;
+	}
+
+	public double getMean() {
+		return count == 0 ? 0 : (double) sum / count;
+	}
+
+	/**
+	 * Returns the value below which the given percentage of values fall.
+	 *
+	 * @param percentile From 0 to 100, e.g. 99.9.
+	 * @return The upper bound of the bucket holding the percentile, capped at the maximum.
+	 */
+	public long getValueAtPercentile(double percentile) {
+		if (count == 0) {
+			return 0;
+		}
+		long rank = (long) Math.ceil(Math.min(Math.max(percentile, 0), 100) / 100 * count);
+		if (rank < 1) {
+			rank = 1;
+		}
+
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(upperBoundOf(i), max);
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Summarizes the histogram, converting the values with the given divisor,
+	 * e.g. 1000 to report nanoseconds as microseconds.
+	 *
+	 * @param unit The name of the unit after dividing, e.g. us.
+	 * @param divisor
+	 */
+	public String summary(String unit, double divisor) {
+		return String.format("count=%d mean=%.1f%s p50=%.1f%s p90=%.1f%s p99=%.1f%s p99.9=%.1f%s max=%.1f%s",
+			count,
+			getMean() / divisor, unit,
+			getValueAtPercentile(50) / divisor, unit,
+			getValueAtPercentile(90) / divisor, unit,
+			getValueAtPercentile(99) / divisor, unit,
+			getValueAtPercentile(99.9) / divisor, unit,
+			max / divisor, unit);
+	}
+
+	private static int indexOf(long value) {
+		if (value < 2 * SUB_BUCKETS) {
+			return (int) value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+	}
+
+	private static long upperBoundOf(int index) {
+		if (index < 2 * SUB_BUCKETS) {
+			return index;
+		}
+		int shift = index / SUB_BUCKETS - 1;
+		long subBucket = index % SUB_BUCKETS + SUB_BUCKETS;
+		return ((subBucket + 1) << shift) - 1;
+	}
+}
@@ -0,0 +1,183 @@
+package application.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A trie over the names of a list of items, for finding every item whose
+ * name starts with what has been typed so far. Names are compared ignoring
+ * case.
+ *
+ * The items are kept sorted by name, so the items below any node of the
+ * trie are a range of them, which the node records. Each character typed
+ * is one step down from the node of the text before it, and the matches
+ * are a view of that node's range, so filtering costs the same per
+ * keystroke however many items there are. An index is immutable; build a
+ * new one when the items change.
+ */
+public final class PrefixIndex<T> {
+	private static final char[] NO_KEYS = {};
+	private static final Node[] NO_CHILDREN = {};
+
+	/**
+	 * The items whose names start with one prefix.
+	 */
+	public static final class Node {
+		private final int depth;
+		private char[] keys = NO_KEYS;
+		private Node[] children = NO_CHILDREN;
+		private int from;
+		private int to;
+
+		private Node(int depth, int from) {
+			this.depth = depth;
+			this.from = from;
+			this.to = from;
+		}
+
+		/**
+		 * Returns the length of the prefix.
+		 */
+		public int getDepth() {
+			return depth;
+		}
+
+		/**
+		 * Returns the number of items whose names start with the prefix.
+		 */
+		public int size() {
+			return to - from;
+		}
+
+		private Node child(char key) {
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] == key) {
+					return children[i];
+				}
+			}
+			return null;
+		}
+
+		private Node addChild(char key, int from) {
+			Node child = new Node(depth + 1, from);
+			keys = Arrays.copyOf(keys, keys.length + 1);
+			children = Arrays.copyOf(children, children.length + 1);
+			keys[keys.length - 1] = key;
+			children[children.length - 1] = child;
+			return child;
+		}
+	}
+
+	private final List<T> sorted;
+	private final Node root = new Node(0, 0);
+
+	/**
+	 * @param items
+	 * @param name The name an item is found by, e.g. House::getStyle.
+	 */
+	public PrefixIndex(Collection<? extends T> items, Function<? super T, String> name) {
+		List<T> unsorted = new ArrayList<>(items);
+		String[] keys = new String[unsorted.size()];
+		Integer[] order = new Integer[keys.length];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = fold(name.apply(unsorted.get(i)));
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.comparing(i -> keys[i]));
+
+		List<T> sorted = new ArrayList<>(keys.length);
+		for (int i = 0; i < order.length; i++) {
+			sorted.add(unsorted.get(order[i]));
+			insert(keys[order[i]], i);
+		}
+		this.sorted = Collections.unmodifiableList(sorted);
+	}
+
+	/**
+	 * Adds the name of the item at index to the trie. Names arrive in
+	 * order, so each node's range grows at its end.
+	 */
+	private void insert(String key, int index) {
+		Node node = root;
+		node.to = index + 1;
+		for (int i = 0; i < key.length(); i++) {
+			Node child = node.child(key.charAt(i));
+			if (child == null) {
+				child = node.addChild(key.charAt(i), index);
+			}
+			child.to = index + 1;
+			node = child;
+		}
+	}
+
+	/**
+	 * Lower-cases a name one character at a time, as next does.
+	 */
+	private static String fold(String name) {
+		if (name == null) {
+			return "";
+		}
+		char[] chars = name.toCharArray();
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = Character.toLowerCase(chars[i]);
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * Returns the node of the empty prefix, which every item matches.
+	 */
+	public Node getRoot() {
+		return root;
+	}
+
+	/**
+	 * Returns the node of the prefix one character longer, or null if no
+	 * name continues with that character.
+	 *
+	 * @param node The node of the prefix so far, or null if nothing matched it.
+	 * @param c
+	 */
+	public Node next(Node node, char c) {
+		return node == null ? null : node.child(Character.toLowerCase(c));
+	}
+
+	/**
+	 * Returns the node of a prefix, or null if no name starts with it.
+	 *
+	 * @param prefix
+	 */
+	public Node find(CharSequence prefix) {
+		Node node = root;
+		for (int i = 0; i < prefix.length() && node != null; i++) {
+			node = next(node, prefix.charAt(i));
+		}
+		return node;
+	}
+
+	/**
+	 * Returns the items whose names start with the node's prefix, in name
+	 * order. The list is a view; nothing is copied.
+	 *
+	 * @param node or null for no items.
+	 */
+	public List<T> matches(Node node) {
+		return node == null ? Collections.<T>emptyList() : sorted.subList(node.from, node.to);
+	}
+
+	/**
+	 * Returns every item in name order.
+	 */
+	public List<T> getItems() {
+		return sorted;
+	}
+
+	public int size() {
+		return sorted.size();
+	}
+}
@@ -0,0 +1,187 @@
+package application.util;
+
+import application.model.QuoteRequest;
+
+/**
+ * The text formats quote requests can be read from and priced quotes written to.
+ *
+ * A CSV row is style,bedrooms,bathrooms,area and a JSONL row is an object
+ * such as {"style": "Modern", "bedrooms": 3, "bathrooms": 2, "area": 2400}.
+ * Priced rows are written back unchanged with the cost added, as a last
+ * column or a "cost" member, so no precision is lost.
+ */
+public enum QuoteFormat {
+	CSV {
+		@Override
+		public boolean isHeader(String line) {
+			return line.regionMatches(true, 0, "style", 0, 5);
+		}
+
+		@Override
+		public String getHeader() {
+			return "style,bedrooms,bathrooms,area,cost";
+		}
+
+		@Override
+		public void parse(String line, QuoteRequest request) {
+			int end = line.length();
+			int comma1 = line.indexOf(',');
+			int comma2 = comma1 < 0 ? -1 : line.indexOf(',', comma1 + 1);
+			int comma3 = comma2 < 0 ? -1 : line.indexOf(',', comma2 + 1);
+			if (comma3 < 0 || line.indexOf(',', comma3 + 1) >= 0) {
+				throw new IllegalArgumentException("expected style,bedrooms,bathrooms,area");
+			}
+
+			int styleStart = 0;
+			int styleEnd = comma1;
+			if (styleEnd - styleStart >= 2 && line.charAt(styleStart) == '"' && line.charAt(styleEnd - 1) == '"') {
+				styleStart++;
+				styleEnd--;
+			}
+			request.set(line.substring(styleStart, styleEnd).trim(),
+				Util.parseDouble(line, comma1 + 1, comma2),
+				Util.parseDouble(line, comma2 + 1, comma3),
+				Util.parseDouble(line, comma3 + 1, end));
+		}
+
+		@Override
+		public void appendQuote(StringBuilder out, String line, long costCents) {
+			out.append(line).append(',');
+			CurrencyFormatter.PLAIN.appendTo(out, costCents);
+			out.append('\n');
+		}
+
+		@Override
+		public void appendError(StringBuilder out, long row, String line, String message) {
+			out.append(line).append(",ERROR row ").append(row).append(": ")
+				.append(message.replace(',', ';')).append('\n');
+		}
+	},
+
+	JSONL {
+		@Override
+		public boolean isHeader(String line) {
+			return false;
+		}
+
+		@Override
+		public String getHeader() {
+			return null;
+		}
+
+		@Override
+		public void parse(String line, QuoteRequest request) {
+			int close = line.lastIndexOf('}');
+			if (!line.trim().startsWith("{") || close < 0) {
+				throw new IllegalArgumentException("expected a JSON object");
+			}
+
+			request.set(null, Double.NaN, Double.NaN, Double.NaN);
+			int i = line.indexOf('{') + 1;
+			while (i < close) {
+				int keyStart = line.indexOf('"', i);
+				if (keyStart < 0 || keyStart > close) {
+					break;
+				}
+				int keyEnd = line.indexOf('"', keyStart + 1);
+				int colon = line.indexOf(':', keyEnd + 1);
+				if (keyEnd < 0 || colon < 0) {
+					throw new IllegalArgumentException("malformed member");
+				}
+
+				int valueStart = colon + 1;
+				while (valueStart < close && line.charAt(valueStart) == ' ') {
+					valueStart++;
+				}
+				int valueEnd;
+				if (valueStart < close && line.charAt(valueStart) == '"') {
+					valueEnd = line.indexOf('"', valueStart + 1);
+					if (valueEnd < 0) {
+						throw new IllegalArgumentException("unterminated string");
+					}
+					if (line.regionMatches(keyStart + 1, "style", 0, 5) && keyEnd - keyStart == 6) {
+						request.setStyle(line.substring(valueStart + 1, valueEnd));
+					}
+					valueEnd++;
+				} else {
+					valueEnd = valueStart;
+					while (valueEnd < close && line.charAt(valueEnd) != ',') {
+						valueEnd++;
+					}
+					setNumber(request, line, keyStart + 1, keyEnd, valueStart, valueEnd);
+				}
+
+				int comma = line.indexOf(',', valueEnd);
+				i = comma < 0 ? close : comma + 1;
+			}
+
+			if (request.getStyle() == null || Double.isNaN(request.getBedrooms())
+					|| Double.isNaN(request.getBathrooms()) || Double.isNaN(request.getArea())) {
+				throw new IllegalArgumentException("expected style, bedrooms, bathrooms and area");
+			}
+		}
+
+		private void setNumber(QuoteRequest request, String line, int keyStart, int keyEnd, int from, int to) {
+			int length = keyEnd - keyStart;
+			if (length == 8 && line.regionMatches(keyStart, "bedrooms", 0, 8)) {
+				request.setBedrooms(Util.parseDouble(line, from, to));
+			} else if (length == 9 && line.regionMatches(keyStart, "bathrooms", 0, 9)) {
+				request.setBathrooms(Util.parseDouble(line, from, to));
+			} else if (length == 4 && line.regionMatches(keyStart, "area", 0, 4)) {
+				request.setArea(Util.parseDouble(line, from, to));
+			}
+		}
+
+		@Override
+		public void appendQuote(StringBuilder out, String line, long costCents) {
+			int close = line.lastIndexOf('}');
+			out.append(line, 0, close).append(", \"cost\": ");
+			CurrencyFormatter.PLAIN.appendTo(out, costCents);
+			out.append(line, close, line.length()).append('\n');
+		}
+
+		@Override
+		public void appendError(StringBuilder out, long row, String line, String message) {
+			out.append("{\"row\": ").append(row).append(", \"error\": ");
+			Util.appendJsonString(out, message).append("}\n");
+		}
+	};
+
+	/**
+	 * Returns true if the line is a header row to be skipped.
+	 */
+	public abstract boolean isHeader(String line);
+
+	/**
+	 * Returns the header of the output, or null if the format has none.
+	 */
+	public abstract String getHeader();
+
+	/**
+	 * Reads one row into the request.
+	 *
+	 * @param line
+	 * @param request Overwritten with the row's values.
+	 * @throws IllegalArgumentException If the row is malformed.
+	 */
+	public abstract void parse(String line, QuoteRequest request);
+
+	/**
+	 * Writes a priced row, ending with a newline.
+	 */
+	public abstract void appendQuote(StringBuilder out, String line, long costCents);
+
+	/**
+	 * Writes a row that could not be priced, ending with a newline.
+	 */
+	public abstract void appendError(StringBuilder out, long row, String line, String message);
+
+	/**
+	 * Returns the format of a file from its extension, CSV unless it ends in .jsonl or .json.
+	 *
+	 * @param fileName
+	 */
+	public static QuoteFormat forFileName(String fileName) {
+		return fileName.endsWith(".jsonl") || fileName.endsWith(".json") ? JSONL : CSV;
+	}
+}
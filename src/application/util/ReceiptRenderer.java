@@ -0,0 +1,240 @@
+package application.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import application.model.Receipt;
+
+/**
+ * Renders receipts in bulk with a ReceiptTemplate, into one printable file
+ * or a file per receipt.
+ *
+ * Receipts are split into chunks that are rendered in parallel. Each worker
+ * keeps its own text buffer and encoder, and encodes a chunk into one of a
+ * few byte buffers that are reused for the whole run, so memory stays
+ * bounded however many receipts there are. Chunks are written to the file
+ * channel in order, so the output is the same on any number of threads.
+ */
+public class ReceiptRenderer {
+	/**
+	 * Separates receipts in a printable file, so each starts on a new page.
+	 */
+	public static final char PAGE_BREAK = '\f';
+
+	private final ReceiptTemplate template;
+	private final int threads;
+	private final int chunkSize;
+
+	private final ThreadLocal<StringBuilder> text;
+	private final ThreadLocal<CharsetEncoder> encoder = ThreadLocal.withInitial(StandardCharsets.UTF_8::newEncoder);
+	private final ThreadLocal<ByteBuffer> fileBuffer;
+
+	/**
+	 * @param template
+	 * @param threads How many receipts are rendered at once.
+	 * @param chunkSize How many receipts each worker renders at a time.
+	 */
+	public ReceiptRenderer(ReceiptTemplate template, int threads, int chunkSize) {
+		this.template = template;
+		this.threads = threads;
+		this.chunkSize = chunkSize;
+		this.text = ThreadLocal.withInitial(() -> new StringBuilder(template.getLength() * 2));
+		this.fileBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocate(template.getLength() * 4));
+	}
+
+	/**
+	 * Renders the receipts into one file, each after a page break but the first.
+	 *
+	 * @param receipts
+	 * @param file Replaced if it exists.
+	 * @return The number of bytes written.
+	 * @throws IOException
+	 */
+	public long renderTo(List<Receipt> receipts, Path file) throws IOException {
+		ExecutorService workers = newWorkers();
+		int maxInFlight = threads * 2;
+		ByteBuffer[] buffers = new ByteBuffer[maxInFlight];
+		Deque<Future<ByteBuffer>> inFlight = new ArrayDeque<>();
+		Deque<Integer> slots = new ArrayDeque<>();
+		long written = 0;
+
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+				StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			int chunk = 0;
+			for (int from = 0; from < receipts.size(); from += chunkSize, chunk++) {
+				// Write the oldest chunk before its buffer is reused.
+				if (inFlight.size() == maxInFlight) {
+					written += write(inFlight.poll(), slots.poll(), buffers, channel);
+				}
+				int slot = chunk % maxInFlight;
+				if (buffers[slot] == null) {
+					buffers[slot] = ByteBuffer.allocate(chunkSize * template.getLength() * 2);
+				}
+				ByteBuffer buffer = buffers[slot];
+				int start = from;
+				int end = Math.min(from + chunkSize, receipts.size());
+				inFlight.add(workers.submit(() -> renderChunk(receipts, start, end, buffer)));
+				slots.add(slot);
+			}
+			while (!inFlight.isEmpty()) {
+				written += write(inFlight.poll(), slots.poll(), buffers, channel);
+			}
+			channel.force(false);
+		} finally {
+			workers.shutdownNow();
+		}
+		return written;
+	}
+
+	/**
+	 * Renders each receipt into a file of its own, named receipt-NNNNNN.txt
+	 * after its number.
+	 *
+	 * @param receipts
+	 * @param directory Created if it does not exist.
+	 * @return The number of bytes written.
+	 * @throws IOException
+	 */
+	public long renderEach(List<Receipt> receipts, Path directory) throws IOException {
+		Files.createDirectories(directory);
+		ExecutorService workers = newWorkers();
+		Deque<Future<Long>> chunks = new ArrayDeque<>();
+		long written = 0;
+		try {
+			for (int from = 0; from < receipts.size(); from += chunkSize) {
+				int start = from;
+				int end = Math.min(from + chunkSize, receipts.size());
+				chunks.add(workers.submit(() -> renderFiles(receipts, start, end, directory)));
+			}
+			while (!chunks.isEmpty()) {
+				written += get(chunks.poll());
+			}
+		} finally {
+			workers.shutdownNow();
+		}
+		return written;
+	}
+
+	private ExecutorService newWorkers() {
+		return Executors.newFixedThreadPool(threads, runnable -> {
+			Thread thread = new Thread(runnable, "receipt-renderer");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * Renders receipts from (inclusive) to to (exclusive) into the buffer,
+	 * or a larger one if it does not fit, and returns it ready to write.
+	 */
+	private ByteBuffer renderChunk(List<Receipt> receipts, int from, int to, ByteBuffer buffer) {
+		StringBuilder out = text.get();
+		out.setLength(0);
+		for (int i = from; i < to; i++) {
+			if (i > 0) {
+				out.append(PAGE_BREAK);
+			}
+			template.appendTo(out, receipts.get(i), i + 1);
+		}
+		buffer.clear();
+		return encode(out, buffer);
+	}
+
+	private long renderFiles(List<Receipt> receipts, int from, int to, Path directory) throws IOException {
+		StringBuilder out = text.get();
+		long written = 0;
+		for (int i = from; i < to; i++) {
+			out.setLength(0);
+			template.appendTo(out, receipts.get(i), i + 1);
+			ByteBuffer buffer = fileBuffer.get();
+			buffer.clear();
+			ByteBuffer encoded = encode(out, buffer);
+			if (encoded != buffer) {
+				fileBuffer.set(encoded);
+			}
+
+			Path file = directory.resolve(String.format("receipt-%06d.txt", i + 1));
+			try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+					StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+				while (encoded.hasRemaining()) {
+					written += channel.write(encoded);
+				}
+			}
+		}
+		return written;
+	}
+
+	/**
+	 * Encodes the text into the buffer as UTF-8, growing it if needed, and
+	 * returns the buffer that holds it, flipped for reading.
+	 */
+	private ByteBuffer encode(CharSequence text, ByteBuffer buffer) {
+		CharsetEncoder encoder = this.encoder.get();
+		encoder.reset();
+		CharBuffer chars = CharBuffer.wrap(text);
+		while (true) {
+			CoderResult result = encoder.encode(chars, buffer, true);
+			if (result.isUnderflow()) {
+				result = encoder.flush(buffer);
+			}
+			if (result.isUnderflow()) {
+				break;
+			}
+			if (result.isOverflow()) {
+				ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+				buffer.flip();
+				larger.put(buffer);
+				buffer = larger;
+			} else {
+				throw new IllegalArgumentException("Receipt text cannot be encoded: " + result);
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private static long write(Future<ByteBuffer> future, int slot, ByteBuffer[] buffers, FileChannel channel)
+			throws IOException {
+		ByteBuffer buffer = get(future);
+		// Keep a buffer the worker had to grow for the next chunk in this slot.
+		buffers[slot] = buffer;
+		long written = 0;
+		while (buffer.hasRemaining()) {
+			written += channel.write(buffer);
+		}
+		return written;
+	}
+
+	private static <T> T get(Future<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while rendering receipts", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			if (e.getCause() instanceof UncheckedIOException) {
+				throw ((UncheckedIOException) e.getCause()).getCause();
+			}
+			throw new IOException("Rendering receipts failed", e.getCause());
+		}
+	}
+}
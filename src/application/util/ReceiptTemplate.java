@@ -0,0 +1,197 @@
+package application.util;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+import application.model.Receipt;
+
+/**
+ * The text of a receipt, with ${field} placeholders for the details of
+ * each receipt.
+ *
+ * A template is compiled once into the literal text between placeholders
+ * and the fields to fill in, so rendering a receipt only appends to a
+ * buffer the caller reuses: no parsing, formatting objects or string
+ * concatenation per receipt. The fields are:
+ *
+ * <pre>
+ * ${number}    The receipt's number in the run, from 1
+ * ${date}      When it was printed, as yyyy-MM-dd HH:mm in the system time zone
+ * ${style}     ${area}    ${bedrooms}    ${bathrooms}
+ * ${cost}      The total cost as currency of the default locale
+ * </pre>
+ *
+ * A template is immutable and may be shared by any number of threads.
+ */
+public final class ReceiptTemplate {
+	private static final String THANK_YOU = "Thanks for shopping with the Midwest Home Design Company!";
+
+	/**
+	 * The receipt handlePrint has always printed.
+	 */
+	public static final ReceiptTemplate DEFAULT = compile("\n\n" + THANK_YOU + "\n"
+		+ THANK_YOU.replaceAll(".", "=") + "\n\n"
+		+ "Style: ${style}\n"
+		+ "Total Area: ${area}\n"
+		+ "Bedrooms: ${bedrooms}\n"
+		+ "Bathrooms: ${bathrooms}\n\n"
+		+ "Total Cost: ${cost}");
+
+	private enum Field {
+		NUMBER, DATE, STYLE, AREA, BEDROOMS, BATHROOMS, COST
+	}
+
+	// Days are the same for thousands of receipts in a row, so each thread
+	// keeps the last one's text and bounds.
+	private static final ThreadLocal<Day> DAY = ThreadLocal.withInitial(Day::new);
+
+	private static final class Day {
+		final ZoneId zone = ZoneId.systemDefault();
+		long start = 1;
+		long end;
+		String text;
+		// True on days a daylight saving change makes longer or shorter.
+		boolean shifted;
+	}
+
+	// literals[i] comes before fields[i]; the last literal ends the receipt.
+	private final String[] literals;
+	private final Field[] fields;
+	private final int length;
+
+	private ReceiptTemplate(String[] literals, Field[] fields) {
+		this.literals = literals;
+		this.fields = fields;
+		int length = 0;
+		for (String literal : literals) {
+			length += literal.length();
+		}
+		this.length = length + fields.length * 16;
+	}
+
+	/**
+	 * Compiles the text of a template.
+	 *
+	 * @param text
+	 * @throws IllegalArgumentException If a placeholder is not closed or names no field.
+	 */
+	public static ReceiptTemplate compile(String text) {
+		List<String> literals = new ArrayList<>();
+		List<Field> fields = new ArrayList<>();
+		int position = 0;
+		int open;
+		while ((open = text.indexOf("${", position)) >= 0) {
+			int close = text.indexOf('}', open);
+			if (close < 0) {
+				throw new IllegalArgumentException("Unclosed placeholder at " + open);
+			}
+			String name = text.substring(open + 2, close).trim();
+			Field field;
+			try {
+				field = Field.valueOf(name.toUpperCase());
+			} catch (IllegalArgumentException e) {
+				throw new IllegalArgumentException("Unknown receipt field ${" + name + "}");
+			}
+			literals.add(text.substring(position, open));
+			fields.add(field);
+			position = close + 1;
+		}
+		literals.add(text.substring(position));
+		return new ReceiptTemplate(literals.toArray(new String[0]), fields.toArray(new Field[0]));
+	}
+
+	/**
+	 * Compiles a template from a UTF-8 file.
+	 *
+	 * @param path
+	 * @throws IOException
+	 */
+	public static ReceiptTemplate load(Path path) throws IOException {
+		return compile(new String(Files.readAllBytes(path), StandardCharsets.UTF_8));
+	}
+
+	/**
+	 * Returns about how many characters a receipt takes, for sizing buffers.
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * Appends a receipt to the buffer.
+	 *
+	 * @param out
+	 * @param receipt
+	 * @param number The receipt's number in the run.
+	 * @return out
+	 */
+	public StringBuilder appendTo(StringBuilder out, Receipt receipt, long number) {
+		for (int i = 0; i < fields.length; i++) {
+			out.append(literals[i]);
+			switch (fields[i]) {
+				case NUMBER:
+					out.append(number);
+					break;
+				case DATE:
+					appendDate(out, receipt.getTimestamp());
+					break;
+				case STYLE:
+					out.append(receipt.getStyle());
+					break;
+				case AREA:
+					appendNumber(out, receipt.getArea());
+					break;
+				case BEDROOMS:
+					appendNumber(out, receipt.getBedrooms());
+					break;
+				case BATHROOMS:
+					appendNumber(out, receipt.getBathrooms());
+					break;
+				case COST:
+					CurrencyFormatter.getInstance().appendTo(out, receipt.getCostCents());
+					break;
+			}
+		}
+		return out.append(literals[fields.length]);
+	}
+
+	/**
+	 * Renders a single receipt.
+	 */
+	public String render(Receipt receipt, long number) {
+		return appendTo(new StringBuilder(length), receipt, number).toString();
+	}
+
+	private static void appendNumber(StringBuilder out, double value) {
+		if (value == (long) value) {
+			out.append((long) value);
+		} else {
+			out.append(value);
+		}
+	}
+
+	private static void appendDate(StringBuilder out, long timestamp) {
+		Day day = DAY.get();
+		if (timestamp < day.start || timestamp >= day.end) {
+			LocalDate date = Instant.ofEpochMilli(timestamp).atZone(day.zone).toLocalDate();
+			day.start = date.atStartOfDay(day.zone).toInstant().toEpochMilli();
+			day.end = date.plusDays(1).atStartOfDay(day.zone).toInstant().toEpochMilli();
+			day.text = date.toString();
+			day.shifted = day.end - day.start != 24 * 60 * 60_000L;
+		}
+		long minutes = day.shifted
+			? Instant.ofEpochMilli(timestamp).atZone(day.zone).toLocalTime().toSecondOfDay() / 60
+			: (timestamp - day.start) / 60_000;
+		long hours = minutes / 60;
+		out.append(day.text).append(' ')
+			.append((char) ('0' + hours / 10)).append((char) ('0' + hours % 10)).append(':')
+			.append((char) ('0' + minutes % 60 / 10)).append((char) ('0' + minutes % 10));
+	}
+}
@@ -1,6 +1,10 @@
 package application.util;
 
 public final class Util {
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
 
 	private Util() {
 	}
@@ -17,4 +21,98 @@ public final class Util {
         }
         return count;
     }
+	
+	/**
+	 * Parses a plain decimal number such as 2000, 1.5 or -3.25 from part of a
+	 * string without creating a substring. Numbers in other forms, such as
+	 * 1e3, fall back to Double.parseDouble.
+	 * 
+	 * @param text
+	 * @param from The index of the first character, inclusive.
+	 * @param to The index of the last character, exclusive.
+	 * @return The number.
+	 * @throws NumberFormatException If the text is not a number.
+	 */
+	public static double parseDouble(CharSequence text, int from, int to) {
+		while (from < to && text.charAt(from) == ' ') {
+			from++;
+		}
+		while (to > from && text.charAt(to - 1) == ' ') {
+			to--;
+		}
+		
+		int i = from;
+		boolean negative = false;
+		if (i < to && (text.charAt(i) == '-' || text.charAt(i) == '+')) {
+			negative = text.charAt(i) == '-';
+			i++;
+		}
+		
+		long mantissa = 0;
+		int digits = 0;
+		int decimals = -1;
+		for (; i < to; i++) {
+			char c = text.charAt(i);
+			if (c >= '0' && c <= '9') {
+				mantissa = mantissa * 10 + (c - '0');
+				digits++;
+				if (decimals >= 0) {
+					decimals++;
+				}
+			} else if (c == '.' && decimals < 0) {
+				decimals = 0;
+			} else {
+				break;
+			}
+		}
+		
+		// Up to 15 digits and 22 decimals are exact in a double, so one division rounds correctly.
+		if (i == to && digits > 0 && digits <= 15 && decimals <= 22) {
+			double value = decimals > 0 ? mantissa / POWERS_OF_TEN[decimals] : mantissa;
+			return negative ? -value : value;
+		}
+		return Double.parseDouble(text.subSequence(from, to).toString());
+	}
+
+	/**
+	 * Appends text as a JSON string, in quotes, escaping quotes, backslashes
+	 * and control characters.
+	 *
+	 * @param out
+	 * @param text null is written as an empty string.
+	 * @return out
+	 */
+	public static StringBuilder appendJsonString(StringBuilder out, CharSequence text) {
+		out.append('"');
+		if (text != null) {
+			for (int i = 0; i < text.length(); i++) {
+				char c = text.charAt(i);
+				switch (c) {
+					case '"':
+						out.append("\\\"");
+						break;
+					case '\\':
+						out.append("\\\\");
+						break;
+					case '\n':
+						out.append("\\n");
+						break;
+					case '\r':
+						out.append("\\r");
+						break;
+					case '\t':
+						out.append("\\t");
+						break;
+					default:
+						if (c < 0x20) {
+							out.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+						} else {
+							out.append(c);
+						}
+						break;
+				}
+			}
+		}
+		return out.append('"');
+	}
 }
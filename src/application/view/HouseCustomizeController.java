@@ -1,18 +1,19 @@
 package application.view;
 
 import java.io.FileNotFoundException;
-import java.text.DecimalFormat;
-import java.text.NumberFormat;
-import java.util.HashMap;
-import java.util.Map;
 
 import application.Main;
+import application.metrics.Metric;
+import application.metrics.Metrics;
 import application.model.House;
-import application.util.Util;
+import application.model.Order;
+import application.model.Receipt;
+import application.util.ReceiptTemplate;
+import javafx.beans.value.ChangeListener;
+import javafx.beans.value.ObservableValue;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
-import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Label;
 import javafx.scene.control.TextField;
 import javafx.scene.image.Image;
@@ -28,7 +29,7 @@ public class HouseCustomizeController {
     @FXML
     private Label statusLabel;
     @FXML
-    private ChoiceBox<House> styleChoiceBox;
+    private StylePicker<House> stylePicker;
     @FXML
     private TextField totalAreaTextField;
     @FXML
@@ -38,6 +39,12 @@ public class HouseCustomizeController {
     @FXML
     private Label totalCostLabel;
     @FXML
+    private Button compareButton;
+    @FXML
+    private Button sweepButton;
+    @FXML
+    private Button orderButton;
+    @FXML
     private Button printButton;
     @FXML
     private Button closeButton;
@@ -45,10 +52,28 @@ public class HouseCustomizeController {
     private Stage dialogStage;
     private House house;
     private boolean okClicked = false;
+    private QuoteRecomputer recomputer;
+    private QuoteRecomputer.Quote shownQuote;
+    private NumericInput totalAreaInput;
+    private NumericInput bedroomsInput;
+    private NumericInput bathroomsInput;
+    // When the first edit not yet shown in the cost label was made, or 0.
+    private long editStart;
     
 	public HouseCustomizeController() {
 	}
 	
+    /**
+     * Initializes the controller class. This method is automatically called
+     * after the fxml file has been loaded.
+     */
+    @FXML
+    private void initialize() {
+    	totalAreaInput = NumericInput.install(totalAreaTextField);
+    	bedroomsInput = NumericInput.install(bedroomsTextField);
+    	bathroomsInput = NumericInput.install(bathroomsTextField);
+    }
+	
     /**
      * Is called by the main application to give a reference back to itself.
      * 
@@ -57,89 +82,81 @@ public class HouseCustomizeController {
      */
     public void setMainApp(Main mainApp) {
         this.mainApp = mainApp;
+        this.recomputer = new QuoteRecomputer(mainApp.getTemplateCatalog(), this::showQuote);
     }
     
     /**
      * Adds change listeners to each field in the form.
      */
     public void setChangeListeners() {
-        styleChoiceBox.getSelectionModel().selectedItemProperty().addListener(
-        		(observable, oldValue, newValue) -> handleChoiceBoxChange(newValue));
-        totalAreaTextField.textProperty().addListener(
-        	(observable, oldValue, newValue) -> handleTextFieldChange(totalAreaTextField, oldValue, newValue));
-        bedroomsTextField.textProperty().addListener(
-        	(observable, oldValue, newValue) -> handleTextFieldChange(bedroomsTextField, oldValue ,newValue));
-        bathroomsTextField.textProperty().addListener(
-        	(observable, oldValue, newValue) -> handleTextFieldChange(bathroomsTextField, oldValue, newValue));
+        stylePicker.valueProperty().addListener(
+        		(observable, oldValue, newValue) -> handleStyleChange(newValue));
+        totalAreaInput.valueProperty().addListener((observable, oldValue, newValue) -> handleEdit());
+        bedroomsInput.valueProperty().addListener((observable, oldValue, newValue) -> handleEdit());
+        bathroomsInput.valueProperty().addListener((observable, oldValue, newValue) -> handleEdit());
     }
     
     /**
      * Change the house style and recalculate the total cost.
      * @param selectedHouse
-     * @throws CloneNotSupportedException 
      */
-    private void handleChoiceBoxChange(House selectedHouse) {
+    private void handleStyleChange(House selectedHouse) {
     	this.house = selectedHouse;
-    	styleChoiceBox.setValue(selectedHouse);
-    	House customHouse = null;
-		try {
-			customHouse = getCustomHouse(selectedHouse);
-		} catch (CloneNotSupportedException e) {
-			e.printStackTrace();
-		}
-    	boolean houseIsTemplate = houseIsTemplate(customHouse);
-    	setStatusLabelText(houseIsTemplate);
-    	setHouseImageView(houseIsTemplate);
-    	setTotalCostLabel();
+    	requestQuote();
+    }
+    
+    /**
+     * Recalculates the quote after the user changed a number, timing how
+     * long the change takes to show.
+     */
+    private void handleEdit() {
+    	if (editStart == 0) {
+    		editStart = Metrics.start();
+    	}
+    	requestQuote();
     }
     
-    private House getCustomHouse(House selectedHouse) throws CloneNotSupportedException {
-    	House customHouse = (House) selectedHouse.clone();
-    	customHouse.setBedrooms(Double.parseDouble((bedroomsTextField.getText())));
-    	customHouse.setBathrooms(Double.parseDouble((bathroomsTextField.getText())));
-    	customHouse.setArea(Double.parseDouble((totalAreaTextField.getText())));
-    	return customHouse;
+    /**
+     * Recalculates the quote in the background from the current form values.
+     */
+    private void requestQuote() {
+    	recomputer.request(house,
+    		bedroomsInput.getValue(),
+    		bathroomsInput.getValue(),
+    		totalAreaInput.getValue());
     }
     
     /**
-     * When the user changes the value of the text field:
-     * 1. Ensure input is valid decimal numbers.
-     * 2. Update image and status label.
-     * 3. Recalculate the total cost of the house.
+     * Shows a recalculated quote. Only the controls whose value changed are updated.
      * 
-     * @param textfield The textfield being typed in.
-     * @param oldValue The old value of the text field.
-     * @param newValue The new value of the text field.
+     * @param quote
      */
-    private void handleTextFieldChange(TextField textfield, String oldValue, String newValue) {
-        if (!newValue.matches("\\d*")) {
-        	textfield.setText(newValue.replaceAll("[^\\d.]", ""));
-        }
-        
-        if (Util.countOccurrences(newValue, '.') >= 2 || newValue.equals(".")) {
-        	textfield.setText(oldValue);
-        	return;
-        }
-        
-        if (!newValue.isEmpty()) {
-        	House customHouse = null;
-    		try {
-    			customHouse = getCustomHouse(styleChoiceBox.getSelectionModel().getSelectedItem());
-    		} catch (CloneNotSupportedException e) {
-    			e.printStackTrace();
+    private void showQuote(QuoteRecomputer.Quote quote) {
+    	QuoteRecomputer.Quote shown = this.shownQuote;
+    	this.shownQuote = quote;
+    	
+    	if (quote.isEmpty()) {
+    		if (shown == null || !shown.isEmpty()) {
+    			houseImageView.setImage(null);
+    			statusLabel.setText("");
+    			totalCostLabel.setText("");
     		}
-        	boolean houseIsTemplate = houseIsTemplate(customHouse);
-        	setStatusLabelText(houseIsTemplate);
-        	setHouseImageView(houseIsTemplate);
-        	setTotalCostLabel();
-        } else {
-        	houseImageView.setImage(null);
-        	statusLabel.setText("");
-        	totalCostLabel.setText("");
-        }
+    		return;
+    	}
+    	
+    	if (shown == null || shown.isEmpty() || shown.isTemplate() != quote.isTemplate()) {
+    		setStatusLabelText(quote.isTemplate());
+    	}
+    	if (shown == null || !quote.getImageStyle().equals(shown.getImageStyle())) {
+    		loadImage(quote.getImageStyle());
+    	}
+    	if (shown == null || shown.isEmpty() || quote.getCostCents() != shown.getCostCents()) {
+    		totalCostLabel.setText(quote.getCost());
+    	}
+    	Metric.KEYSTROKE_TO_LABEL.record(editStart);
+    	editStart = 0;
     }
     
-    
     /**
      * Sets the stage of this dialog.
      * 
@@ -150,11 +167,14 @@ public class HouseCustomizeController {
     }
     
     /**
-     * Sets the house to be customized in the dialog.
+     * Sets the house to be customized in the dialog. The dialog is reused,
+     * so anything shown for the previous house is reset first.
      * 
      * @param house
      */
     public void setHouse(House house) {  
+        okClicked = false;
+        shownQuote = null;
         showHouseDetails(house);
     }
     
@@ -166,21 +186,17 @@ public class HouseCustomizeController {
      */
     private void showHouseDetails(House house) {
         if (house != null) {
-        	setStyleChoiceBox(house);
-        	boolean houseIsTemplate = houseIsTemplate(house);
-        	setStatusLabelText(houseIsTemplate);
-        	setHouseImageView(houseIsTemplate);
+        	setStylePicker(house);
         	
             // Fill the text fields with info from the house object.
-        	DecimalFormat removeTrailingZeroes = new DecimalFormat("0.#####");
-        	totalAreaTextField.setText(removeTrailingZeroes.format(this.house.getArea()));
-        	bedroomsTextField.setText(removeTrailingZeroes.format(house.getBedrooms()));
-        	bathroomsTextField.setText(removeTrailingZeroes.format(house.getBathrooms()));
-        	setTotalCostLabel();
+        	totalAreaInput.setValue(house.getArea());
+        	bedroomsInput.setValue(house.getBedrooms());
+        	bathroomsInput.setValue(house.getBathrooms());
+        	requestQuote();
         } else {
-        	totalAreaTextField.setText("");
-        	bedroomsTextField.setText("");
-        	bathroomsTextField.setText("");
+        	totalAreaInput.clear();
+        	bedroomsInput.clear();
+        	bathroomsInput.clear();
         }
     }
     
@@ -198,52 +214,28 @@ public class HouseCustomizeController {
 		return;
     }
     
-    /**
-     * Changes the image of the house depending on whether the house is a template.
-     * @param houseIsTemplate
-     */
-    private void setHouseImageView(boolean houseIsTemplate) {
-    	if (houseIsTemplate) {
-            loadImage(house.getStyle());
-            return;
-    	}
-    	
-        loadImage("Custom");
-		return;
-    }
-    
-    private void setStyleChoiceBox(House house) {
+    private void setStylePicker(House house) {
     	ObservableList<House> houses = this.mainApp.getHouses();
-        styleChoiceBox.setItems(houses);
+    	if (stylePicker.getItems() != houses) {
+    		stylePicker.setItems(houses);
+    	}
         
         int i;
         for (i = 0; i < houses.size(); i++) {
-        	if (houses.get(i).getStyle() == house.getStyle()) {
+        	if (houses.get(i).getStyle().equals(house.getStyle())) {
         		break;
         	}
         }
-    	styleChoiceBox.setValue(houses.get(i));
+        if (i == houses.size()) {
+        	// The style left the catalog; price the house by its own details.
+        	stylePicker.setValue(null);
+        	this.house = house;
+        	return;
+        }
+    	stylePicker.setValue(houses.get(i));
         this.house = houses.get(i);
     }
     
-    /**
-     * Checks if a given house is equal to one of template houses.
-     * 
-     * @param house
-     * @return True if template.
-     */
-    private boolean houseIsTemplate(House house) {
-    	ObservableList<House> houses = this.mainApp.getHouses();
-    	
-    	for (House template : houses) {
-        	if (house.compareTo(template) == 0) {
-        		return true;
-        	}
-    	}
-    	
-		return false;
-    }
-
     /**
      * Returns true if the user clicked OK, false otherwise.
      * 
@@ -258,77 +250,112 @@ public class HouseCustomizeController {
      */
     @FXML
     private void handleClose() {
+        recomputer.cancel();
         dialogStage.close();
     }
     
     /**
      * Loads the image based upon the style of the house.
+     * The image comes from the shared cache and is decoded in the background.
      * @param style
      */
     private void loadImage(String style) {
-    	switch (style) {
-    		case "Traditional":
-    			houseImageView.setImage(new Image("traditional-house.jpg"));
-    			return;
-    		case "Modern":
-    			houseImageView.setImage(new Image("modern-house.jpg"));
-    			return;
-    		case "European":
-    			houseImageView.setImage(new Image("european-house.jpg"));
-    			return;
-    		case "Southwest":
-    			houseImageView.setImage(new Image("southwest-house.jpg"));
-    			return;
-    		case "Mountain":
-    			houseImageView.setImage(new Image("mountain-house.jpg"));
-    			return;
-    		case "Victorian":
-    			houseImageView.setImage(new Image("victorian-house.jpg"));
-    			return;
-    		case "Country":
-    			houseImageView.setImage(new Image("country-house.jpg"));
-    			return;
-    		case "Custom":
-    			houseImageView.setImage(new Image("custom-house.jpg"));
-    			return;
+    	long start = Metrics.start();
+    	Image image = mainApp.getImageCache().get(style);
+    	houseImageView.setImage(image);
+    	// A catalog style may have no image.
+    	if (start == 0 || image == null) {
+    		return;
+    	}
+    	if (image.getProgress() >= 1) {
+    		Metric.IMAGE_LOAD.record(start, style);
+    	} else {
+    		image.progressProperty().addListener(new ChangeListener<Number>() {
+    			@Override
+    			public void changed(ObservableValue<? extends Number> observable, Number oldValue, Number newValue) {
+    				if (newValue.doubleValue() >= 1) {
+    					observable.removeListener(this);
+    					Metric.IMAGE_LOAD.record(start, style);
+    				}
+    			}
+    		});
     	}
     }
     
     /**
-     * Displays the total cost to the user.
+     * Called when the user clicks the "Compare" button. Shows the price of
+     * the customizations in every style, and switches to the style the user
+     * chooses there.
      */
-    private void setTotalCostLabel() {
-    	totalCostLabel.setText(getCost());
+    @FXML
+    private void handleCompare() {
+    	if (!bedroomsInput.hasValue() || !bathroomsInput.hasValue() || !totalAreaInput.hasValue()) {
+    		return;
+    	}
+    	String style = mainApp.showStyleComparisonDialog(bedroomsInput.getValue(),
+    		bathroomsInput.getValue(), totalAreaInput.getValue(), house.getStyle());
+    	if (style == null) {
+    		return;
+    	}
+    	for (House template : stylePicker.getItems()) {
+    		if (template.getStyle().equals(style)) {
+    			stylePicker.setValue(template);
+    			break;
+    		}
+    	}
     }
     
     /**
-     * Calculates the total cost of the house.
+     * Called when the user clicks the "Sweep" button. Opens the price sweep
+     * of the selected style next to the dialog, marking the customizations
+     * typed, or the template's own where a field is empty.
      */
-    private String getCost() {
-    	Map<String, Double> customizations = new HashMap<>();
-    	customizations.put("numOfBedrooms", Double.parseDouble((bedroomsTextField.getText())));
-    	customizations.put("numOfBathrooms", Double.parseDouble((bathroomsTextField.getText())));
-    	customizations.put("area", Double.parseDouble((totalAreaTextField.getText())));
-    	
-    	NumberFormat formatter = NumberFormat.getCurrencyInstance();
-
-    	return formatter.format(house.getCost(customizations));
+    @FXML
+    private void handleSweep() {
+    	mainApp.showPriceSweepDialog(house,
+    		bedroomsInput.hasValue() ? bedroomsInput.getValue() : house.getBedrooms(),
+    		bathroomsInput.hasValue() ? bathroomsInput.getValue() : house.getBathrooms(),
+    		totalAreaInput.hasValue() ? totalAreaInput.getValue() : house.getArea());
     }
     
+    /**
+     * Called when the user clicks the "Order" button. Places an order for
+     * the customized house in the order store.
+     */
+    @FXML
+    private void handleOrder() {
+    	if (!bedroomsInput.hasValue() || !bathroomsInput.hasValue() || !totalAreaInput.hasValue()) {
+    		return;
+    	}
+    	double bedrooms = bedroomsInput.getValue();
+    	double bathrooms = bathroomsInput.getValue();
+    	double area = totalAreaInput.getValue();
+    	Order order = mainApp.placeOrder(house.getStyle(), bedrooms, bathrooms, area,
+    		house.getCostCents(bedrooms, bathrooms, area));
+    	if (order == null) {
+    		statusLabel.setText("Sorry, the order could not be placed.");
+    	} else {
+    		statusLabel.setText("Thanks! Your order number is " + order.getId() + ".");
+    	}
+    }
     
     /**
-     * Prints out the user's receipt to the terminal.
+     * Prints out the user's receipt to the terminal and saves it to the receipt journal.
+     * The journal is written in the background, so printing never waits on the disk.
      */
     @FXML
     private void handlePrint() {
-    	System.out.println("\n");
-    	String thankYou = "Thanks for shopping with the Midwest Home Design Company!";
-    	System.out.println(thankYou);
-    	for (char c : thankYou.toCharArray()) System.out.print("=");
-    	System.out.println("\n\nStyle: " + styleChoiceBox.getSelectionModel().getSelectedItem());
-    	System.out.println("Total Area: " + totalAreaTextField.getText());
-    	System.out.println("Bedrooms: " + bedroomsTextField.getText());
-    	System.out.println("Bathrooms: " + bathroomsTextField.getText());
-    	System.out.println("\nTotal Cost: " + getCost());
+    	if (!bedroomsInput.hasValue() || !bathroomsInput.hasValue() || !totalAreaInput.hasValue()) {
+    		return;
+    	}
+    	double bedrooms = bedroomsInput.getValue();
+    	double bathrooms = bathroomsInput.getValue();
+    	double area = totalAreaInput.getValue();
+    	long cost = house.getCostCents(bedrooms, bathrooms, area);
+    	
+    	Receipt receipt = new Receipt(System.currentTimeMillis(), house.getStyle(),
+    		bedrooms, bathrooms, area, cost);
+    	System.out.println(ReceiptTemplate.DEFAULT.render(receipt, 1));
+    	mainApp.saveReceipt(receipt);
     }
 }
@@ -1,25 +1,32 @@
 package application.view;
 
-import java.text.DecimalFormat;
-
 import application.Main;
 import application.model.House;
-import application.util.Util;
+import application.model.PlanInventory;
+import application.model.PlanInventory.Plan;
 import javafx.beans.binding.Bindings;
 import javafx.beans.binding.BooleanBinding;
+import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.scene.control.Button;
-import javafx.scene.control.ChoiceBox;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
 import javafx.scene.control.TextField;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
 
 public class HouseOverviewController {
 	
+    // How many plans Cheapest lists.
+    private static final int CHEAPEST_PLANS = 100;
+    
     // Reference to the main application.
     private Main mainApp;
     
     @FXML
-    private ChoiceBox<House> styleChoiceBox;
+    private StylePicker<House> stylePicker;
     @FXML
     private TextField areaMinTextField;
     @FXML
@@ -32,6 +39,17 @@ public class HouseOverviewController {
     private Button clearButton;
     @FXML
     private Button searchButton;
+    @FXML
+    private Button cheapestButton;
+    @FXML
+    private Label resultsLabel;
+    @FXML
+    private ListView<Plan> resultsListView;
+    
+    private NumericInput areaMinInput;
+    private NumericInput areaMaxInput;
+    private NumericInput numOfBedroomsInput;
+    private NumericInput numOfBathroomsInput;
     
     /**
      * The constructor.
@@ -46,6 +64,10 @@ public class HouseOverviewController {
      */
     @FXML
     private void initialize() {
+    	areaMinInput = NumericInput.install(areaMinTextField);
+    	areaMaxInput = NumericInput.install(areaMaxTextField);
+    	numOfBedroomsInput = NumericInput.install(numOfBedroomsTextField);
+    	numOfBathroomsInput = NumericInput.install(numOfBathroomsTextField);
     }
 	
     /**
@@ -58,15 +80,17 @@ public class HouseOverviewController {
         
         ObservableList<House> houses = mainApp.getHouses();
         
-        styleChoiceBox.setItems(houses);
+        stylePicker.setItems(houses);
         
-        // Set default value for choice box
-        styleChoiceBox.setValue(houses.get(0));
-        showHouseDetails(houses.get(0));
+        // Set default value for the style picker
+        if (!houses.isEmpty()) {
+        	stylePicker.setValue(houses.get(0));
+        	showHouseDetails(houses.get(0));
+        }
         
         // Disable Clear button when form is empty.
         BooleanBinding formIsEmpty = Bindings.and(
-        	styleChoiceBox.valueProperty().isNull(),
+        	stylePicker.valueProperty().isNull(),
         	areaMinTextField.textProperty().isEmpty())
         	.and(areaMaxTextField.textProperty().isEmpty())
         	.and(numOfBedroomsTextField.textProperty().isEmpty())
@@ -76,7 +100,7 @@ public class HouseOverviewController {
         clearButton.disableProperty().bind(formIsEmpty);
         
         BooleanBinding oneFieldIsEmpty = Bindings.or(
-            styleChoiceBox.valueProperty().isNull(),
+            stylePicker.valueProperty().isNull(),
             areaMinTextField.textProperty().isEmpty())
             .or(areaMaxTextField.textProperty().isEmpty())
             .or(numOfBedroomsTextField.textProperty().isEmpty())
@@ -84,39 +108,15 @@ public class HouseOverviewController {
         );
         
         searchButton.disableProperty().bind(oneFieldIsEmpty);
+        cheapestButton.disableProperty().bind(oneFieldIsEmpty);
     }
     
     /**
      * Set change listeners to each field in the form.
      */
     public void setChangeListeners() {
-        styleChoiceBox.getSelectionModel().selectedItemProperty().addListener(
+        stylePicker.valueProperty().addListener(
         		(observable, oldValue, newValue) -> showHouseDetails(newValue));
-        areaMinTextField.textProperty().addListener(
-            	(observable, oldValue, newValue) -> handleTextFieldChange(areaMinTextField, oldValue, newValue));
-        areaMaxTextField.textProperty().addListener(
-            	(observable, oldValue, newValue) -> handleTextFieldChange(areaMaxTextField, oldValue ,newValue));
-        numOfBedroomsTextField.textProperty().addListener(
-            	(observable, oldValue, newValue) -> handleTextFieldChange(numOfBedroomsTextField, oldValue, newValue));
-        numOfBathroomsTextField.textProperty().addListener(
-            	(observable, oldValue, newValue) -> handleTextFieldChange(numOfBathroomsTextField, oldValue, newValue));
-    }
-    
-    /**
-     * Ensure input is valid decimal numbers.
-     * 
-     * @param textfield The textfield being typed in.
-     * @param oldValue The old value of the text field.
-     * @param newValue The new value of the text field.
-     */
-    private void handleTextFieldChange(TextField textfield, String oldValue, String newValue) {
-        if (!newValue.matches("\\d*")) {
-        	textfield.setText(newValue.replaceAll("[^\\d.]", ""));
-        }
-        
-        if (Util.countOccurrences(newValue, '.') >= 2) {
-        	textfield.setText(oldValue);
-        }
     }
     
     /**
@@ -128,32 +128,135 @@ public class HouseOverviewController {
     private void showHouseDetails(House house) {
         if (house != null) {
             // Fill the text fields with info from the house object.
-        	DecimalFormat removeTrailingZeroes = new DecimalFormat("0.#####");
-        	areaMinTextField.setText(removeTrailingZeroes.format(house.getArea()));
-        	areaMaxTextField.setText(removeTrailingZeroes.format(house.getArea()));
-        	numOfBedroomsTextField.setText(removeTrailingZeroes.format(house.getBedrooms()));
-        	numOfBathroomsTextField.setText(removeTrailingZeroes.format(house.getBathrooms()));
+        	areaMinInput.setValue(house.getArea());
+        	areaMaxInput.setValue(house.getArea());
+        	numOfBedroomsInput.setValue(house.getBedrooms());
+        	numOfBathroomsInput.setValue(house.getBathrooms());
         } else {
-        	areaMinTextField.setText("");
-        	areaMaxTextField.setText("");
-        	numOfBedroomsTextField.setText("");
-        	numOfBathroomsTextField.setText("");
+        	areaMinInput.clear();
+        	areaMaxInput.clear();
+        	numOfBedroomsInput.clear();
+        	numOfBathroomsInput.clear();
         }
     }
     
     /**
-     * Called when the user clicks the search button. Opens a dialog to customize
-     * details about the house.
-     * @throws CloneNotSupportedException 
+     * Called when the user clicks the search button. Lists the plans of the
+     * selected style within the area range that have the given number of
+     * bedrooms and bathrooms. Only the rows in view are turned into plans.
+     * Without a plan file the plans are only the templates, so when none
+     * match, the selected template is customized with the values entered.
+     */
+    @FXML
+    private void handleSearch() {
+    	if (!areaMinInput.hasValue() || !areaMaxInput.hasValue()
+    			|| !numOfBedroomsInput.hasValue() || !numOfBathroomsInput.hasValue()) {
+    		resultsLabel.setText("Enter a number in every field.");
+    		return;
+    	}
+    	double bedrooms = numOfBedroomsInput.getValue();
+    	double bathrooms = numOfBathroomsInput.getValue();
+    	PlanInventory.Query query = new PlanInventory.Query()
+    		.style(stylePicker.getValue().getStyle())
+    		.area(areaMinInput.getValue(), areaMaxInput.getValue())
+    		.bedrooms(bedrooms, bedrooms)
+    		.bathrooms(bathrooms, bathrooms);
+    	
+    	PlanInventory.Result result = mainApp.getPlanInventory().search(query);
+    	resultsListView.setItems(FXCollections.observableList(result));
+    	if (result.isEmpty() && !mainApp.hasPlanFile()) {
+    		House template = stylePicker.getValue();
+    		double area = Math.min(Math.max(template.getArea(), areaMinInput.getValue()), areaMaxInput.getValue());
+    		resultsLabel.setText("");
+    		customize(template, bedrooms, bathrooms, area);
+    	} else if (result.isEmpty()) {
+    		resultsLabel.setText("No plans match.");
+    	} else {
+    		resultsLabel.setText(String.format("%,d plans found in %.1f ms. Double-click one to customize it.",
+    			result.size(), result.getNanos() / 1e6));
+    		resultsListView.getSelectionModel().selectFirst();
+    		resultsListView.requestFocus();
+    	}
+    }
+    
+    /**
+     * Called when the user clicks the cheapest button. Lists the cheapest
+     * plans in any style within the area range that have the given number
+     * of bedrooms and bathrooms, priced from the templates.
      */
     @FXML
-    private void handleSearch() throws CloneNotSupportedException {
-    	House selectedHouse = (House) styleChoiceBox.getSelectionModel().getSelectedItem().clone();
-    	selectedHouse.setBedrooms(Double.parseDouble((numOfBedroomsTextField.getText())));
-    	selectedHouse.setBathrooms(Double.parseDouble((numOfBathroomsTextField.getText())));
-    	selectedHouse.setArea(2000);
+    private void handleCheapest() {
+    	if (!areaMinInput.hasValue() || !areaMaxInput.hasValue()
+    			|| !numOfBedroomsInput.hasValue() || !numOfBathroomsInput.hasValue()) {
+    		resultsLabel.setText("Enter a number in every field.");
+    		return;
+    	}
+    	double bedrooms = numOfBedroomsInput.getValue();
+    	double bathrooms = numOfBathroomsInput.getValue();
+    	PlanInventory.Query query = new PlanInventory.Query()
+    		.area(areaMinInput.getValue(), areaMaxInput.getValue())
+    		.bedrooms(bedrooms, bedrooms)
+    		.bathrooms(bathrooms, bathrooms);
     	
-        mainApp.showHouseCustomizeDialog(selectedHouse);
+    	PlanInventory.Result result = mainApp.getPlanInventory().cheapest(query,
+    		mainApp.getStyleRateTable(), CHEAPEST_PLANS);
+    	resultsListView.setItems(FXCollections.observableList(result));
+    	if (result.isEmpty()) {
+    		resultsLabel.setText("No plans match.");
+    	} else {
+    		resultsLabel.setText(String.format("Cheapest %,d of %,d plans in any style, ranked in %.1f ms.",
+    			result.size(), result.getMatched(), result.getNanos() / 1e6));
+    		resultsListView.getSelectionModel().selectFirst();
+    		resultsListView.requestFocus();
+    	}
+    }
+    
+    @FXML
+    private void handleResultClicked(MouseEvent event) {
+    	if (event.getClickCount() == 2) {
+    		customizePlan(resultsListView.getSelectionModel().getSelectedItem());
+    	}
+    }
+    
+    @FXML
+    private void handleResultKeyPressed(KeyEvent event) {
+    	if (event.getCode() == KeyCode.ENTER) {
+    		customizePlan(resultsListView.getSelectionModel().getSelectedItem());
+    	}
+    }
+    
+    /**
+     * Opens a dialog to customize details about the plan, starting from the
+     * template of its style.
+     * 
+     * @param plan or null
+     */
+    private void customizePlan(Plan plan) {
+    	if (plan == null) {
+    		return;
+    	}
+    	for (House template : mainApp.getHouses()) {
+    		if (template.getStyle().equals(plan.getStyle())) {
+    			customize(template, plan.getBedrooms(), plan.getBathrooms(), plan.getArea());
+    			return;
+    		}
+    	}
+    	resultsLabel.setText("The " + plan.getStyle() + " style is no longer offered.");
+    }
+    
+    /**
+     * Opens a dialog to customize a copy of the template with the given details.
+     */
+    private void customize(House template, double bedrooms, double bathrooms, double area) {
+    	try {
+    		House selectedHouse = (House) template.clone();
+    		selectedHouse.setBedrooms(bedrooms);
+    		selectedHouse.setBathrooms(bathrooms);
+    		selectedHouse.setArea(area);
+    		mainApp.showHouseCustomizeDialog(selectedHouse);
+    	} catch (CloneNotSupportedException e) {
+    		e.printStackTrace();
+    	}
     }
     
 
@@ -163,7 +266,9 @@ public class HouseOverviewController {
     @FXML
     private void handleClear() {
     	showHouseDetails(null);
-    	styleChoiceBox.setValue(null);
+    	stylePicker.setValue(null);
+    	resultsListView.setItems(null);
+    	resultsLabel.setText("");
     }
     
     /**
@@ -0,0 +1,184 @@
+package application.view;
+
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import application.util.AssetPack;
+import javafx.scene.image.Image;
+
+/**
+ * Keeps the decoded house images so they are not read and decoded again
+ * every time the preview changes.
+ *
+ * Images come pre-scaled from the asset pack when there is one, and are
+ * decoded from it right away; at the size the views show them that takes
+ * well under a millisecond. Images the pack does not hold are read from
+ * their JPEGs, decoded in the background by JavaFX at the size they are
+ * shown at, so asking for one never waits on the decoder; the ImageView
+ * shows it once it is ready. The least recently used images are evicted
+ * once the cache holds more than the configured number of images or
+ * decoded bytes.
+ */
+public class ImageCache {
+	/**
+	 * Four bytes per pixel, which is what JavaFX keeps for a decoded image.
+	 */
+	private static final int BYTES_PER_PIXEL = 4;
+
+	private final int maxImages;
+	private final long maxBytes;
+	private final AssetPack pack;
+	private final double width;
+	private final double height;
+	private final Map<String, Image> images = new LinkedHashMap<>(16, 0.75f, true);
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * @param maxImages The most images kept at once.
+	 * @param maxBytes The most decoded bytes kept at once.
+	 */
+	public ImageCache(int maxImages, long maxBytes) {
+		this(maxImages, maxBytes, null, 0, 0);
+	}
+
+	/**
+	 * @param maxImages The most images kept at once.
+	 * @param maxBytes The most decoded bytes kept at once.
+	 * @param pack The pre-scaled images, or null to always read the JPEGs.
+	 * @param width The width images are shown at, or 0 for their own.
+	 * @param height The height images are shown at, or 0 for their own.
+	 */
+	public ImageCache(int maxImages, long maxBytes, AssetPack pack, double width, double height) {
+		if (maxImages < 1 || maxBytes < 1) {
+			throw new IllegalArgumentException("Cache bounds must be positive");
+		}
+		this.maxImages = maxImages;
+		this.maxBytes = maxBytes;
+		this.pack = pack;
+		this.width = width;
+		this.height = height;
+	}
+
+	/**
+	 * Returns the image for a house style, e.g. Traditional or Custom. The image
+	 * may still be decoding in the background when it is returned.
+	 *
+	 * @param style
+	 * @return The image, or null if there is no image for the style.
+	 */
+	public synchronized Image get(String style) {
+		Image image = images.get(style);
+		if (image != null && !image.isError()) {
+			hits++;
+			return image;
+		}
+
+		misses++;
+		image = load(getResourceName(style));
+		if (image == null) {
+			return null;
+		}
+		images.put(style, image);
+		evict();
+		return image;
+	}
+
+	/**
+	 * Starts decoding the images of the given styles without waiting for them.
+	 *
+	 * @param styles
+	 */
+	public void prefetch(Iterable<String> styles) {
+		for (String style : styles) {
+			get(style);
+		}
+	}
+
+	/**
+	 * Returns the name of the image resource for a style, e.g. traditional-house.jpg.
+	 *
+	 * @param style
+	 */
+	public static String getResourceName(String style) {
+		return style.toLowerCase(Locale.ROOT) + "-house.jpg";
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized int size() {
+		return images.size();
+	}
+
+	/**
+	 * Returns the number of bytes held by the images that finished decoding.
+	 */
+	public synchronized long getBytes() {
+		long bytes = 0;
+		for (Image image : images.values()) {
+			bytes += weigh(image);
+		}
+		return bytes;
+	}
+
+	public synchronized void clear() {
+		images.clear();
+	}
+
+	private void evict() {
+		long bytes = getBytes();
+		Iterator<Image> eldest = images.values().iterator();
+		// The newest image always stays, however large it is.
+		while (images.size() > 1 && (images.size() > maxImages || bytes > maxBytes)) {
+			Image image = eldest.next();
+			bytes -= weigh(image);
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	private static long weigh(Image image) {
+		return (long) image.getWidth() * (long) image.getHeight() * BYTES_PER_PIXEL;
+	}
+
+	private Image load(String name) {
+		InputStream packed = pack == null ? null : pack.openStream(name, width, height);
+		if (packed != null) {
+			Image image = new Image(packed);
+			if (!image.isError()) {
+				return image;
+			}
+		}
+
+		URL url = getResource(name);
+		if (url == null) {
+			return null;
+		}
+		// Decoding at the size shown keeps a 2 MP photo from taking 8 MB.
+		return new Image(url.toExternalForm(), width, height, false, true, true);
+	}
+
+	private static URL getResource(String name) {
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		if (loader == null) {
+			loader = ImageCache.class.getClassLoader();
+		}
+		return loader.getResource(name);
+	}
+}
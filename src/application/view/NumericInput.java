@@ -0,0 +1,153 @@
+package application.view;
+
+import java.text.DecimalFormat;
+import java.util.function.UnaryOperator;
+
+import application.util.Util;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.scene.control.TextField;
+import javafx.scene.control.TextFormatter;
+
+/**
+ * Restricts a text field to non-negative decimal numbers and exposes the
+ * number typed as a primitive property.
+ *
+ * Each edit is checked by a TextFormatter filter before it reaches the
+ * field: characters other than digits and a point are dropped, and an edit
+ * that would add a second point is refused. The filter parses the text it
+ * accepts, so listeners read the number from valueProperty instead of
+ * parsing the text again, and the field never has to be corrected from a
+ * text listener. The value is NaN while the field is empty or holds only a
+ * point.
+ */
+public final class NumericInput {
+	// Only used on the FX thread.
+	private static final DecimalFormat FORMAT = new DecimalFormat("0.#####");
+
+	private final TextField field;
+	private final ReadOnlyDoubleWrapper value = new ReadOnlyDoubleWrapper(this, "value", Double.NaN);
+
+	private NumericInput(TextField field) {
+		this.field = field;
+		UnaryOperator<TextFormatter.Change> filter = this::filter;
+		field.setTextFormatter(new TextFormatter<>(filter));
+		value.set(parse(field.getText()));
+	}
+
+	/**
+	 * Restricts the text field to numbers.
+	 *
+	 * @param field
+	 * @return The input, holding the number in the field.
+	 */
+	public static NumericInput install(TextField field) {
+		return new NumericInput(field);
+	}
+
+	private TextFormatter.Change filter(TextFormatter.Change change) {
+		String text = change.getText();
+		if (!isNumeric(text)) {
+			text = clean(text);
+			int caret = change.getRangeStart() + text.length();
+			change.setText(text);
+			change.selectRange(caret, caret);
+		}
+
+		String newText = change.getControlNewText();
+		if (Util.countOccurrences(newText, '.') >= 2) {
+			return null;
+		}
+		value.set(parse(newText));
+		return change;
+	}
+
+	/**
+	 * Returns true if the text only holds digits and points.
+	 */
+	static boolean isNumeric(String text) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if ((c < '0' || c > '9') && c != '.') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Drops every character but digits and points.
+	 */
+	static String clean(String text) {
+		StringBuilder cleaned = new StringBuilder(text.length());
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if ((c >= '0' && c <= '9') || c == '.') {
+				cleaned.append(c);
+			}
+		}
+		return cleaned.toString();
+	}
+
+	/**
+	 * Parses the text of a field, which only holds digits and at most one point.
+	 *
+	 * @param text
+	 * @return The number, or NaN if there is none yet.
+	 */
+	public static double parse(CharSequence text) {
+		int length = text.length();
+		if (length == 0 || (length == 1 && text.charAt(0) == '.')) {
+			return Double.NaN;
+		}
+		try {
+			return Util.parseDouble(text, 0, length);
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	public TextField getField() {
+		return field;
+	}
+
+	/**
+	 * Returns the number in the field, or NaN if there is none.
+	 */
+	public double getValue() {
+		return value.get();
+	}
+
+	/**
+	 * Returns true if the field holds a number.
+	 */
+	public boolean hasValue() {
+		return !Double.isNaN(value.get());
+	}
+
+	public ReadOnlyDoubleProperty valueProperty() {
+		return value.getReadOnlyProperty();
+	}
+
+	/**
+	 * Shows a number in the field, without trailing zeroes.
+	 *
+	 * @param number The number, or NaN to clear the field.
+	 */
+	public void setValue(double number) {
+		field.setText(format(number));
+	}
+
+	/**
+	 * Formats a number the way setValue shows it. Only call on the FX thread.
+	 *
+	 * @param number The number, or NaN for an empty text.
+	 */
+	public static String format(double number) {
+		return Double.isNaN(number) ? "" : FORMAT.format(number);
+	}
+
+	public void clear() {
+		field.setText("");
+	}
+}
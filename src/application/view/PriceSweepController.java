@@ -0,0 +1,604 @@
+package application.view;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import application.model.HouseSpec;
+import application.model.Money;
+import application.model.PriceSweep;
+import application.model.PricingEngine;
+import application.util.CurrencyFormatter;
+import javafx.application.Platform;
+import javafx.fxml.FXML;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.Slider;
+import javafx.scene.control.TextField;
+import javafx.scene.image.PixelFormat;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseEvent;
+import javafx.scene.paint.Color;
+import javafx.stage.Stage;
+
+/**
+ * Shows how the price of a style changes over a grid of bedrooms, bathrooms
+ * and area: a heat map of bedrooms against area for one number of bathrooms,
+ * and the price curve along area for one number of bedrooms, where the jump
+ * above 3000 sq ft shows.
+ *
+ * Sweeps run on a background thread over the common fork/join pool and the
+ * views are redrawn after each pass, so a grid of millions of points shows
+ * coarsely at once and sharpens as it is priced. Frames are drawn off the
+ * FX thread too, a pixel rather than a point at a time, and only the newest
+ * is handed to the FX thread. Dragging over the heat map narrows the grid to
+ * the selection, reusing the prices already computed; clicking it picks the
+ * bedrooms the curve shows.
+ */
+public class PriceSweepController {
+    private static final ExecutorService SWEEPER = newWorker("price-sweep");
+    private static final ExecutorService RENDERER = newWorker("price-sweep-render");
+
+    private static final int[] PALETTE = palette(256);
+    private static final Color BACKGROUND = Color.gray(0.96);
+    private static final Color INK = Color.gray(0.2);
+    private static final double CURVE_TOP = 12;
+    private static final double CURVE_BOTTOM = 18;
+
+    @FXML
+    private Label titleLabel;
+    @FXML
+    private TextField bedroomsFromField;
+    @FXML
+    private TextField bedroomsToField;
+    @FXML
+    private TextField bedroomsStepField;
+    @FXML
+    private TextField bathroomsFromField;
+    @FXML
+    private TextField bathroomsToField;
+    @FXML
+    private TextField bathroomsStepField;
+    @FXML
+    private TextField areaFromField;
+    @FXML
+    private TextField areaToField;
+    @FXML
+    private TextField areaStepField;
+    @FXML
+    private Label bathroomsLabel;
+    @FXML
+    private Slider bathroomsSlider;
+    @FXML
+    private Canvas heatMapCanvas;
+    @FXML
+    private Label pointLabel;
+    @FXML
+    private Canvas curveCanvas;
+    @FXML
+    private Label statusLabel;
+    @FXML
+    private Button sweepButton;
+    @FXML
+    private Button closeButton;
+
+    private Stage dialogStage;
+    private HouseSpec template;
+    private NumericInput bedroomsFrom;
+    private NumericInput bedroomsTo;
+    private NumericInput bedroomsStep;
+    private NumericInput bathroomsFrom;
+    private NumericInput bathroomsTo;
+    private NumericInput bathroomsStep;
+    private NumericInput areaFrom;
+    private NumericInput areaTo;
+    private NumericInput areaStep;
+
+    // The customizations picked, kept across sweeps whose axes differ.
+    private double selectedBedrooms;
+    private double selectedBathrooms;
+    private double markedArea;
+
+    // Read by the sweeping and rendering threads.
+    private volatile PriceSweep sweep;
+    private volatile PriceSweep lastDone;
+    private volatile int bathroomIndex;
+    private volatile int bedroomIndex;
+    private volatile long sweepStart;
+    private volatile long passNanos;
+    private int heatWidth;
+    private int heatHeight;
+    private int curveWidth;
+
+    private final AtomicBoolean renderQueued = new AtomicBoolean();
+    private final AtomicReference<Frame> latest = new AtomicReference<>();
+
+    // Only used on the FX thread.
+    private Frame frame;
+    private WritableImage heatImage;
+    private double dragStartX = Double.NaN;
+    private double dragStartY;
+    private double dragEndX;
+    private double dragEndY;
+
+    /**
+     * The views for one pass of one sweep, ready to be put on the canvases.
+     */
+    private static final class Frame {
+    	private final PriceSweep sweep;
+    	private final int stride;
+    	private final long elapsed;
+    	private final int[] pixels;
+    	private final long[] curveLow;
+    	private final long[] curveHigh;
+    	private final long curveMin;
+    	private final long curveMax;
+
+    	Frame(PriceSweep sweep, int stride, long elapsed, int[] pixels, long[] curveLow, long[] curveHigh,
+    			long curveMin, long curveMax) {
+    		this.sweep = sweep;
+    		this.stride = stride;
+    		this.elapsed = elapsed;
+    		this.pixels = pixels;
+    		this.curveLow = curveLow;
+    		this.curveHigh = curveHigh;
+    		this.curveMin = curveMin;
+    		this.curveMax = curveMax;
+    	}
+    }
+
+	public PriceSweepController() {
+	}
+
+    /**
+     * Initializes the controller class. This method is automatically called
+     * after the fxml file has been loaded.
+     */
+    @FXML
+    private void initialize() {
+    	bedroomsFrom = NumericInput.install(bedroomsFromField);
+    	bedroomsTo = NumericInput.install(bedroomsToField);
+    	bedroomsStep = NumericInput.install(bedroomsStepField);
+    	bathroomsFrom = NumericInput.install(bathroomsFromField);
+    	bathroomsTo = NumericInput.install(bathroomsToField);
+    	bathroomsStep = NumericInput.install(bathroomsStepField);
+    	areaFrom = NumericInput.install(areaFromField);
+    	areaTo = NumericInput.install(areaToField);
+    	areaStep = NumericInput.install(areaStepField);
+
+    	heatWidth = (int) heatMapCanvas.getWidth();
+    	heatHeight = (int) heatMapCanvas.getHeight();
+    	curveWidth = (int) curveCanvas.getWidth();
+
+    	bathroomsSlider.valueProperty().addListener((observable, oldValue, newValue) -> {
+    		PriceSweep current = sweep;
+    		if (current == null) {
+    			return;
+    		}
+    		bathroomIndex = (int) Math.round(newValue.doubleValue());
+    		selectedBathrooms = current.getBathrooms().value(bathroomIndex);
+    		showBathrooms();
+    		requestRender();
+    	});
+    }
+
+    /**
+     * Sets the stage of this dialog. Sweeping stops when it is hidden.
+     *
+     * @param dialogStage
+     */
+    public void setDialogStage(Stage dialogStage) {
+        this.dialogStage = dialogStage;
+        dialogStage.setOnHidden(event -> stop());
+    }
+
+    /**
+     * Sweeps the prices of a template, marking the given customizations.
+     * The ranges typed in the dialog are kept from one house to the next.
+     *
+     * @param template
+     * @param numOfBedrooms
+     * @param numOfBathrooms
+     * @param area
+     */
+    public void setHouse(HouseSpec template, double numOfBedrooms, double numOfBathrooms, double area) {
+    	this.template = template;
+    	selectedBedrooms = numOfBedrooms;
+    	selectedBathrooms = numOfBathrooms;
+    	markedArea = area;
+    	if (!bedroomsFrom.hasValue()) {
+    		bedroomsFrom.setValue(1);
+    		bedroomsTo.setValue(10);
+    		bedroomsStep.setValue(1);
+    		bathroomsFrom.setValue(1);
+    		bathroomsTo.setValue(6);
+    		bathroomsStep.setValue(0.5);
+    		areaFrom.setValue(500);
+    		areaTo.setValue(8000);
+    		areaStep.setValue(1);
+    	}
+    	titleLabel.setText(template.getStyle() + " (" + CurrencyFormatter.getInstance().format(
+    		Money.centsOf(template.getTemplateBasicRate())) + " for " + NumericInput.format(template.getBedrooms())
+    		+ " bedrooms and " + NumericInput.format(template.getBathrooms()) + " bathrooms)");
+    	pointLabel.setText("");
+    	handleSweep();
+    }
+
+    /**
+     * Called when the user clicks the "Sweep" button or presses enter in a
+     * field. Starts a sweep of the ranges in the fields.
+     */
+    @FXML
+    private void handleSweep() {
+    	if (template == null) {
+    		return;
+    	}
+    	NumericInput[] inputs = { bedroomsFrom, bedroomsTo, bedroomsStep, bathroomsFrom, bathroomsTo,
+    		bathroomsStep, areaFrom, areaTo, areaStep };
+    	for (NumericInput input : inputs) {
+    		if (!input.hasValue()) {
+    			statusLabel.setText("Fill in every range.");
+    			return;
+    		}
+    	}
+
+    	PriceSweep next;
+    	try {
+    		next = new PriceSweep(template,
+    			new PriceSweep.Axis(bedroomsFrom.getValue(), bedroomsTo.getValue(), bedroomsStep.getValue()),
+    			new PriceSweep.Axis(bathroomsFrom.getValue(), bathroomsTo.getValue(), bathroomsStep.getValue()),
+    			new PriceSweep.Axis(areaFrom.getValue(), areaTo.getValue(), areaStep.getValue()));
+    	} catch (IllegalArgumentException e) {
+    		statusLabel.setText(e.getMessage());
+    		return;
+    	}
+    	start(next);
+    }
+
+    private void start(PriceSweep next) {
+    	PriceSweep previous = sweep;
+    	if (previous != null) {
+    		previous.cancel();
+    	}
+    	sweep = next;
+    	frame = null;
+    	bedroomIndex = next.getBedrooms().nearestIndex(selectedBedrooms);
+    	int bathroom = next.getBathrooms().nearestIndex(selectedBathrooms);
+    	bathroomsSlider.setMax(Math.max(next.getBathrooms().size() - 1, 0.5));
+    	bathroomsSlider.setDisable(next.getBathrooms().size() < 2);
+    	bathroomsSlider.setValue(bathroom);
+    	bathroomIndex = bathroom;
+    	showBathrooms();
+    	statusLabel.setText(String.format("Sweeping %,d points...", next.size()));
+
+    	SWEEPER.execute(() -> {
+    		if (next.isCancelled()) {
+    			return;
+    		}
+    		sweepStart = System.nanoTime();
+    		boolean done = next.run(ForkJoinPool.commonPool(), lastDone, (finished, stride) -> {
+    			passNanos = System.nanoTime() - sweepStart;
+    			requestRender();
+    		});
+    		if (done && sweep == next) {
+    			lastDone = next;
+    		}
+    	});
+    }
+
+    /**
+     * Cancels the sweep and lets go of the prices, which can take many megabytes.
+     */
+    private void stop() {
+    	PriceSweep current = sweep;
+    	if (current != null) {
+    		current.cancel();
+    	}
+    	sweep = null;
+    	lastDone = null;
+    	frame = null;
+    	latest.set(null);
+    }
+
+    private void showBathrooms() {
+    	bathroomsLabel.setText(NumericInput.format(sweep.getBathrooms().value(bathroomIndex)) + " bathrooms");
+    }
+
+    private void requestRender() {
+    	if (renderQueued.compareAndSet(false, true)) {
+    		RENDERER.execute(this::render);
+    	}
+    }
+
+    /**
+     * Draws the views of the current sweep into a frame, on the render thread.
+     */
+    private void render() {
+    	renderQueued.set(false);
+    	PriceSweep current = sweep;
+    	if (current == null) {
+    		return;
+    	}
+    	int stride = current.getStride();
+    	if (stride == 0) {
+    		return;
+    	}
+    	long elapsed = passNanos;
+    	PriceSweep.Axis bedrooms = current.getBedrooms();
+    	PriceSweep.Axis area = current.getArea();
+    	int bathroom = quantize(bathroomIndex, stride);
+
+    	// The heat map, a pixel at a time from the nearest point priced so far.
+    	int[] columns = new int[heatWidth];
+    	for (int x = 0; x < heatWidth; x++) {
+    		columns[x] = quantize((int) ((long) x * area.size() / heatWidth), stride);
+    	}
+    	long[] costs = new long[heatWidth * heatHeight];
+    	long min = Long.MAX_VALUE;
+    	long max = Long.MIN_VALUE;
+    	for (int y = 0; y < heatHeight; y++) {
+    		int bedroom = quantize((int) ((long) (heatHeight - 1 - y) * bedrooms.size() / heatHeight), stride);
+    		for (int x = 0; x < heatWidth; x++) {
+    			long cost = current.getCostCents(bedroom, bathroom, columns[x]);
+    			costs[y * heatWidth + x] = cost;
+    			min = Math.min(min, cost);
+    			max = Math.max(max, cost);
+    		}
+    	}
+    	int[] pixels = new int[costs.length];
+    	long range = Math.max(max - min, 1);
+    	for (int p = 0; p < pixels.length; p++) {
+    		pixels[p] = PALETTE[(int) ((costs[p] - min) * (PALETTE.length - 1) / range)];
+    	}
+
+    	// The curve, as the lowest and highest price in each column.
+    	int bedroom = quantize(bedroomIndex, stride);
+    	long[] low = new long[curveWidth];
+    	long[] high = new long[curveWidth];
+    	long curveMin = Long.MAX_VALUE;
+    	long curveMax = Long.MIN_VALUE;
+    	for (int x = 0; x < curveWidth; x++) {
+    		int from = (int) ((long) x * area.size() / curveWidth);
+    		int to = Math.max(from + 1, (int) ((long) (x + 1) * area.size() / curveWidth));
+    		int k = (from + stride - 1) / stride * stride;
+    		if (k >= to) {
+    			k = quantize(from, stride);
+    		}
+    		low[x] = Long.MAX_VALUE;
+    		high[x] = Long.MIN_VALUE;
+    		for (; k < to; k += stride) {
+    			long cost = current.getCostCents(bedroom, bathroom, k);
+    			low[x] = Math.min(low[x], cost);
+    			high[x] = Math.max(high[x], cost);
+    		}
+    		curveMin = Math.min(curveMin, low[x]);
+    		curveMax = Math.max(curveMax, high[x]);
+    	}
+
+    	if (latest.getAndSet(new Frame(current, stride, elapsed, pixels, low, high, curveMin, curveMax)) == null) {
+    		Platform.runLater(this::showLatest);
+    	}
+    }
+
+    private static int quantize(int index, int stride) {
+    	return index - index % stride;
+    }
+
+    private void showLatest() {
+    	Frame next = latest.getAndSet(null);
+    	if (next == null || next.sweep != sweep) {
+    		return;
+    	}
+    	frame = next;
+    	drawHeatMap();
+    	drawCurve();
+    	PriceSweep current = next.sweep;
+    	statusLabel.setText(String.format(next.stride == 1 ? "%,d points in %.0f ms" : "%,d points, sharpening... (%.0f ms)",
+    		current.size(), next.elapsed / 1e6));
+    }
+
+    private void drawHeatMap() {
+    	GraphicsContext graphics = heatMapCanvas.getGraphicsContext2D();
+    	if (frame == null) {
+    		graphics.setFill(BACKGROUND);
+    		graphics.fillRect(0, 0, heatWidth, heatHeight);
+    		return;
+    	}
+    	if (heatImage == null) {
+    		heatImage = new WritableImage(heatWidth, heatHeight);
+    	}
+    	heatImage.getPixelWriter().setPixels(0, 0, heatWidth, heatHeight, PixelFormat.getIntArgbInstance(),
+    		frame.pixels, 0, heatWidth);
+    	graphics.drawImage(heatImage, 0, 0);
+
+    	PriceSweep current = frame.sweep;
+    	PriceSweep.Axis bedrooms = current.getBedrooms();
+    	graphics.setFill(Color.WHITE);
+    	graphics.fillText(NumericInput.format(bedrooms.getMax()) + " bd", 4, 14);
+    	graphics.fillText(NumericInput.format(bedrooms.getMin()) + " bd", 4, heatHeight - 20);
+    	graphics.fillText(NumericInput.format(current.getArea().getMin()) + " sq ft", 4, heatHeight - 5);
+    	String maxArea = NumericInput.format(current.getArea().getMax()) + " sq ft";
+    	graphics.fillText(maxArea, heatWidth - 8 - maxArea.length() * 6, heatHeight - 5);
+
+    	// The bedrooms the curve shows.
+    	double rowHeight = (double) heatHeight / bedrooms.size();
+    	double top = heatHeight - (bedroomIndex + 1) * rowHeight;
+    	graphics.setStroke(Color.WHITE);
+    	graphics.setLineWidth(1);
+    	graphics.strokeRect(0.5, Math.round(top) + 0.5, heatWidth - 1, Math.max(Math.round(rowHeight) - 1, 1));
+
+    	if (!Double.isNaN(dragStartX)) {
+    		graphics.setStroke(Color.BLACK);
+    		graphics.setLineDashes(4);
+    		graphics.strokeRect(Math.min(dragStartX, dragEndX), Math.min(dragStartY, dragEndY),
+    			Math.abs(dragEndX - dragStartX), Math.abs(dragEndY - dragStartY));
+    		graphics.setLineDashes(null);
+    	}
+    }
+
+    private void drawCurve() {
+    	GraphicsContext graphics = curveCanvas.getGraphicsContext2D();
+    	double width = curveCanvas.getWidth();
+    	double height = curveCanvas.getHeight();
+    	graphics.setFill(BACKGROUND);
+    	graphics.fillRect(0, 0, width, height);
+    	if (frame == null) {
+    		return;
+    	}
+
+    	double plotHeight = height - CURVE_TOP - CURVE_BOTTOM;
+    	double range = Math.max(frame.curveMax - frame.curveMin, 1);
+    	graphics.setStroke(Color.STEELBLUE);
+    	graphics.setLineWidth(1.5);
+    	graphics.beginPath();
+    	for (int x = 0; x < frame.curveLow.length; x++) {
+    		double low = CURVE_TOP + plotHeight * (1 - (frame.curveLow[x] - frame.curveMin) / range);
+    		double high = CURVE_TOP + plotHeight * (1 - (frame.curveHigh[x] - frame.curveMin) / range);
+    		if (x == 0) {
+    			graphics.moveTo(x + 0.5, low);
+    		} else {
+    			graphics.lineTo(x + 0.5, low);
+    		}
+    		graphics.lineTo(x + 0.5, high);
+    	}
+    	graphics.stroke();
+
+    	PriceSweep current = frame.sweep;
+    	PriceSweep.Axis area = current.getArea();
+    	if (markedArea >= area.getMin() && markedArea <= area.getMax() && area.size() > 1) {
+    		double x = Math.round((markedArea - area.getMin()) / (area.getMax() - area.getMin()) * (width - 1)) + 0.5;
+    		graphics.setStroke(Color.ORANGERED);
+    		graphics.setLineWidth(1);
+    		graphics.setLineDashes(3);
+    		graphics.strokeLine(x, CURVE_TOP, x, CURVE_TOP + plotHeight);
+    		graphics.setLineDashes(null);
+    	}
+
+    	CurrencyFormatter currency = CurrencyFormatter.getInstance();
+    	graphics.setFill(INK);
+    	graphics.fillText(currency.format(frame.curveMax), 4, CURVE_TOP - 1);
+    	graphics.fillText(currency.format(frame.curveMin), 4, height - 4);
+    	String label = NumericInput.format(current.getBedrooms().value(bedroomIndex)) + " bd, "
+    		+ NumericInput.format(current.getBathrooms().value(bathroomIndex)) + " ba by area";
+    	graphics.fillText(label, width - 8 - label.length() * 6, height - 4);
+    }
+
+    @FXML
+    private void handleHeatMapMoved(MouseEvent event) {
+    	PriceSweep current = sweep;
+    	if (current == null) {
+    		return;
+    	}
+    	double bedrooms = current.getBedrooms().value(bedroomAt(event.getY()));
+    	double bathrooms = current.getBathrooms().value(bathroomIndex);
+    	double area = current.getArea().value(areaAt(event.getX()));
+    	long cost = PricingEngine.quoteCents(template, bedrooms, bathrooms, area);
+    	pointLabel.setText(NumericInput.format(bedrooms) + " bedrooms, " + NumericInput.format(bathrooms)
+    		+ " bathrooms, " + NumericInput.format(area) + " sq ft: " + CurrencyFormatter.getInstance().format(cost));
+    }
+
+    @FXML
+    private void handleHeatMapExited(MouseEvent event) {
+    	pointLabel.setText("");
+    }
+
+    @FXML
+    private void handleHeatMapPressed(MouseEvent event) {
+    	dragStartX = event.getX();
+    	dragStartY = event.getY();
+    	dragEndX = dragStartX;
+    	dragEndY = dragStartY;
+    }
+
+    @FXML
+    private void handleHeatMapDragged(MouseEvent event) {
+    	if (Double.isNaN(dragStartX)) {
+    		return;
+    	}
+    	dragEndX = clamp(event.getX(), heatWidth - 1);
+    	dragEndY = clamp(event.getY(), heatHeight - 1);
+    	drawHeatMap();
+    	handleHeatMapMoved(event);
+    }
+
+    /**
+     * A click picks the bedrooms the curve shows; a drag narrows the grid
+     * to the bedrooms and area selected.
+     */
+    @FXML
+    private void handleHeatMapReleased(MouseEvent event) {
+    	PriceSweep current = sweep;
+    	double startX = dragStartX;
+    	dragStartX = Double.NaN;
+    	if (current == null || Double.isNaN(startX)) {
+    		return;
+    	}
+
+    	if (Math.abs(dragEndX - startX) < 4 || Math.abs(dragEndY - dragStartY) < 4) {
+    		bedroomIndex = bedroomAt(event.getY());
+    		selectedBedrooms = current.getBedrooms().value(bedroomIndex);
+    		drawHeatMap();
+    		requestRender();
+    		return;
+    	}
+
+    	PriceSweep.Axis bedrooms = current.getBedrooms();
+    	PriceSweep.Axis area = current.getArea();
+    	int fromBedroom = bedroomAt(Math.max(dragStartY, dragEndY));
+    	int toBedroom = bedroomAt(Math.min(dragStartY, dragEndY));
+    	bedroomsFrom.setValue(bedrooms.value(fromBedroom));
+    	bedroomsTo.setValue(bedrooms.value(toBedroom));
+    	areaFrom.setValue(area.value(areaAt(Math.min(startX, dragEndX))));
+    	areaTo.setValue(area.value(areaAt(Math.max(startX, dragEndX))));
+    	handleSweep();
+    }
+
+    private int bedroomAt(double y) {
+    	int size = sweep.getBedrooms().size();
+    	int index = (int) ((heatHeight - 1 - clamp(y, heatHeight - 1)) * size / heatHeight);
+    	return Math.min(index, size - 1);
+    }
+
+    private int areaAt(double x) {
+    	int size = sweep.getArea().size();
+    	int index = (int) (clamp(x, heatWidth - 1) * size / heatWidth);
+    	return Math.min(index, size - 1);
+    }
+
+    private static double clamp(double value, double max) {
+    	return Math.max(0, Math.min(max, value));
+    }
+
+    /**
+     * Called when the user clicks the "Close" button.
+     */
+    @FXML
+    private void handleClose() {
+    	dialogStage.close();
+    }
+
+    private static ExecutorService newWorker(String name) {
+    	return Executors.newSingleThreadExecutor(runnable -> {
+    		Thread thread = new Thread(runnable, name);
+    		thread.setDaemon(true);
+    		return thread;
+    	});
+    }
+
+    /**
+     * Returns colors from blue for the lowest prices to red for the highest.
+     */
+    private static int[] palette(int size) {
+    	int[] colors = new int[size];
+    	for (int i = 0; i < size; i++) {
+    		Color color = Color.hsb(240.0 * (size - 1 - i) / (size - 1), 0.75, 0.95);
+    		colors[i] = 0xFF000000 | (int) Math.round(color.getRed() * 255) << 16
+    			| (int) Math.round(color.getGreen() * 255) << 8 | (int) Math.round(color.getBlue() * 255);
+    	}
+    	return colors;
+    }
+}
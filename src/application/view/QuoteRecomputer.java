@@ -0,0 +1,267 @@
+package application.view;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import application.metrics.Metric;
+import application.metrics.Metrics;
+import application.model.House;
+import application.model.HouseSpec;
+import application.model.PricingEngine;
+import application.model.TemplateCatalog;
+import application.util.CurrencyFormatter;
+import javafx.animation.AnimationTimer;
+import javafx.application.Platform;
+
+/**
+ * Recomputes the quote shown in the customize dialog off the FX thread.
+ *
+ * Requests made while the worker is busy replace each other, so a burst of
+ * edits is computed once, from the latest values. Finished quotes are handed
+ * to the FX thread on the next pulse, and only the newest one is published.
+ * Clearing or cancelling starts a new generation of requests, and a quote
+ * computed for an older one is dropped rather than published.
+ */
+public class QuoteRecomputer {
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "quote-recompute");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The outcome of one recompute.
+     */
+    public static final class Quote {
+        /**
+         * Published when a field is empty, not a number or too large to price.
+         */
+        public static final Quote EMPTY = new Quote(false, null, 0, "");
+
+        private final boolean template;
+        private final String imageStyle;
+        private final long costCents;
+        private final String cost;
+
+        private Quote(boolean template, String imageStyle, long costCents, String cost) {
+            this.template = template;
+            this.imageStyle = imageStyle;
+            this.costCents = costCents;
+            this.cost = cost;
+        }
+
+        public boolean isEmpty() {
+            return this == EMPTY;
+        }
+
+        /**
+         * @return True if the customized house is one of the templates.
+         */
+        public boolean isTemplate() {
+            return template;
+        }
+
+        /**
+         * @return The style whose image should be shown, or null if none.
+         */
+        public String getImageStyle() {
+            return imageStyle;
+        }
+
+        /**
+         * @return The total cost in cents.
+         */
+        public long getCostCents() {
+            return costCents;
+        }
+
+        /**
+         * @return The formatted total cost.
+         */
+        public String getCost() {
+            return cost;
+        }
+    }
+
+    /**
+     * A snapshot of the dialog taken on the FX thread, so the worker never
+     * touches the controls or the template's properties.
+     */
+    private static final class Inputs {
+        private final HouseSpec template;
+        private final double bedrooms;
+        private final double bathrooms;
+        private final double area;
+        private final long generation;
+
+        Inputs(HouseSpec template, double bedrooms, double bathrooms, double area, long generation) {
+            this.template = template;
+            this.bedrooms = bedrooms;
+            this.bathrooms = bathrooms;
+            this.area = area;
+            this.generation = generation;
+        }
+    }
+
+    /**
+     * A quote waiting for the FX thread, with the generation it was asked for in.
+     */
+    private static final class Result {
+        private final Quote quote;
+        private final long generation;
+
+        Result(Quote quote, long generation) {
+            this.quote = quote;
+            this.generation = generation;
+        }
+    }
+
+    private final TemplateCatalog catalog;
+    private final Consumer<Quote> publisher;
+
+    private final AtomicReference<Inputs> pending = new AtomicReference<>();
+    private final AtomicReference<Result> latest = new AtomicReference<>();
+    private final AtomicBoolean publishing = new AtomicBoolean();
+    // Only changed on the FX thread.
+    private final AtomicLong generation = new AtomicLong();
+
+    // Only used by the worker thread.
+    private final StringBuilder text = new StringBuilder(32);
+    private long formattedCents = -1;
+    private String formatted;
+
+    private final AnimationTimer pulse = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            publish();
+        }
+    };
+
+    /**
+     * @param catalog The templates the customized house is matched against.
+     * @param publisher Called on the FX thread with each published quote.
+     */
+    public QuoteRecomputer(TemplateCatalog catalog, Consumer<Quote> publisher) {
+        this.catalog = catalog;
+        this.publisher = publisher;
+    }
+
+    /**
+     * Asks for the quote of the given customizations. Must be called on the FX thread.
+     *
+     * @param template The selected template, or null to clear the quote.
+     * @param bedrooms The number of bedrooms, or NaN if the field is incomplete.
+     * @param bathrooms The number of bathrooms, or NaN if the field is incomplete.
+     * @param area The total area, or NaN if the field is incomplete.
+     */
+    public void request(House template, double bedrooms, double bathrooms, double area) {
+        if (template == null) {
+            pending.set(null);
+            latest.set(new Result(Quote.EMPTY, generation.incrementAndGet()));
+            schedulePublish();
+            return;
+        }
+        Inputs inputs = new Inputs(template.toSpec(), bedrooms, bathrooms, area, generation.get());
+        if (pending.getAndSet(inputs) == null) {
+            WORKER.execute(this::drain);
+        }
+    }
+
+    /**
+     * Stops publishing. Quotes still being computed are dropped.
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+        pending.set(null);
+        latest.set(null);
+        pulse.stop();
+        publishing.set(false);
+    }
+
+    private void drain() {
+        Inputs inputs = pending.getAndSet(null);
+        if (inputs == null) {
+            return;
+        }
+        Quote quote = compute(inputs);
+        // The dialog may have been cleared or closed while this was computed.
+        if (inputs.generation != generation.get()) {
+            return;
+        }
+        Result result = new Result(quote, inputs.generation);
+        Result current;
+        do {
+            current = latest.get();
+            if (current != null && current.generation > result.generation) {
+                // Cleared just after the check above; keep the empty quote.
+                return;
+            }
+        } while (!latest.compareAndSet(current, result));
+        schedulePublish();
+    }
+
+    private Quote compute(Inputs inputs) {
+        double bedrooms = inputs.bedrooms;
+        double bathrooms = inputs.bathrooms;
+        double area = inputs.area;
+        if (Double.isNaN(bedrooms) || Double.isNaN(bathrooms) || Double.isNaN(area)) {
+            return Quote.EMPTY;
+        }
+
+        String style = inputs.template.getStyle();
+        boolean template = catalog.find(style, bedrooms, bathrooms, area) != null;
+        long start = Metrics.start();
+        long cost;
+        try {
+            cost = PricingEngine.quoteCents(inputs.template, bedrooms, bathrooms, area);
+        } catch (IllegalArgumentException e) {
+            return Quote.EMPTY;
+        }
+        Metric.QUOTE.record(start, style);
+
+        return new Quote(template, template ? style : "Custom", cost, format(cost));
+    }
+
+    /**
+     * Formats a cost, reusing the text of the last one when it has not changed.
+     */
+    private String format(long cents) {
+        if (formatted == null || cents != formattedCents) {
+            text.setLength(0);
+            formatted = CurrencyFormatter.getInstance().appendTo(text, cents).toString();
+            formattedCents = cents;
+        }
+        return formatted;
+    }
+
+    private void schedulePublish() {
+        if (publishing.compareAndSet(false, true)) {
+            Platform.runLater(pulse::start);
+        }
+    }
+
+    /**
+     * Runs once per pulse while quotes are arriving, and stops the timer once they dry up.
+     */
+    private void publish() {
+        Result result = latest.getAndSet(null);
+        if (result != null) {
+            // Checked again here, as cancel may have run after the worker's check.
+            if (result.generation == generation.get()) {
+                publisher.accept(result.quote);
+            }
+            return;
+        }
+
+        pulse.stop();
+        publishing.set(false);
+        // A quote may have landed between the read and the reset above.
+        if (latest.get() != null) {
+            schedulePublish();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package application.view;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import application.model.StyleRateTable;
+import application.util.CurrencyFormatter;
+import javafx.beans.property.ReadOnlyStringWrapper;
+import javafx.collections.FXCollections;
+import javafx.fxml.FXML;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.TableColumn;
+import javafx.scene.control.TableView;
+import javafx.scene.input.KeyCode;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
+import javafx.stage.Stage;
+
+/**
+ * Shows the price of the current customizations in every style, lowest first.
+ */
+public class StyleComparisonController {
+    @FXML
+    private Label summaryLabel;
+    @FXML
+    private TableView<Row> comparisonTable;
+    @FXML
+    private TableColumn<Row, String> styleColumn;
+    @FXML
+    private TableColumn<Row, String> costColumn;
+    @FXML
+    private Button chooseButton;
+    @FXML
+    private Button closeButton;
+
+    private Stage dialogStage;
+    private String chosenStyle;
+    private long[] costs = new long[0];
+
+    /**
+     * A style and its price. The price is only formatted for the rows the
+     * table shows, and the rows come sorted by it.
+     */
+    public static final class Row {
+    	private final String style;
+    	private final long costCents;
+
+    	Row(String style, long costCents) {
+    		this.style = style;
+    		this.costCents = costCents;
+    	}
+
+    	public String getStyle() {
+    		return style;
+    	}
+
+    	public long getCostCents() {
+    		return costCents;
+    	}
+    }
+
+	public StyleComparisonController() {
+	}
+
+    /**
+     * Initializes the controller class. This method is automatically called
+     * after the fxml file has been loaded.
+     */
+    @FXML
+    private void initialize() {
+    	styleColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(cell.getValue().getStyle()));
+    	costColumn.setCellValueFactory(cell -> new ReadOnlyStringWrapper(
+    		CurrencyFormatter.getInstance().format(cell.getValue().getCostCents())));
+    	chooseButton.disableProperty().bind(comparisonTable.getSelectionModel().selectedItemProperty().isNull());
+    }
+
+    /**
+     * Sets the stage of this dialog.
+     *
+     * @param dialogStage
+     */
+    public void setDialogStage(Stage dialogStage) {
+        this.dialogStage = dialogStage;
+    }
+
+    /**
+     * Prices the customizations in every style of the table and lists them,
+     * selecting the style currently chosen.
+     *
+     * @param table
+     * @param numOfBedrooms
+     * @param numOfBathrooms
+     * @param area
+     * @param currentStyle
+     */
+    public void setCustomizations(StyleRateTable table, double numOfBedrooms, double numOfBathrooms,
+    		double area, String currentStyle) {
+    	chosenStyle = null;
+
+    	long start = System.nanoTime();
+    	if (costs.length < table.size()) {
+    		costs = new long[table.size()];
+    	}
+    	table.quoteCents(numOfBedrooms, numOfBathrooms, area, costs);
+    	long elapsed = System.nanoTime() - start;
+
+    	List<Row> rows = new ArrayList<>(table.size());
+    	Row current = null;
+    	for (int i = 0; i < table.size(); i++) {
+    		Row row = new Row(table.getStyle(i), costs[i]);
+    		rows.add(row);
+    		if (row.getStyle().equals(currentStyle)) {
+    			current = row;
+    		}
+    	}
+    	rows.sort(Comparator.comparingLong(Row::getCostCents));
+    	comparisonTable.getSortOrder().clear();
+    	comparisonTable.setItems(FXCollections.observableArrayList(rows));
+
+    	if (current != null) {
+    		comparisonTable.getSelectionModel().select(current);
+    		comparisonTable.scrollTo(current);
+    	}
+    	summaryLabel.setText(String.format("%s bedrooms, %s bathrooms and %s sq ft in %d styles (priced in %.2f ms)",
+    		NumericInput.format(numOfBedrooms), NumericInput.format(numOfBathrooms),
+    		NumericInput.format(area), table.size(), elapsed / 1e6));
+    }
+
+    /**
+     * Returns the style the user chose, or null if they closed the dialog.
+     *
+     * @return
+     */
+    public String getChosenStyle() {
+        return chosenStyle;
+    }
+
+    @FXML
+    private void handleTableClicked(MouseEvent event) {
+    	if (event.getClickCount() == 2) {
+    		handleChoose();
+    	}
+    }
+
+    @FXML
+    private void handleTableKeyPressed(KeyEvent event) {
+    	if (event.getCode() == KeyCode.ENTER) {
+    		handleChoose();
+    	}
+    }
+
+    /**
+     * Called when the user clicks the "Choose" button.
+     */
+    @FXML
+    private void handleChoose() {
+    	Row row = comparisonTable.getSelectionModel().getSelectedItem();
+    	if (row == null) {
+    		return;
+    	}
+    	chosenStyle = row.getStyle();
+    	dialogStage.close();
+    }
+
+    /**
+     * Called when the user clicks the "Close" button.
+     */
+    @FXML
+    private void handleClose() {
+    	dialogStage.close();
+    }
+}
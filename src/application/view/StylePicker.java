@@ -0,0 +1,298 @@
+package application.view;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import application.util.PrefixIndex;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
+import javafx.event.ActionEvent;
+import javafx.geometry.Bounds;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.scene.input.KeyEvent;
+import javafx.scene.input.MouseEvent;
+import javafx.stage.Popup;
+
+/**
+ * Picks one of a list of items by typing the start of its name, for
+ * catalogs too large to list in a ChoiceBox. Items are named by their
+ * toString, e.g. a house by its style.
+ *
+ * Clicking the field or pressing Down lists every item; typing lists the
+ * items whose names start with the text, ignoring case. Up and Down move
+ * through the list, Enter or a click picks the highlighted item, and
+ * Escape puts back the name of the item picked before. Leaving the field
+ * picks the item named exactly by the text, if there is one.
+ *
+ * Items are found through a PrefixIndex, built when the list is first
+ * filtered after the items change, and each keystroke steps down from the
+ * node of the text before it. The list in the popup is a ListView, which
+ * only creates cells for the rows in view.
+ */
+public class StylePicker<T> extends TextField {
+	private static final int VISIBLE_ROWS = 10;
+	private static final double ROW_HEIGHT = 24;
+
+	private final ObjectProperty<ObservableList<T>> items = new SimpleObjectProperty<>(this, "items");
+	private final ObjectProperty<T> value = new SimpleObjectProperty<>(this, "value");
+
+	private final ListView<T> listView = new ListView<>();
+	private final Label placeholder = new Label();
+	private final Popup popup = new Popup();
+
+	private final ListChangeListener<T> itemsChanged = change -> itemsChanged();
+	// Built from the items when first needed, or null.
+	private PrefixIndex<T> index;
+	// The node of each prefix of the text filtered last; nodes.get(i) is for its first i characters.
+	private final List<PrefixIndex.Node> nodes = new ArrayList<>();
+	private String filtered = "";
+	// True while the text is set to the name of the value, which is not typing.
+	private boolean showingValue;
+
+	public StylePicker() {
+		setPromptText("Type a style");
+		listView.setFixedCellSize(ROW_HEIGHT);
+		listView.setFocusTraversable(false);
+		listView.setPlaceholder(placeholder);
+		listView.setCellFactory(list -> new ListCell<T>() {
+			{
+				setOnMouseClicked(event -> {
+					if (!isEmpty()) {
+						pick(getItem());
+					}
+				});
+			}
+
+			@Override
+			protected void updateItem(T item, boolean empty) {
+				super.updateItem(item, empty);
+				setText(empty || item == null ? null : String.valueOf(item));
+			}
+		});
+		popup.getContent().add(listView);
+		popup.setAutoHide(true);
+
+		items.addListener((observable, oldItems, newItems) -> {
+			if (oldItems != null) {
+				oldItems.removeListener(itemsChanged);
+			}
+			if (newItems != null) {
+				newItems.addListener(itemsChanged);
+			}
+			itemsChanged();
+		});
+		value.addListener((observable, oldValue, newValue) -> showValue());
+		textProperty().addListener((observable, oldText, newText) -> {
+			if (!showingValue) {
+				filter(newText);
+			}
+		});
+		focusedProperty().addListener((observable, wasFocused, focused) -> {
+			if (!focused) {
+				pickNamed(getText());
+			}
+		});
+		addEventHandler(MouseEvent.MOUSE_CLICKED, event -> {
+			if (!popup.isShowing()) {
+				showAll();
+				selectAll();
+			}
+		});
+		addEventHandler(ActionEvent.ACTION, event -> {
+			if (popup.isShowing()) {
+				pick(listView.getSelectionModel().getSelectedItem());
+				event.consume();
+			}
+		});
+		addEventFilter(KeyEvent.KEY_PRESSED, this::handleKeyPressed);
+	}
+
+	private void handleKeyPressed(KeyEvent event) {
+		switch (event.getCode()) {
+			case DOWN:
+				if (!popup.isShowing()) {
+					showAll();
+				} else {
+					move(1);
+				}
+				event.consume();
+				break;
+			case UP:
+				move(-1);
+				event.consume();
+				break;
+			case PAGE_DOWN:
+				move(VISIBLE_ROWS);
+				event.consume();
+				break;
+			case PAGE_UP:
+				move(-VISIBLE_ROWS);
+				event.consume();
+				break;
+			case ESCAPE:
+				if (popup.isShowing()) {
+					popup.hide();
+					showValue();
+					event.consume();
+				}
+				break;
+			default:
+				break;
+		}
+	}
+
+	private void move(int rows) {
+		if (!popup.isShowing() || listView.getItems().isEmpty()) {
+			return;
+		}
+		int row = listView.getSelectionModel().getSelectedIndex() + rows;
+		row = Math.max(0, Math.min(listView.getItems().size() - 1, row));
+		listView.getSelectionModel().select(row);
+		listView.scrollTo(Math.max(0, row - VISIBLE_ROWS / 2));
+	}
+
+	private void itemsChanged() {
+		index = null;
+		nodes.clear();
+		if (popup.isShowing()) {
+			filter(filtered);
+		}
+	}
+
+	private PrefixIndex<T> getIndex() {
+		if (index == null) {
+			List<T> list = getItems() != null ? getItems() : FXCollections.<T>emptyObservableList();
+			index = new PrefixIndex<>(list, String::valueOf);
+		}
+		return index;
+	}
+
+	/**
+	 * Lists the items whose names start with the text. Only the characters
+	 * that differ from the text filtered last are looked up.
+	 */
+	private void filter(String text) {
+		PrefixIndex<T> index = getIndex();
+		int common = 0;
+		int limit = Math.min(Math.min(text.length(), filtered.length()), nodes.size() - 1);
+		while (common < limit && text.charAt(common) == filtered.charAt(common)) {
+			common++;
+		}
+		if (nodes.isEmpty()) {
+			nodes.add(index.getRoot());
+		} else {
+			nodes.subList(common + 1, nodes.size()).clear();
+		}
+		PrefixIndex.Node node = nodes.get(nodes.size() - 1);
+		for (int i = nodes.size() - 1; i < text.length() && node != null; i++) {
+			node = index.next(node, text.charAt(i));
+			nodes.add(node);
+		}
+		filtered = text;
+
+		show(index.matches(node), "No style starts with \"" + text + "\".");
+		listView.getSelectionModel().selectFirst();
+		listView.scrollTo(0);
+	}
+
+	/**
+	 * Lists every item, with the value highlighted.
+	 */
+	private void showAll() {
+		filtered = "";
+		nodes.clear();
+		List<T> all = getIndex().getItems();
+		show(all, "No styles.");
+		int row = getValue() != null ? all.indexOf(getValue()) : -1;
+		if (row >= 0) {
+			listView.getSelectionModel().select(row);
+			listView.scrollTo(Math.max(0, row - VISIBLE_ROWS / 2));
+		} else {
+			listView.getSelectionModel().selectFirst();
+			listView.scrollTo(0);
+		}
+	}
+
+	private void show(List<T> matches, String empty) {
+		// The matches are a view of the index, so wrapping them copies nothing.
+		listView.setItems(FXCollections.observableList(matches));
+		placeholder.setText(empty);
+		listView.setPrefHeight(Math.max(1, Math.min(matches.size(), VISIBLE_ROWS)) * ROW_HEIGHT + 2);
+		listView.setPrefWidth(getWidth());
+		if (!popup.isShowing() && getScene() != null && getScene().getWindow() != null) {
+			Bounds bounds = localToScreen(getBoundsInLocal());
+			popup.show(this, bounds.getMinX(), bounds.getMaxY());
+		}
+	}
+
+	private void pick(T item) {
+		popup.hide();
+		if (item != null) {
+			setValue(item);
+		}
+		showValue();
+	}
+
+	/**
+	 * Picks the item whose name is the text, ignoring case, or shows the
+	 * name of the value again. A name sorts before the longer names it
+	 * starts, so only the first match can be it.
+	 */
+	private void pickNamed(String text) {
+		popup.hide();
+		List<T> matches = getIndex().matches(getIndex().find(text));
+		if (!text.isEmpty() && !matches.isEmpty() && String.valueOf(matches.get(0)).equalsIgnoreCase(text)) {
+			setValue(matches.get(0));
+		}
+		showValue();
+	}
+
+	private void showValue() {
+		T item = getValue();
+		String name = item != null ? String.valueOf(item) : "";
+		if (!name.equals(getText())) {
+			showingValue = true;
+			try {
+				setText(name);
+			} finally {
+				showingValue = false;
+			}
+		}
+		if (!popup.isShowing()) {
+			positionCaret(name.length());
+		}
+	}
+
+	public final ObjectProperty<ObservableList<T>> itemsProperty() {
+		return items;
+	}
+
+	public final ObservableList<T> getItems() {
+		return items.get();
+	}
+
+	public final void setItems(ObservableList<T> items) {
+		this.items.set(items);
+	}
+
+	/**
+	 * The item picked, or null.
+	 */
+	public final ObjectProperty<T> valueProperty() {
+		return value;
+	}
+
+	public final T getValue() {
+		return value.get();
+	}
+
+	public final void setValue(T value) {
+		this.value.set(value);
+	}
+}